@@ -0,0 +1,92 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.impl.CacheStatsCounter;
+import com.andersen.marketplace.cache.impl.ConcurrentCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MeterBinder publishing the statistics of every cache bean as Micrometer meters,
+ * tagged with the bean name of the cache.
+ */
+@Component
+public class CacheMetricsBinder implements MeterBinder {
+
+    private final Map<String, ConcurrentCache<?, ?>> caches;
+
+    /**
+     * Constructs a CacheMetricsBinder for the given caches.
+     *
+     * @param caches the caches keyed by bean name
+     */
+    public CacheMetricsBinder(Map<String, ConcurrentCache<?, ?>> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * Registers the meters of all caches.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        caches.forEach((name, cache) -> bindCache(registry, name, cache));
+    }
+
+    /**
+     * Registers size gauges, hit/miss/load/eviction counters and a load latency
+     * histogram for a single cache.
+     *
+     * @param registry the registry to register the meters with
+     * @param name the cache name
+     * @param cache the cache
+     */
+    private void bindCache(MeterRegistry registry, String name, ConcurrentCache<?, ?> cache) {
+        Tags tags = Tags.of("cache", name);
+        CacheStatsCounter stats = cache.stats();
+
+        Gauge.builder("cache.size", cache, c -> c.size())
+                .tags(tags)
+                .description("The number of entries in the cache")
+                .register(registry);
+        Gauge.builder("cache.weighted.size", cache, c -> c.weightedSize())
+                .tags(tags)
+                .description("The total weight of the entries in the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", stats, CacheStatsCounter::getHitCount)
+                .tags(tags).tag("result", "hit")
+                .description("The number of cache lookups that found an entry")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", stats, CacheStatsCounter::getMissCount)
+                .tags(tags).tag("result", "miss")
+                .description("The number of cache lookups that found no entry")
+                .register(registry);
+        FunctionCounter.builder("cache.loads", stats, CacheStatsCounter::getLoadSuccessCount)
+                .tags(tags).tag("result", "success")
+                .description("The number of values loaded on a miss or refresh")
+                .register(registry);
+        FunctionCounter.builder("cache.loads", stats, CacheStatsCounter::getLoadFailureCount)
+                .tags(tags).tag("result", "failure")
+                .description("The number of loads that failed")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", stats, CacheStatsCounter::getEvictionCount)
+                .tags(tags)
+                .description("The number of entries evicted because of size bounds or expiration")
+                .register(registry);
+
+        Timer loadTimer = Timer.builder("cache.load.duration")
+                .tags(tags)
+                .description("The time spent loading values into the cache")
+                .publishPercentileHistogram()
+                .register(registry);
+        stats.setLoadTimeListener(nanos -> loadTimer.record(nanos, TimeUnit.NANOSECONDS));
+    }
+}
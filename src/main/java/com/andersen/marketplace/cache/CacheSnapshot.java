@@ -0,0 +1,164 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the cached read models, stored in a compact binary file.
+ * Categories are stored without their products, which are rebuilt from the
+ * category IDs of the stored products on restore.
+ * <p>
+ * The file consists of a magic number, a format version, the creation time, the categories,
+ * the products and a trailing CRC32 checksum of everything before it.
+ *
+ * @param createdAt the time the snapshot was taken
+ * @param categories the cached categories
+ * @param products the cached products, including the products of the cached categories
+ */
+public record CacheSnapshot(Instant createdAt, List<CategoryView> categories, List<ProductView> products) {
+
+    private static final int MAGIC = 0x4D4B4353;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2 + Long.BYTES;
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Writes the snapshot to a temporary file and atomically moves it to the given path,
+     * so a crash while writing never leaves a truncated snapshot behind.
+     *
+     * @param path the path of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, checksum));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(createdAt.toEpochMilli());
+                out.writeInt(categories.size());
+                for (CategoryView category : categories) {
+                    writeUuid(out, category.id());
+                    writeString(out, category.name());
+                    writeString(out, category.logo());
+                }
+                out.writeInt(products.size());
+                for (ProductView product : products) {
+                    writeUuid(out, product.id());
+                    writeString(out, product.name());
+                    writeString(out, product.logo());
+                    writeUuid(out, product.categoryId());
+                    writeString(out, product.categoryName());
+                }
+                out.flush();
+                new DataOutputStream(file).writeLong(checksum.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot by memory-mapping the given file, verifying its checksum before parsing it.
+     * Category names are interned, so products and categories share them again.
+     *
+     * @param path the path of the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, is corrupted or has an unknown format
+     */
+    public static CacheSnapshot readFrom(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid cache snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int contentLength = (int) size - Long.BYTES;
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(0, contentLength));
+            if (checksum.getValue() != buffer.getLong(contentLength)) {
+                throw new IOException("Cache snapshot checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unknown cache snapshot format");
+            }
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+
+            int categoryCount = buffer.getInt();
+            List<CategoryView> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(new CategoryView(readUuid(buffer), intern(readString(buffer)), readString(buffer), List.of()));
+            }
+            int productCount = buffer.getInt();
+            List<ProductView> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                products.add(new ProductView(readUuid(buffer), readString(buffer), readString(buffer),
+                        readUuid(buffer), intern(readString(buffer))));
+            }
+            return new CacheSnapshot(createdAt, categories, products);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed cache snapshot", e);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static UUID readUuid(ByteBuffer buffer) {
+        return buffer.get() != 0 ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.ProductView;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the cache warm-up from overwriting the writes of requests served while it runs.
+ * Requests apply their cache writes through the guard, which records the written products and
+ * removed categories while a warm-up is loading. The warm-up then skips the products and categories
+ * it read before such a write instead of replacing the newer state.
+ * <p>
+ * Writes of requests share a read lock, and each chunk stored by the warm-up takes the write lock,
+ * so a write either happens before the chunk is stored and is recorded, or after it and wins.
+ */
+@Component
+public class CacheWarmUpGuard {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<UUID> writtenProducts = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> removedCategories = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loading;
+
+    /**
+     * Starts recording the products written and the categories removed, until {@link #finishLoading()}.
+     */
+    public void startLoading() {
+        lock.writeLock().lock();
+        try {
+            writtenProducts.clear();
+            removedCategories.clear();
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops recording written products and removed categories once the warm-up has finished.
+     */
+    public void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            writtenProducts.clear();
+            removedCategories.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the cache writes of a request adding, updating or removing a product.
+     *
+     * @param productId the product ID
+     * @param write the cache writes
+     */
+    public void writeProduct(UUID productId, Runnable write) {
+        lock.readLock().lock();
+        try {
+            if (loading) {
+                writtenProducts.add(productId);
+            }
+            write.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the cache writes of a request removing a category with its products.
+     *
+     * @param categoryId the category ID
+     * @param removal the cache writes
+     */
+    public void removeCategory(UUID categoryId, Runnable removal) {
+        lock.readLock().lock();
+        try {
+            if (loading) {
+                removedCategories.add(categoryId);
+            }
+            removal.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores products read by the warm-up, skipping the ones written since the warm-up started and the ones
+     * of categories removed since, as the read may predate those writes.
+     *
+     * @param products the product read models loaded by the warm-up
+     * @param store the action storing the products that are not skipped
+     * @return the IDs of the skipped products
+     */
+    public Set<UUID> putLoadedProducts(Collection<ProductView> products, Consumer<List<ProductView>> store) {
+        Set<UUID> skipped = new HashSet<>();
+        List<ProductView> stored = new ArrayList<>(products.size());
+        lock.writeLock().lock();
+        try {
+            for (ProductView product : products) {
+                if (writtenProducts.contains(product.id()) || removedCategories.contains(product.categoryId())) {
+                    skipped.add(product.id());
+                } else {
+                    stored.add(product);
+                }
+            }
+            store.accept(stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return skipped;
+    }
+
+    /**
+     * Stores a category read by the warm-up unless the category was removed since the warm-up started.
+     *
+     * @param categoryId the category ID
+     * @param store the action storing the category
+     * @return true if the category was stored
+     */
+    public boolean putLoadedCategory(UUID categoryId, Runnable store) {
+        lock.writeLock().lock();
+        try {
+            if (removedCategories.contains(categoryId)) {
+                return false;
+            }
+            store.run();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
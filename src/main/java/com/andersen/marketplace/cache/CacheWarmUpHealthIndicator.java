@@ -0,0 +1,44 @@
+package com.andersen.marketplace.cache;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health indicator that stays down until the cache warm-up has finished.
+ * It is part of the readiness group, so the instance receives traffic only with warm caches.
+ * A failed warm-up reports up, because the caches still load entries on demand.
+ */
+@Component
+public class CacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmUpProgress progress;
+
+    /**
+     * Constructs a CacheWarmUpHealthIndicator.
+     *
+     * @param progress the warm-up progress
+     */
+    public CacheWarmUpHealthIndicator(CacheWarmUpProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Reports the warm-up state together with its progress.
+     *
+     * @return the health of the cache warm-up
+     */
+    @Override
+    public Health health() {
+        Health.Builder builder = progress.isFinished() ? Health.up() : Health.down();
+        builder.withDetail("state", progress.getState())
+                .withDetail("loadedProducts", progress.getLoadedProducts())
+                .withDetail("loadedCategories", progress.getLoadedCategories())
+                .withDetail("completedRanges", progress.getCompletedRanges())
+                .withDetail("totalRanges", progress.getTotalRanges());
+        if (progress.getFailure() != null) {
+            builder.withDetail("error", progress.getFailure().toString());
+        }
+        return builder.build();
+    }
+}
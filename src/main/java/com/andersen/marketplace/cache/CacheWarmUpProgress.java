@@ -0,0 +1,149 @@
+package com.andersen.marketplace.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of the cache warm-up and publishes it as Micrometer gauges.
+ */
+@Component
+public class CacheWarmUpProgress implements MeterBinder {
+
+    /**
+     * The lifecycle states of the warm-up.
+     */
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED, DISABLED
+    }
+
+    private final AtomicLong loadedProducts = new AtomicLong();
+    private final AtomicLong loadedCategories = new AtomicLong();
+    private final AtomicInteger completedRanges = new AtomicInteger();
+    private final AtomicInteger totalRanges = new AtomicInteger();
+
+    private volatile State state = State.PENDING;
+    private volatile Throwable failure;
+
+    /**
+     * Marks the warm-up as started.
+     *
+     * @param ranges the number of key ranges to load
+     */
+    public void start(int ranges) {
+        totalRanges.set(ranges);
+        state = State.RUNNING;
+    }
+
+    /**
+     * Records products stored in the product cache.
+     *
+     * @param count the number of products
+     */
+    public void productsLoaded(int count) {
+        loadedProducts.addAndGet(count);
+    }
+
+    /**
+     * Records categories stored in the category cache.
+     *
+     * @param count the number of categories
+     */
+    public void categoriesLoaded(int count) {
+        loadedCategories.addAndGet(count);
+    }
+
+    /**
+     * Records a fully loaded key range.
+     */
+    public void rangeCompleted() {
+        completedRanges.incrementAndGet();
+    }
+
+    /**
+     * Marks the warm-up as completed.
+     */
+    public void complete() {
+        state = State.COMPLETED;
+    }
+
+    /**
+     * Marks the warm-up as failed.
+     *
+     * @param failure the cause of the failure
+     */
+    public void fail(Throwable failure) {
+        this.failure = failure;
+        state = State.FAILED;
+    }
+
+    /**
+     * Marks the warm-up as disabled by configuration.
+     */
+    public void disable() {
+        state = State.DISABLED;
+    }
+
+    /**
+     * Checks whether the warm-up has finished, successfully or not, or will not run at all.
+     *
+     * @return true if the warm-up is no longer pending or running
+     */
+    public boolean isFinished() {
+        return state != State.PENDING && state != State.RUNNING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public long getLoadedProducts() {
+        return loadedProducts.get();
+    }
+
+    public long getLoadedCategories() {
+        return loadedCategories.get();
+    }
+
+    public int getCompletedRanges() {
+        return completedRanges.get();
+    }
+
+    public int getTotalRanges() {
+        return totalRanges.get();
+    }
+
+    /**
+     * Registers the warm-up progress gauges.
+     *
+     * @param registry the registry to register the meters with
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cache.warmup.loaded", loadedProducts, AtomicLong::get)
+                .tag("cache", "productCache")
+                .description("The number of entries loaded into the cache by the warm-up")
+                .register(registry);
+        Gauge.builder("cache.warmup.loaded", loadedCategories, AtomicLong::get)
+                .tag("cache", "categoryCache")
+                .description("The number of entries loaded into the cache by the warm-up")
+                .register(registry);
+        Gauge.builder("cache.warmup.ranges.completed", completedRanges, AtomicInteger::get)
+                .description("The number of key ranges loaded by the warm-up")
+                .register(registry);
+        Gauge.builder("cache.warmup.ranges.total", totalRanges, AtomicInteger::get)
+                .description("The number of key ranges the warm-up loads")
+                .register(registry);
+        Gauge.builder("cache.warmup.finished", this, progress -> progress.isFinished() ? 1 : 0)
+                .description("Whether the warm-up has finished")
+                .register(registry);
+    }
+}
@@ -1,75 +1,398 @@
 package com.andersen.marketplace.cache;
 
-import com.andersen.marketplace.entity.Category;
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
 import com.andersen.marketplace.entity.Product;
+import com.andersen.marketplace.mapper.CategoryMapper;
+import com.andersen.marketplace.mapper.ProductMapper;
+import com.andersen.marketplace.properties.CacheProperties;
 import com.andersen.marketplace.repository.CategoryRepository;
 import com.andersen.marketplace.repository.ProductRepository;
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * DataLoader is a Spring component responsible for loading data into caches
- * from the data source repositories upon application startup.
+ * DataLoader is a Spring component responsible for warming up the caches
+ * from the data source repositories once the application is ready.
+ * Products are streamed in ID order chunks over several disjoint key ranges loaded in parallel,
+ * so neither the startup nor the heap has to hold the whole catalog at once.
+ * With snapshots enabled, the caches are written to a local file on shutdown and restored from it
+ * on startup, reading only the rows changed since the snapshot from the database.
+ * Every loaded product is also added to the product search index, which starts answering searches
+ * once the warm-up has completed. Products and categories written or removed by requests while the warm-up runs
+ * are not overwritten by the warm-up's possibly older reads, see {@link CacheWarmUpGuard}.
  */
 @Component
 public class DataLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(DataLoader.class);
 
-    private final GenericCache<UUID, Product> productCache;
-    private final GenericCache<UUID, Category> categoryCache;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+    private static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    private final GenericCache<UUID, ProductView> productCache;
+    private final GenericCache<UUID, CategoryView> categoryCache;
+    private final ProductSearchIndex searchIndex;
+    private final CacheWarmUpGuard warmUpGuard;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ProductMapper productMapper;
+    private final CategoryMapper categoryMapper;
+    private final CacheProperties cacheProperties;
+    private final CacheProperties.WarmUp settings;
+    private final CacheWarmUpProgress progress;
 
     /**
      * Constructs a DataLoader with the specified caches and repositories.
      *
      * @param productCache the cache for storing products
      * @param categoryCache the cache for storing categories
+     * @param searchIndex the product search index
+     * @param warmUpGuard the guard skipping products and categories written by requests during the warm-up
      * @param productRepository the repository for accessing product data
      * @param categoryRepository the repository for accessing category data
+     * @param productMapper the mapper building product read models
+     * @param categoryMapper the mapper building category read models
+     * @param cacheProperties the cache properties holding the warm-up and snapshot settings
+     * @param progress the warm-up progress
      */
-    public DataLoader(GenericCache<UUID, Product> productCache, GenericCache<UUID, Category> categoryCache,
-                      ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public DataLoader(GenericCache<UUID, ProductView> productCache, GenericCache<UUID, CategoryView> categoryCache,
+                      ProductSearchIndex searchIndex, CacheWarmUpGuard warmUpGuard,
+                      ProductRepository productRepository,
+                      CategoryRepository categoryRepository, ProductMapper productMapper, CategoryMapper categoryMapper,
+                      CacheProperties cacheProperties, CacheWarmUpProgress progress) {
         this.productCache = productCache;
         this.categoryCache = categoryCache;
+        this.searchIndex = searchIndex;
+        this.warmUpGuard = warmUpGuard;
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.productMapper = productMapper;
+        this.categoryMapper = categoryMapper;
+        this.cacheProperties = cacheProperties;
+        this.settings = cacheProperties.getWarmUp();
+        this.progress = progress;
     }
 
     /**
-     * Loads data into the caches from the data source repositories.
-     * This method is called after the bean's properties have been set.
+     * Starts the cache warm-up once the application is ready to serve requests.
+     * The warm-up runs in the background, so startup is not delayed by it.
      */
-    @PostConstruct
+    @EventListener(ApplicationReadyEvent.class)
     public void loadData() {
-        logger.info("Starting to load data...");
-        loadProductsFromDataSource();
-        loadCategoriesFromDataSource();
-        logger.info("Data loading completed.");
+        if (!settings.isEnabled()) {
+            logger.info("Cache warm-up is disabled");
+            progress.disable();
+            return;
+        }
+        warmUp();
+    }
+
+    /**
+     * Restores the caches from the snapshot if there is a usable one, otherwise loads the products
+     * of all key ranges in parallel, then the categories referencing them.
+     *
+     * @return a future completed when the warm-up has finished
+     */
+    public CompletableFuture<Void> warmUp() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, settings.getThreads()), threadFactory());
+        long startedAt = System.nanoTime();
+        warmUpGuard.startLoading();
+
+        return CompletableFuture.supplyAsync(this::restoreSnapshot, executor)
+                .thenCompose(restored -> restored ? CompletableFuture.<Void>completedFuture(null) : loadAll(executor))
+                .whenComplete((ignored, error) -> {
+                    executor.shutdown();
+                    warmUpGuard.finishLoading();
+                    if (error != null) {
+                        logger.error("Cache warm-up failed", error);
+                        progress.fail(error);
+                    } else {
+                        logger.info("Cache warm-up completed: {} products, {} categories in {} ms",
+                                progress.getLoadedProducts(), progress.getLoadedCategories(),
+                                (System.nanoTime() - startedAt) / 1_000_000);
+                        searchIndex.markReady();
+                        progress.complete();
+                    }
+                });
+    }
+
+    /**
+     * Loads the products of all key ranges in parallel, then the categories referencing them.
+     *
+     * @param executor the executor running the loads
+     * @return a future completed when all products and categories are loaded
+     */
+    private CompletableFuture<Void> loadAll(ExecutorService executor) {
+        List<KeyRange> ranges = splitKeyRange(Math.max(1, settings.getThreads()) * RANGES_PER_THREAD);
+        Map<UUID, Queue<ProductView>> productsByCategory = new ConcurrentHashMap<>();
+
+        logger.info("Starting to warm up caches over {} key ranges...", ranges.size());
+        progress.start(ranges.size());
+
+        CompletableFuture<?>[] productLoads = ranges.stream()
+                .map(range -> CompletableFuture.runAsync(() -> loadProducts(range, productsByCategory), executor))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(productLoads)
+                .thenRunAsync(() -> loadCategories(productsByCategory), executor);
     }
 
     /**
-     * Loads products from the data source and stores them in the product cache.
+     * Restores the caches from the snapshot file and reconciles them with the database:
+     * rows updated since the snapshot replace the stored ones, and rows deleted since are dropped.
+     * Categories created since the snapshot are left to be loaded on demand. Products missing from the snapshot,
+     * such as ones evicted from a bounded cache, are loaded so that the search index holds every product.
+     *
+     * @return true if the caches were restored, false if there is no usable snapshot
      */
-    private void loadProductsFromDataSource() {
-        productRepository.findAll().forEach(product -> {
-            productCache.put(product.getId(), product);
-            logger.debug("Loaded product: {}", product);
+    private boolean restoreSnapshot() {
+        CacheProperties.Snapshot snapshotSettings = cacheProperties.getSnapshot();
+        Path path = Path.of(snapshotSettings.getPath());
+        if (!snapshotSettings.isEnabled() || !Files.exists(path)) {
+            return false;
+        }
+        CacheSnapshot snapshot;
+        try {
+            snapshot = CacheSnapshot.readFrom(path);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable cache snapshot {}", path, e);
+            return false;
+        }
+        if (snapshot.createdAt().isBefore(Instant.now().minusMillis(snapshotSettings.getMaxAge()))) {
+            logger.info("Ignoring cache snapshot taken at {} as too old", snapshot.createdAt());
+            return false;
+        }
+
+        logger.info("Restoring caches from snapshot taken at {}...", snapshot.createdAt());
+        progress.start(1);
+        Instant since = snapshot.createdAt().minusMillis(reconcileWindow());
+
+        Map<UUID, ProductView> products = new HashMap<>();
+        snapshot.products().forEach(product -> products.put(product.id(), product));
+        productRepository.findUpdatedSince(since)
+                .forEach(product -> products.put(product.getId(), productMapper.mapToProductView(product)));
+        Set<UUID> productIds = new HashSet<>(productRepository.findAllIds());
+        products.keySet().retainAll(productIds);
+        productIds.removeAll(products.keySet());
+        loadMissingProducts(productIds, products);
+
+        Map<UUID, CategoryView> categories = new HashMap<>();
+        snapshot.categories().forEach(category -> categories.put(category.id(), category));
+        categoryRepository.findUpdatedSince(since).forEach(category -> categories.computeIfPresent(category.getId(),
+                (id, stored) -> categoryMapper.mapToCategoryView(category, List.of())));
+        categories.keySet().retainAll(new HashSet<>(categoryRepository.findAllIds()));
+
+        Map<UUID, List<ProductView>> productsByCategory = new HashMap<>();
+        Set<UUID> skipped = warmUpGuard.putLoadedProducts(products.values(), this::store);
+        products.values().forEach(product -> current(product, skipped).ifPresent(view ->
+                productsByCategory.computeIfAbsent(view.categoryId(), id -> new ArrayList<>()).add(view)));
+        progress.productsLoaded(products.size());
+        categories.values().forEach(category -> {
+            CategoryView view = new CategoryView(category.id(), category.name(), category.logo(),
+                    productsByCategory.getOrDefault(category.id(), List.of()));
+            warmUpGuard.putLoadedCategory(view.id(), () -> categoryCache.put(view.id(), view));
         });
+        progress.categoriesLoaded(categories.size());
+        progress.rangeCompleted();
+        return true;
     }
 
     /**
-     * Loads categories from the data source and stores them in the category cache.
+     * Loads products by ID in chunks, with their categories, into the given read models.
+     *
+     * @param ids the IDs of the products
+     * @param products the product read models by ID
      */
-    private void loadCategoriesFromDataSource() {
-        categoryRepository.findAllWithProducts().forEach(category -> {
-            categoryCache.put(category.getId(), category);
-            logger.debug("Loaded category: {}", category);
+    private void loadMissingProducts(Collection<UUID> ids, Map<UUID, ProductView> products) {
+        List<UUID> missing = new ArrayList<>(ids);
+        int chunkSize = Math.max(1, settings.getChunkSize());
+        for (int from = 0; from < missing.size(); from += chunkSize) {
+            List<UUID> chunk = missing.subList(from, Math.min(from + chunkSize, missing.size()));
+            productRepository.findAllWithCategoryByIdIn(chunk)
+                    .forEach(product -> products.put(product.getId(), productMapper.mapToProductView(product)));
+        }
+    }
+
+    /**
+     * Returns how far before the snapshot time changes are reconciled: the longest time an entry can
+     * stay cached without being reloaded, plus a margin for clock skew between nodes.
+     *
+     * @return the reconcile window in milliseconds
+     */
+    private long reconcileWindow() {
+        return cacheProperties.getSnapshot().getReconcileMargin()
+                + Math.max(maxEntryAge(cacheProperties.getProducts()), maxEntryAge(cacheProperties.getCategories()));
+    }
+
+    private static long maxEntryAge(CacheProperties.Spec spec) {
+        long timeout = spec.getTimeout();
+        return spec.getMaxStaleness() != null ? Math.max(timeout, spec.getMaxStaleness()) : timeout;
+    }
+
+    /**
+     * Writes the contents of the caches to the snapshot file on graceful shutdown.
+     * Products held only by cached categories are included, so restored categories are complete.
+     */
+    @PreDestroy
+    public void saveSnapshot() {
+        CacheProperties.Snapshot snapshotSettings = cacheProperties.getSnapshot();
+        if (!snapshotSettings.isEnabled()) {
+            return;
+        }
+        Instant createdAt = Instant.now();
+        List<CategoryView> categories = new ArrayList<>();
+        Map<UUID, ProductView> products = new HashMap<>();
+        categoryCache.forEach((id, category) -> {
+            categories.add(category);
+            category.products().forEach(product -> products.putIfAbsent(product.id(), product));
         });
+        productCache.forEach(products::put);
+
+        Path path = Path.of(snapshotSettings.getPath());
+        try {
+            new CacheSnapshot(createdAt, categories, List.copyOf(products.values())).writeTo(path);
+            logger.info("Saved cache snapshot with {} products and {} categories to {}",
+                    products.size(), categories.size(), path);
+        } catch (IOException e) {
+            logger.warn("Failed to save cache snapshot to {}", path, e);
+        }
+    }
+
+    /**
+     * Streams the products of a key range chunk by chunk, continuing each chunk after the last ID
+     * of the previous one, and stores their read models in the product cache and the search index.
+     *
+     * @param range the key range
+     * @param productsByCategory the loaded product read models grouped by category ID
+     */
+    private void loadProducts(KeyRange range, Map<UUID, Queue<ProductView>> productsByCategory) {
+        int chunkSize = Math.max(1, settings.getChunkSize());
+        UUID after = range.after();
+        List<Product> chunk;
+        do {
+            chunk = productRepository.findChunk(after, range.upTo(), PageRequest.of(0, chunkSize));
+            List<ProductView> views = chunk.stream().map(productMapper::mapToProductView).toList();
+            Set<UUID> skipped = warmUpGuard.putLoadedProducts(views, this::store);
+            for (ProductView view : views) {
+                current(view, skipped).ifPresent(product -> productsByCategory
+                        .computeIfAbsent(product.categoryId(), id -> new ConcurrentLinkedQueue<>()).add(product));
+            }
+            progress.productsLoaded(chunk.size());
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == chunkSize);
+        progress.rangeCompleted();
+    }
+
+    /**
+     * Loads categories from the data source and stores their read models in the category cache.
+     * The categories reference the product read models already held by the product cache,
+     * so products are neither fetched nor stored twice.
+     *
+     * @param productsByCategory the loaded product read models grouped by category ID
+     */
+    private void loadCategories(Map<UUID, Queue<ProductView>> productsByCategory) {
+        categoryRepository.findAll().forEach(category -> {
+            Collection<ProductView> products = productsByCategory.getOrDefault(category.getId(), new ConcurrentLinkedQueue<>());
+            CategoryView view = categoryMapper.mapToCategoryView(category, List.copyOf(products));
+            if (warmUpGuard.putLoadedCategory(view.id(), () -> categoryCache.put(view.id(), view))) {
+                logger.debug("Loaded category: {}", view);
+            }
+            progress.categoriesLoaded(1);
+        });
+    }
+
+    /**
+     * Stores loaded products in the product cache and the search index.
+     *
+     * @param products the product read models
+     */
+    private void store(List<ProductView> products) {
+        products.forEach(product -> productCache.put(product.id(), product));
+        searchIndex.putAll(products);
+    }
+
+    /**
+     * Returns the read model of a loaded product to list in its category: the loaded one, or for a product
+     * written or removed by a request meanwhile, the one the request left in the product cache, if any.
+     *
+     * @param product the loaded product read model
+     * @param skipped the IDs of the loaded products the warm-up guard skipped
+     * @return the current product read model, or empty if the product was removed
+     */
+    private Optional<ProductView> current(ProductView product, Set<UUID> skipped) {
+        return skipped.contains(product.id()) ? productCache.get(product.id()) : Optional.of(product);
+    }
+
+    /**
+     * Splits the whole UUID key space into equally wide, disjoint ranges.
+     * The bounds follow the unsigned byte order the database uses to compare UUIDs.
+     *
+     * @param count the number of ranges
+     * @return the ranges covering the key space in ascending order
+     */
+    static List<KeyRange> splitKeyRange(int count) {
+        long step = Long.divideUnsigned(-1L, count);
+        List<KeyRange> ranges = new ArrayList<>(count);
+        UUID after = MIN_ID;
+        for (int i = 1; i <= count; i++) {
+            UUID upTo = i == count ? MAX_ID : new UUID(step * i, 0L);
+            ranges.add(new KeyRange(after, upTo));
+            after = upTo;
+        }
+        return ranges;
+    }
+
+    /**
+     * Creates the factory of the daemon threads running the warm-up.
+     *
+     * @return the thread factory
+     */
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A range of product IDs.
+     *
+     * @param after the exclusive lower bound
+     * @param upTo the inclusive upper bound
+     */
+    record KeyRange(UUID after, UUID upTo) {
     }
 }
@@ -0,0 +1,19 @@
+package com.andersen.marketplace.cache;
+
+/**
+ * Policy used to choose which entries leave a size- or weight-bounded cache.
+ */
+public enum EvictionPolicy {
+
+    /**
+     * Window TinyLFU: new entries enter a small LRU window and are only admitted to the
+     * main segmented LRU if they have been used more often than the entry they replace.
+     */
+    W_TINY_LFU,
+
+    /**
+     * Segmented LRU without frequency-based admission: entries used at least twice are
+     * protected from entries that have only been used once.
+     */
+    SEGMENTED_LRU
+}
@@ -1,6 +1,8 @@
 package com.andersen.marketplace.cache;
 
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Generic cache interface for managing cache operations.
@@ -28,6 +30,17 @@ public interface GenericCache<K, V> {
      */
     Optional<V> get(K key);
 
+    /**
+     * Retrieves a value from the cache by its key, loading and caching it if absent.
+     * Only one load per key is in flight at a time: concurrent callers wait for it and
+     * share its result, and a failed load is rethrown to all of them without being cached.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param loader the function computing the value on a cache miss
+     * @return the cached or loaded value, or null if the loader returned null
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
     /**
      * Puts a key-value pair into the cache.
      *
@@ -42,4 +55,12 @@ public interface GenericCache<K, V> {
      * @param key the key whose associated value is to be removed
      */
     void remove(K key);
+
+    /**
+     * Performs the given action for each entry of the cache that has not expired.
+     * The iteration is weakly consistent and does not count as access to the entries.
+     *
+     * @param action the action to be performed for each entry
+     */
+    void forEach(BiConsumer<? super K, ? super V> action);
 }
\ No newline at end of file
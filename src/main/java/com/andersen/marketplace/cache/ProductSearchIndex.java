@@ -0,0 +1,532 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over the names and category names of all products, answering the product search
+ * without a database round trip. Every product gets a sequential document number, and each trigram of the
+ * lower-cased names maps to the ascending document numbers containing it, stored as delta-encoded varints.
+ * A search intersects the postings of the trigrams of each filter and then checks the candidates for the
+ * whole substring, so results match a case-insensitive {@code ILIKE '%filter%'}.
+ * <p>
+ * Updated products get a new document number and their old one is only marked as removed, so postings are
+ * append-only; the index is rebuilt once removed documents outnumber live ones. Searches share a read lock,
+ * updates take the write lock. The index answers searches only once the cache warm-up has loaded every product.
+ * A disabled index ignores every update and never answers searches, so it costs neither memory nor CPU.
+ * <p>
+ * Results are ordered like {@code ORDER BY name COLLATE "C", id} in the database, which sorts UTF-8 names
+ * by their bytes regardless of the database locale: names are compared by Unicode code point, which orders
+ * them the same way, and then by ID.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+    private static final Comparator<UUID> ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> documentsById = new HashMap<>();
+    private final Map<Long, Postings> nameIndex = new HashMap<>();
+    private final Map<Long, Postings> categoryIndex = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private final boolean enabled;
+
+    private ProductView[] documents = new ProductView[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] categoryNames = new String[INITIAL_CAPACITY];
+    private int documentCount;
+    private int removedCount;
+
+    private volatile boolean ready;
+
+    /**
+     * Constructs a new enabled ProductSearchIndex.
+     */
+    public ProductSearchIndex() {
+        this.enabled = true;
+    }
+
+    /**
+     * Constructs a new ProductSearchIndex enabled by the {@code cache.search-index} properties.
+     *
+     * @param cacheProperties the cache properties
+     */
+    @Autowired
+    public ProductSearchIndex(CacheProperties cacheProperties) {
+        this.enabled = cacheProperties.getSearchIndex().isEnabled();
+    }
+
+    /**
+     * Adds a product to the index or replaces its indexed version.
+     *
+     * @param product the product read model
+     */
+    public void put(ProductView product) {
+        putAll(List.of(product));
+    }
+
+    /**
+     * Adds products to the index or replaces their indexed versions under a single write lock.
+     *
+     * @param products the product read models
+     */
+    public void putAll(Collection<ProductView> products) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (ProductView product : products) {
+                removeDocument(product.id());
+                addDocument(product);
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param id the product ID
+     */
+    public void remove(UUID id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all products of a category from the index.
+     *
+     * @param categoryId the category ID
+     */
+    public void removeCategory(UUID categoryId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int document = 0; document < documentCount; document++) {
+                if (!removed.get(document) && categoryId.equals(documents[document].categoryId())) {
+                    removeDocument(documents[document].id());
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the index as holding every product, so it starts answering searches unless it is disabled.
+     */
+    public void markReady() {
+        ready = enabled;
+    }
+
+    /**
+     * Returns whether the index holds every product and answers searches.
+     *
+     * @return true if the index is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the number of indexed products.
+     *
+     * @return the number of products
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products whose category name and name contain the given filters, ignoring case,
+     * ordered by name and ID. Filters shorter than a trigram are checked against every product.
+     * Filters containing {@code LIKE} wildcards or escapes are left to the database, as is every search
+     * before the index is ready.
+     *
+     * @param category the category name filter (optional)
+     * @param name the product name filter (optional)
+     * @param pageable the pagination information
+     * @return the page of matching products, or empty if the index cannot answer the search
+     */
+    public Optional<Page<ProductView>> search(String category, String name, Pageable pageable) {
+        if (!ready || isPattern(category) || isPattern(name)) {
+            return Optional.empty();
+        }
+        String categoryFilter = category != null ? category.toLowerCase(Locale.ROOT) : null;
+        String nameFilter = name != null ? name.toLowerCase(Locale.ROOT) : null;
+
+        List<ProductView> page;
+        int total;
+        lock.readLock().lock();
+        try {
+            int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+            Matches matches = new Matches(limit);
+            int[] candidates = intersect(candidates(nameIndex, nameFilter), candidates(categoryIndex, categoryFilter));
+            if (candidates == null) {
+                for (int document = 0; document < documentCount; document++) {
+                    addIfMatches(document, categoryFilter, nameFilter, matches);
+                }
+            } else {
+                for (int document : candidates) {
+                    addIfMatches(document, categoryFilter, nameFilter, matches);
+                }
+            }
+            total = matches.total;
+            int[] top = matches.sorted();
+            int from = (int) Math.min(pageable.getOffset(), top.length);
+            page = Arrays.stream(top, from, top.length).mapToObj(document -> documents[document]).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Optional.of(new PageImpl<>(page, pageable, total));
+    }
+
+    private void addIfMatches(int document, String categoryFilter, String nameFilter, Matches matches) {
+        if (!removed.get(document) && contains(names[document], nameFilter)
+                && contains(categoryNames[document], categoryFilter)) {
+            matches.add(document);
+        }
+    }
+
+    /**
+     * Compares two documents like {@code ORDER BY name COLLATE "C", id}, with products without a name last.
+     *
+     * @param first the first document
+     * @param second the second document
+     * @return the comparison result
+     */
+    private int compareByName(int first, int second) {
+        ProductView firstProduct = documents[first];
+        ProductView secondProduct = documents[second];
+        if (firstProduct.name() == null || secondProduct.name() == null) {
+            if (firstProduct.name() != secondProduct.name()) {
+                return firstProduct.name() == null ? 1 : -1;
+            }
+        } else {
+            int result = compareCodePoints(firstProduct.name(), secondProduct.name());
+            if (result != 0) {
+                return result;
+            }
+        }
+        return ID_ORDER.compare(firstProduct.id(), secondProduct.id());
+    }
+
+    /**
+     * Compares two strings by Unicode code point, the order of their UTF-8 bytes. Unlike
+     * {@link String#compareTo}, which compares UTF-16 chars, this orders supplementary characters
+     * after every character of the Basic Multilingual Plane.
+     *
+     * @param first the first string
+     * @param second the second string
+     * @return the comparison result
+     */
+    static int compareCodePoints(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int firstCodePoint = first.codePointAt(i);
+            int secondCodePoint = second.codePointAt(j);
+            if (firstCodePoint != secondCodePoint) {
+                return Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            i += Character.charCount(firstCodePoint);
+            j += Character.charCount(secondCodePoint);
+        }
+        return Boolean.compare(i < first.length(), j < second.length());
+    }
+
+    private static boolean contains(String value, String filter) {
+        return filter == null || (value != null && value.contains(filter));
+    }
+
+    private static boolean isPattern(String filter) {
+        return filter != null && (filter.indexOf('%') >= 0 || filter.indexOf('_') >= 0 || filter.indexOf('\\') >= 0);
+    }
+
+    /**
+     * Returns the documents containing every trigram of a filter, most selective postings first.
+     *
+     * @param index the trigram index of the filtered field
+     * @param filter the lower-cased filter
+     * @return the ascending candidate documents, or null if the filter does not restrict the candidates
+     */
+    private static int[] candidates(Map<Long, Postings> index, String filter) {
+        if (filter == null || filter.length() < GRAM) {
+            return null;
+        }
+        List<Postings> postings = new ArrayList<>();
+        for (long trigram : trigrams(filter)) {
+            Postings list = index.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            postings.add(list);
+        }
+        postings.sort(Comparator.comparingInt(Postings::size));
+        int[] candidates = postings.get(0).toArray();
+        for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, postings.get(i).toArray());
+        }
+        return candidates;
+    }
+
+    /**
+     * Intersects two ascending document arrays, either of which may be unrestricted.
+     *
+     * @param first the first documents, or null for all
+     * @param second the second documents, or null for all
+     * @return the ascending common documents, or null if both are unrestricted
+     */
+    private static int[] intersect(int[] first, int[] second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    /**
+     * Returns the distinct trigrams of a value, each packed into the low 48 bits of a long.
+     *
+     * @param value the lower-cased value
+     * @return the trigrams in order of first occurrence
+     */
+    static Set<Long> trigrams(String value) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            trigrams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private void addDocument(ProductView product) {
+        if (documentCount == documents.length) {
+            int capacity = documents.length * 2;
+            documents = Arrays.copyOf(documents, capacity);
+            names = Arrays.copyOf(names, capacity);
+            categoryNames = Arrays.copyOf(categoryNames, capacity);
+        }
+        int document = documentCount++;
+        documents[document] = product;
+        names[document] = index(nameIndex, product.name(), document);
+        categoryNames[document] = index(categoryIndex, product.categoryName(), document);
+        documentsById.put(product.id(), document);
+    }
+
+    private static String index(Map<Long, Postings> index, String value, int document) {
+        if (value == null) {
+            return null;
+        }
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        for (long trigram : trigrams(lowerCase)) {
+            index.computeIfAbsent(trigram, key -> new Postings()).add(document);
+        }
+        return lowerCase;
+    }
+
+    private void removeDocument(UUID id) {
+        Integer document = documentsById.remove(id);
+        if (document != null) {
+            removed.set(document);
+            documents[document] = null;
+            names[document] = null;
+            categoryNames[document] = null;
+            removedCount++;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the live documents once removed documents outnumber them,
+     * dropping the postings of removed documents and renumbering the live ones densely.
+     */
+    private void compactIfSparse() {
+        if (removedCount < MIN_REMOVED_TO_COMPACT || removedCount <= documentsById.size()) {
+            return;
+        }
+        List<ProductView> live = new ArrayList<>(documentsById.size());
+        for (int document = 0; document < documentCount; document++) {
+            if (!removed.get(document)) {
+                live.add(documents[document]);
+            }
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, live.size() * 2);
+        documents = new ProductView[capacity];
+        names = new String[capacity];
+        categoryNames = new String[capacity];
+        documentCount = 0;
+        removedCount = 0;
+        removed.clear();
+        documentsById.clear();
+        nameIndex.clear();
+        categoryIndex.clear();
+        live.forEach(this::addDocument);
+    }
+
+    /**
+     * Counts the matching documents of a search and keeps the first {@code limit} of them in name order
+     * in a bounded heap, so a page costs a pass over the matches instead of sorting all of them.
+     */
+    private final class Matches {
+
+        private final int limit;
+        private final PriorityQueue<Integer> top;
+        private int total;
+
+        Matches(int limit) {
+            this.limit = limit;
+            this.top = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY),
+                    (first, second) -> compareByName(second, first));
+        }
+
+        /**
+         * Counts a matching document and keeps it if it is among the first {@code limit} so far.
+         *
+         * @param document the matching document
+         */
+        void add(int document) {
+            total++;
+            if (top.size() < limit) {
+                top.add(document);
+            } else if (compareByName(document, top.peek()) < 0) {
+                top.poll();
+                top.add(document);
+            }
+        }
+
+        /**
+         * Returns the kept documents in name order.
+         *
+         * @return the first {@code limit} matching documents
+         */
+        int[] sorted() {
+            int[] documents = new int[top.size()];
+            for (int i = documents.length - 1; i >= 0; i--) {
+                documents[i] = top.poll();
+            }
+            return documents;
+        }
+    }
+
+    /**
+     * Ascending document numbers stored as varint-encoded gaps.
+     */
+    static final class Postings {
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int size;
+        private int last;
+
+        /**
+         * Appends a document, which must not be lower than the last one added; repeats are ignored.
+         *
+         * @param document the document number
+         */
+        void add(int document) {
+            if (size > 0 && document == last) {
+                return;
+            }
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            int gap = document - last;
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            last = document;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int encodedLength() {
+            return length;
+        }
+
+        /**
+         * Decodes the documents.
+         *
+         * @return the ascending document numbers
+         */
+        int[] toArray() {
+            int[] documents = new int[size];
+            int document = 0;
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                document += gap;
+                documents[i] = document;
+            }
+            return documents;
+        }
+    }
+}
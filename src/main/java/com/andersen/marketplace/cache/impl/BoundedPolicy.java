@@ -0,0 +1,276 @@
+package com.andersen.marketplace.cache.impl;
+
+import com.andersen.marketplace.cache.EvictionPolicy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bookkeeping for a size- and weight-bounded cache.
+ * <p>
+ * Entries are tracked in three LRU queues: a window that takes every new entry, and
+ * a main space split into probation and protected segments. With
+ * {@link EvictionPolicy#W_TINY_LFU} an entry leaving the window is only admitted to the
+ * main space if its estimated frequency is higher than the probation victim's; with
+ * {@link EvictionPolicy#SEGMENTED_LRU} the window is disabled and the least recently
+ * used probation entry is always evicted.
+ * <p>
+ * The policy is not thread-safe and has to be guarded by the owning cache.
+ *
+ * @param <K> the type of keys maintained by the cache
+ */
+final class BoundedPolicy<K> {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private final AccessOrderQueue<K> window = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K> probation = new AccessOrderQueue<>();
+    private final AccessOrderQueue<K> protectedQueue = new AccessOrderQueue<>();
+    private final FrequencySketch<K> sketch;
+    private final boolean admission;
+    private final boolean weighted;
+    private final long maximumSize;
+    private final long capacity;
+    private final long windowCapacity;
+    private final long protectedCapacity;
+    private long weight;
+    private int candidates;
+
+    /**
+     * Constructs a new BoundedPolicy.
+     *
+     * @param policy the eviction policy
+     * @param maximumSize the maximum number of entries, or null if unbounded
+     * @param maximumWeight the maximum total weight of entries, or null if unbounded
+     */
+    BoundedPolicy(EvictionPolicy policy, Long maximumSize, Long maximumWeight) {
+        this.admission = policy == EvictionPolicy.W_TINY_LFU;
+        this.weighted = maximumWeight != null;
+        this.maximumSize = maximumSize != null ? maximumSize : Long.MAX_VALUE;
+        this.capacity = weighted ? maximumWeight : this.maximumSize;
+        this.windowCapacity = admission ? Math.max(1, (long) (capacity * WINDOW_RATIO)) : 0;
+        this.protectedCapacity = (long) ((capacity - windowCapacity) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch<>(maximumSize != null ? maximumSize : Math.min(capacity, 1 << 20));
+    }
+
+    /**
+     * Records that a key was requested but not found.
+     *
+     * @param key the key
+     */
+    void recordMiss(K key) {
+        sketch.increment(key);
+    }
+
+    /**
+     * Records a cache hit and moves the entry towards the protected segment.
+     *
+     * @param key the key
+     */
+    void recordAccess(K key) {
+        sketch.increment(key);
+        Node<K> node = nodes.get(key);
+        if (node != null) {
+            onAccess(node);
+        }
+    }
+
+    /**
+     * Records a write and returns the keys that have to be evicted to stay within bounds.
+     *
+     * @param key the key
+     * @param entryWeight the weight of the written value
+     * @return the keys to evict, possibly including the written key itself
+     */
+    List<K> recordWrite(K key, int entryWeight) {
+        long cost = weighted ? entryWeight : 1;
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            sketch.increment(key);
+            node = new Node<>(key, cost);
+            nodes.put(key, node);
+            weight += cost;
+            node.queue = admission ? window : probation;
+            node.queue.addLast(node);
+        } else {
+            weight += cost - node.cost;
+            node.queue.updateCost(node, cost);
+            recordAccess(key);
+        }
+        return evict();
+    }
+
+    /**
+     * Stops tracking a removed key.
+     *
+     * @param key the key
+     */
+    void remove(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Stops tracking all keys.
+     */
+    void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        weight = 0;
+        candidates = 0;
+    }
+
+    /**
+     * Returns the total weight of the tracked entries.
+     *
+     * @return the weighted size
+     */
+    long weightedSize() {
+        return weight;
+    }
+
+    private void onAccess(Node<K> node) {
+        if (node.queue == probation) {
+            probation.remove(node);
+            node.queue = protectedQueue;
+            protectedQueue.addLast(node);
+            while (protectedQueue.cost > protectedCapacity && protectedQueue.head != null) {
+                Node<K> demoted = protectedQueue.head;
+                protectedQueue.remove(demoted);
+                demoted.queue = probation;
+                probation.addLast(demoted);
+            }
+        } else {
+            node.queue.moveToLast(node);
+        }
+    }
+
+    private List<K> evict() {
+        while (window.cost > windowCapacity && window.head != null) {
+            Node<K> candidate = window.head;
+            window.remove(candidate);
+            candidate.queue = probation;
+            probation.addLast(candidate);
+            candidates++;
+        }
+
+        List<K> evicted = new ArrayList<>();
+        while (weight > capacity || nodes.size() > maximumSize) {
+            Node<K> victim = selectVictim();
+            if (victim == null) {
+                break;
+            }
+            nodes.remove(victim.key);
+            unlink(victim);
+            evicted.add(victim.key);
+        }
+        candidates = 0;
+        return evicted;
+    }
+
+    private Node<K> selectVictim() {
+        Node<K> victim = probation.head;
+        if (victim == null) {
+            return protectedQueue.head != null ? protectedQueue.head : window.head;
+        }
+        if (!admission || candidates == 0) {
+            return victim;
+        }
+        Node<K> candidate = probation.tail;
+        if (candidate == victim || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            return victim;
+        }
+        candidates--;
+        return candidate;
+    }
+
+    private void unlink(Node<K> node) {
+        weight -= node.cost;
+        node.queue.remove(node);
+    }
+
+    /**
+     * Entry of an access order queue.
+     *
+     * @param <K> the type of the key
+     */
+    private static final class Node<K> {
+
+        private final K key;
+        private long cost;
+        private AccessOrderQueue<K> queue;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long cost) {
+            this.key = key;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Doubly linked list ordered from the least to the most recently used entry.
+     *
+     * @param <K> the type of the key
+     */
+    private static final class AccessOrderQueue<K> {
+
+        private Node<K> head;
+        private Node<K> tail;
+        private long cost;
+
+        private void addLast(Node<K> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            cost += node.cost;
+        }
+
+        private void remove(Node<K> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            cost -= node.cost;
+        }
+
+        private void moveToLast(Node<K> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private void updateCost(Node<K> node, long newCost) {
+            cost += newCost - node.cost;
+            node.cost = newCost;
+        }
+
+        private void clear() {
+            head = null;
+            tail = null;
+            cost = 0;
+        }
+    }
+}
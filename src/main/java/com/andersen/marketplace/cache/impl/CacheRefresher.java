@@ -0,0 +1,45 @@
+package com.andersen.marketplace.cache.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared bounded pool that reloads cache entries ahead of their expiration.
+ * When the pool is saturated further refreshes are rejected, and the affected
+ * entries are reloaded by the first read after their maximum staleness.
+ */
+final class CacheRefresher {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "cache-refresh-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private CacheRefresher() {
+    }
+
+    /**
+     * Returns the executor running background refreshes.
+     *
+     * @return the refresh executor
+     */
+    static Executor executor() {
+        return EXECUTOR;
+    }
+}
@@ -0,0 +1,101 @@
+package com.andersen.marketplace.cache.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Statistics of a cache, recorded with striped {@link LongAdder} counters so that
+ * request threads updating them concurrently do not contend on a single variable.
+ */
+public class CacheStatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile LongConsumer loadTimeListener = nanos -> {
+    };
+
+    /**
+     * Records a cache hit.
+     */
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    /**
+     * Records a cache miss.
+     */
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    /**
+     * Records a successful load.
+     *
+     * @param loadTime the time spent loading in nanoseconds
+     */
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccessCount.increment();
+        recordLoadTime(loadTime);
+    }
+
+    /**
+     * Records a failed load.
+     *
+     * @param loadTime the time spent loading in nanoseconds
+     */
+    public void recordLoadFailure(long loadTime) {
+        loadFailureCount.increment();
+        recordLoadTime(loadTime);
+    }
+
+    /**
+     * Records entries removed because of the size bounds or expiration.
+     *
+     * @param count the number of removed entries
+     */
+    public void recordEvictions(int count) {
+        evictionCount.add(count);
+    }
+
+    /**
+     * Registers a listener receiving every load time, e.g. to feed a latency histogram.
+     *
+     * @param loadTimeListener the listener receiving load times in nanoseconds
+     */
+    public void setLoadTimeListener(LongConsumer loadTimeListener) {
+        this.loadTimeListener = loadTimeListener;
+    }
+
+    private void recordLoadTime(long loadTime) {
+        totalLoadTime.add(loadTime);
+        loadTimeListener.accept(loadTime);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount.sum();
+    }
+
+    public long getTotalLoadTime() {
+        return totalLoadTime.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+}
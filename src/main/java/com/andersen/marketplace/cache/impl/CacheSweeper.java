@@ -0,0 +1,33 @@
+package com.andersen.marketplace.cache.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared background scheduler that periodically removes expired entries from caches,
+ * so that expiration never has to be paid for on the request path.
+ */
+final class CacheSweeper {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CacheSweeper() {
+    }
+
+    /**
+     * Schedules a periodic sweep.
+     *
+     * @param sweep the sweep to run
+     * @param intervalNanos the delay between two sweeps in nanoseconds
+     * @return the handle used to cancel the sweep
+     */
+    static ScheduledFuture<?> schedule(Runnable sweep, long intervalNanos) {
+        return SCHEDULER.scheduleWithFixedDelay(sweep, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+}
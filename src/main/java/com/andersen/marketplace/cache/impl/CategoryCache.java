@@ -1,16 +1,10 @@
 package com.andersen.marketplace.cache.impl;
 
-import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 /**
  * Cache implementation for managing categories.
  *
@@ -18,11 +12,7 @@ import java.util.stream.Collectors;
  * @param <V> the type of mapped values
  */
 @Component
-public class CategoryCache<K, V> implements GenericCache<K, V> {
-
-    public static final Long DEFAULT_CACHE_TIMEOUT = 90000L;
-    protected Map<K, CacheValue<V>> productCache;
-    protected Long cacheTimeout;
+public class CategoryCache<K, V> extends ConcurrentCache<K, V> {
 
     /**
      * Constructs a new CategoryCache with the default cache timeout.
@@ -37,112 +27,32 @@ public class CategoryCache<K, V> implements GenericCache<K, V> {
      * @param cacheTimeout the cache timeout in milliseconds
      */
     public CategoryCache(Long cacheTimeout) {
-        this.cacheTimeout = cacheTimeout;
-        this.clear();
-    }
-
-    /**
-     * Cleans the cache by removing expired entries.
-     */
-    @Override
-    public void clean() {
-        for (K key : this.getExpiredKeys()) {
-            this.remove(key);
-        }
-    }
-
-    /**
-     * Retrieves the set of expired keys.
-     *
-     * @return a set of expired keys
-     */
-    protected Set<K> getExpiredKeys() {
-        return this.productCache.keySet().parallelStream()
-                .filter(this::isExpired)
-                .collect(Collectors.toSet());
+        super(cacheTimeout);
     }
 
     /**
-     * Checks if a key is expired.
+     * Constructs a new CategoryCache configured by the {@code cache.categories} properties.
      *
-     * @param key the key to check
-     * @return true if the key is expired, false otherwise
+     * @param cacheProperties the cache properties
      */
-    protected boolean isExpired(K key) {
-        LocalDateTime expirationDateTime = this.productCache.get(key).getCreatedAt().plus(this.cacheTimeout, ChronoUnit.MILLIS);
-        return LocalDateTime.now().isAfter(expirationDateTime);
+    @Autowired
+    public CategoryCache(CacheProperties cacheProperties) {
+        super(cacheProperties.getCategories());
     }
 
     /**
-     * Clears all entries from the cache.
-     */
-    @Override
-    public void clear() {
-        this.productCache = new HashMap<>();
-    }
-
-    /**
-     * Retrieves a value from the cache by its key.
+     * Weighs a category by the number of products it holds, so that large categories
+     * take a proportional share of the maximum weight.
      *
-     * @param key the key whose associated value is to be returned
-     * @return an Optional containing the value, if present
+     * @param key the key
+     * @param value the value
+     * @return the weight of the entry
      */
     @Override
-    public Optional<V> get(K key) {
-        this.clean();
-        return Optional.ofNullable(this.productCache.get(key)).map(CacheValue::getValue);
-    }
-
-    /**
-     * Puts a key-value pair into the cache.
-     *
-     * @param key the key with which the specified value is to be associated
-     * @param value the value to be associated with the specified key
-     */
-    @Override
-    public void put(K key, V value) {
-        this.productCache.put(key, this.createCacheValue(value));
-    }
-
-    /**
-     * Creates a cache value with the current timestamp.
-     *
-     * @param value the value to be cached
-     * @return the cache value
-     */
-    protected CacheValue<V> createCacheValue(V value) {
-        LocalDateTime now = LocalDateTime.now();
-        return new CacheValue<V>() {
-            @Override
-            public V getValue() {
-                return value;
-            }
-
-            @Override
-            public LocalDateTime getCreatedAt() {
-                return now;
-            }
-        };
-    }
-
-    /**
-     * Removes a key-value pair from the cache by its key.
-     *
-     * @param key the key whose associated value is to be removed
-     */
-    @Override
-    public void remove(K key) {
-        this.productCache.remove(key);
-    }
-
-    /**
-     * Interface for cache values.
-     *
-     * @param <V> the type of the value
-     */
-    protected interface CacheValue<V> {
-        V getValue();
-
-        LocalDateTime getCreatedAt();
+    protected int weigh(K key, V value) {
+        if (value instanceof CategoryView category) {
+            return 1 + category.products().size();
+        }
+        return 1;
     }
 }
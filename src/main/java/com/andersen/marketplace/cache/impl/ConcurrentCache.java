@@ -0,0 +1,627 @@
+package com.andersen.marketplace.cache.impl;
+
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache implementation backed by a {@link ConcurrentHashMap}.
+ * Reads are lock-free and writes only lock the hash bin they touch, so the cache
+ * can be shared by all request threads without external synchronization.
+ * <p>
+ * Expiration is measured with the monotonic {@link System#nanoTime()} clock. A lookup
+ * only checks the deadline of the entry it returns, while expired entries are
+ * removed in the background by a periodic sweep.
+ * <p>
+ * When a maximum size or weight is configured, a {@link BoundedPolicy} decides which
+ * entries to evict. Writes to a bounded cache are serialized by a lock, while reads
+ * stay lock-free and only update the access order when the lock is free, so a busy
+ * cache drops some access records instead of making readers wait.
+ * <p>
+ * Misses resolved through {@link #get(Object, Function)} are coalesced: the first caller
+ * runs the loader while the others wait for its result. If refresh-ahead is enabled,
+ * an entry read after the configured fraction of its timeout is reloaded in the
+ * background while readers keep getting the current value, until the maximum
+ * staleness is reached and reads block on the load again. Reads without a loader
+ * never get values older than the timeout, refresh-ahead or not.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentCache<K, V> implements GenericCache<K, V>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentCache.class);
+
+    public static final Long DEFAULT_CACHE_TIMEOUT = CacheProperties.Spec.DEFAULT_TIMEOUT;
+    private static final long MAX_SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    protected final ConcurrentMap<K, CacheValue<V>> cache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+    protected final Long cacheTimeout;
+    private final long refreshAfterNanos;
+    private final long staleAfterNanos;
+    private final long expireAfterNanos;
+    private final Executor refreshExecutor;
+    private final BoundedPolicy<K> policy;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final CacheStatsCounter stats = new CacheStatsCounter();
+    private final ScheduledFuture<?> sweep;
+
+    /**
+     * Constructs a new ConcurrentCache with the default cache timeout.
+     */
+    public ConcurrentCache() {
+        this(DEFAULT_CACHE_TIMEOUT);
+    }
+
+    /**
+     * Constructs a new ConcurrentCache with a specified cache timeout.
+     *
+     * @param cacheTimeout the cache timeout in milliseconds
+     */
+    public ConcurrentCache(Long cacheTimeout) {
+        this(new CacheProperties.Spec(cacheTimeout));
+    }
+
+    /**
+     * Constructs a new ConcurrentCache from the given cache settings.
+     *
+     * @param spec the cache timeout, bounds and eviction policy
+     */
+    public ConcurrentCache(CacheProperties.Spec spec) {
+        this(spec, CacheRefresher.executor());
+    }
+
+    /**
+     * Constructs a new ConcurrentCache from the given cache settings.
+     *
+     * @param spec the cache timeout, bounds, eviction and refresh settings
+     * @param refreshExecutor the executor running refresh-ahead reloads
+     * @throws IllegalArgumentException if the refresh-ahead fraction is not between 0 and 1, exclusive
+     */
+    protected ConcurrentCache(CacheProperties.Spec spec, Executor refreshExecutor) {
+        this.cacheTimeout = spec.getTimeout();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(cacheTimeout);
+        this.staleAfterNanos = timeout;
+        Double refreshAheadFraction = spec.getRefreshAheadFraction();
+        if (refreshAheadFraction != null && !(refreshAheadFraction > 0 && refreshAheadFraction < 1)) {
+            throw new IllegalArgumentException(String.format(
+                    "Refresh-ahead fraction must be between 0 and 1, exclusive, but was %s", refreshAheadFraction));
+        }
+        if (refreshAheadFraction == null) {
+            this.refreshAfterNanos = Long.MAX_VALUE;
+            this.expireAfterNanos = timeout;
+        } else {
+            long maxStaleness = spec.getMaxStaleness() != null ? spec.getMaxStaleness() : cacheTimeout;
+            this.refreshAfterNanos = (long) (timeout * refreshAheadFraction);
+            this.expireAfterNanos = Math.max(timeout, TimeUnit.MILLISECONDS.toNanos(maxStaleness));
+        }
+        this.refreshExecutor = refreshExecutor;
+        this.policy = spec.isBounded()
+                ? new BoundedPolicy<>(spec.getPolicy(), spec.getMaximumSize(), spec.getMaximumWeight())
+                : null;
+        this.sweep = CacheSweeper.schedule(this::sweep, Math.max(1, Math.min(timeout, MAX_SWEEP_INTERVAL)));
+    }
+
+    /**
+     * Cleans the cache by removing expired entries.
+     * An entry is only removed if it has not been replaced since it was found to be expired.
+     */
+    @Override
+    public void clean() {
+        long now = this.now();
+        this.cache.forEach((key, value) -> {
+            if (value.isExpired(now) && this.remove(key, value)) {
+                this.stats.recordEvictions(1);
+            }
+        });
+    }
+
+    /**
+     * Runs a background clean, making sure a failure does not cancel the following sweeps.
+     */
+    private void sweep() {
+        try {
+            this.clean();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to clean expired cache entries", e);
+        }
+    }
+
+    /**
+     * Clears all entries from the cache.
+     */
+    @Override
+    public void clear() {
+        if (this.policy == null) {
+            this.cache.forEach((key, value) -> {
+                if (this.cache.remove(key, value)) {
+                    this.onRemoval(key, value.getValue());
+                }
+            });
+            return;
+        }
+        Map<K, CacheValue<V>> removed;
+        this.evictionLock.lock();
+        try {
+            removed = new HashMap<>(this.cache);
+            this.cache.clear();
+            this.policy.clear();
+        } finally {
+            this.evictionLock.unlock();
+        }
+        removed.forEach((key, value) -> this.onRemoval(key, value.getValue()));
+    }
+
+    /**
+     * Retrieves a value from the cache by its key.
+     * Entries older than the timeout are treated as absent, even if refresh-ahead keeps them
+     * for loading reads until the maximum staleness.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return an Optional containing the value, if present
+     */
+    @Override
+    public Optional<V> get(K key) {
+        return Optional.ofNullable(this.lookup(key, false)).map(CacheValue::getValue);
+    }
+
+    /**
+     * Retrieves a value from the cache by its key, loading and caching it if absent.
+     * Only one load per key is in flight at a time: concurrent callers wait for it and
+     * share its result, and a failed load is rethrown to all of them without being cached.
+     * With refresh-ahead enabled, an entry due for refresh is returned as is and
+     * reloaded in the background.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param loader the function computing the value on a cache miss
+     * @return the cached or loaded value, or null if the loader returned null
+     */
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CacheValue<V> cached = this.lookup(key, true);
+        if (cached != null) {
+            if (cached.isRefreshDue(this.now())) {
+                this.refresh(key, loader, cached.getValue());
+            }
+            return cached.getValue();
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = this.loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return this.await(inFlight);
+        }
+        CacheValue<V> current = this.cache.get(key);
+        if (current != null && !current.isExpired(this.now())) {
+            this.loads.remove(key, load);
+            load.complete(current.getValue());
+            return current.getValue();
+        }
+        return this.load(key, loader, load);
+    }
+
+    /**
+     * Returns the entry mapped to the key if it is not expired, and records the read.
+     * Reads without a loader cannot refresh the entry, so they also treat it as absent once it is stale.
+     *
+     * @param key the key whose entry is to be returned
+     * @param loading whether the read can load the value
+     * @return the entry, or null if absent or expired
+     */
+    private CacheValue<V> lookup(K key, boolean loading) {
+        CacheValue<V> value = this.cache.get(key);
+        if (value == null) {
+            this.recordRead(key, false);
+            return null;
+        }
+        long now = this.now();
+        if (value.isExpired(now)) {
+            if (this.remove(key, value)) {
+                this.stats.recordEvictions(1);
+            }
+            this.recordRead(key, false);
+            return null;
+        }
+        if (!loading && value.isStale(now)) {
+            this.recordRead(key, false);
+            return null;
+        }
+        this.recordRead(key, true);
+        return value;
+    }
+
+    /**
+     * Starts a background reload of the key unless a load is already in flight.
+     *
+     * @param key the key to reload
+     * @param loader the function computing the new value
+     * @param current the value currently cached, handed to waiters if the refresh is rejected
+     */
+    private void refresh(K key, Function<? super K, ? extends V> loader, V current) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        if (this.loads.putIfAbsent(key, load) != null) {
+            return;
+        }
+        try {
+            this.refreshExecutor.execute(() -> {
+                try {
+                    this.load(key, loader, load);
+                } catch (RuntimeException | Error e) {
+                    logger.warn("Failed to refresh cache entry {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.loads.remove(key, load);
+            load.complete(current);
+            logger.debug("Refresh of cache entry {} rejected, the executor is saturated", key);
+        }
+    }
+
+    /**
+     * Runs a registered load, caches its result and completes it for all waiters.
+     * The result is not cached if the key was written or removed while loading.
+     *
+     * @param key the key to load
+     * @param loader the function computing the value
+     * @param load the future registered for this load
+     * @return the loaded value
+     */
+    private V load(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> load) {
+        long start = System.nanoTime();
+        try {
+            V value = loader.apply(key);
+            this.stats.recordLoadSuccess(System.nanoTime() - start);
+            if (value != null && this.loads.get(key) == load) {
+                this.store(key, value);
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            this.stats.recordLoadFailure(System.nanoTime() - start);
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Waits for a load started by another caller and rethrows its failure unchanged.
+     *
+     * @param load the load in flight
+     * @return the loaded value
+     */
+    private V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records a read in the statistics, and in the eviction policy if the policy is not busy.
+     *
+     * @param key the key that was read
+     * @param hit whether the key was found
+     */
+    private void recordRead(K key, boolean hit) {
+        if (hit) {
+            this.stats.recordHit();
+        } else {
+            this.stats.recordMiss();
+        }
+        if (this.policy != null && this.evictionLock.tryLock()) {
+            try {
+                if (hit) {
+                    this.policy.recordAccess(key);
+                } else {
+                    this.policy.recordMiss(key);
+                }
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Puts a key-value pair into the cache.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    @Override
+    public void put(K key, V value) {
+        this.loads.remove(key);
+        this.store(key, value);
+    }
+
+    /**
+     * Stores a value and evicts entries if the cache is over its bounds.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     */
+    private void store(K key, V value) {
+        CacheValue<V> cacheValue = this.createCacheValue(value);
+        if (this.policy == null) {
+            this.notifyReplaced(key, this.cache.put(key, cacheValue), value);
+            return;
+        }
+        Map<K, CacheValue<V>> evicted = new HashMap<>();
+        CacheValue<V> replaced;
+        this.evictionLock.lock();
+        try {
+            replaced = this.cache.put(key, cacheValue);
+            for (K evictedKey : this.policy.recordWrite(key, this.weigh(key, value))) {
+                CacheValue<V> evictedValue = this.cache.remove(evictedKey);
+                if (evictedValue != null) {
+                    evicted.put(evictedKey, evictedValue);
+                }
+            }
+            this.stats.recordEvictions(evicted.size());
+        } finally {
+            this.evictionLock.unlock();
+        }
+        this.notifyReplaced(key, replaced, value);
+        evicted.forEach((evictedKey, evictedValue) -> this.onRemoval(evictedKey, evictedValue.getValue()));
+    }
+
+    /**
+     * Notifies the removal of a value replaced by a write, unless the same value was written again.
+     *
+     * @param key the key that was written
+     * @param replaced the entry that was replaced, or null if the key was absent
+     * @param value the value that was written
+     */
+    private void notifyReplaced(K key, CacheValue<V> replaced, V value) {
+        if (replaced != null && replaced.getValue() != value) {
+            this.onRemoval(key, replaced.getValue());
+        }
+    }
+
+    /**
+     * Called after an entry has left the cache because it was evicted, expired, replaced,
+     * removed or cleared. The call happens outside the eviction lock, so it may release
+     * resources held by the value without blocking other writers.
+     *
+     * @param key the key of the removed entry
+     * @param value the removed value
+     */
+    protected void onRemoval(K key, V value) {
+    }
+
+    /**
+     * Returns the weight of an entry, used when the cache is bounded by a maximum weight.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the weight of the entry, 1 by default
+     */
+    protected int weigh(K key, V value) {
+        return 1;
+    }
+
+    /**
+     * Creates a cache value that expires once the cache timeout, or the maximum
+     * staleness when refresh-ahead is enabled, has elapsed.
+     *
+     * @param value the value to be cached
+     * @return the cache value
+     */
+    protected CacheValue<V> createCacheValue(V value) {
+        long now = this.now();
+        long refreshAt = this.refreshAfterNanos == Long.MAX_VALUE ? Long.MAX_VALUE : now + this.refreshAfterNanos;
+        return new CacheValue<>(value, now, refreshAt, now + this.staleAfterNanos, now + this.expireAfterNanos);
+    }
+
+    /**
+     * Removes a key-value pair from the cache by its key.
+     *
+     * @param key the key whose associated value is to be removed
+     */
+    @Override
+    public void remove(K key) {
+        this.loads.remove(key);
+        CacheValue<V> removed;
+        if (this.policy == null) {
+            removed = this.cache.remove(key);
+        } else {
+            this.evictionLock.lock();
+            try {
+                removed = this.cache.remove(key);
+                this.policy.remove(key);
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+        if (removed != null) {
+            this.onRemoval(key, removed.getValue());
+        }
+    }
+
+    /**
+     * Removes an entry only if it is still mapped to the given value.
+     *
+     * @param key the key whose associated value is to be removed
+     * @param value the value expected to be associated with the key
+     * @return true if the entry was removed, false otherwise
+     */
+    private boolean remove(K key, CacheValue<V> value) {
+        boolean removed;
+        if (this.policy == null) {
+            removed = this.cache.remove(key, value);
+        } else {
+            this.evictionLock.lock();
+            try {
+                removed = this.cache.remove(key, value);
+                if (removed) {
+                    this.policy.remove(key);
+                }
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+        if (removed) {
+            this.onRemoval(key, value.getValue());
+        }
+        return removed;
+    }
+
+    /**
+     * Performs the given action for each entry of the cache that is not older than the timeout.
+     * The iteration is weakly consistent and does not count as access to the entries.
+     *
+     * @param action the action to be performed for each entry
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        long now = this.now();
+        this.cache.forEach((key, value) -> {
+            if (!value.isStale(now)) {
+                action.accept(key, value.getValue());
+            }
+        });
+    }
+
+    /**
+     * Returns the number of entries currently held by the cache, including
+     * expired entries that have not been swept yet.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Returns the total weight of the entries, or their number if the cache is not bounded by weight.
+     *
+     * @return the weighted size
+     */
+    public long weightedSize() {
+        if (this.policy == null) {
+            return this.cache.size();
+        }
+        this.evictionLock.lock();
+        try {
+            return this.policy.weightedSize();
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the statistics recorded by this cache.
+     *
+     * @return the statistics counter
+     */
+    public CacheStatsCounter stats() {
+        return this.stats;
+    }
+
+    /**
+     * Stops the background sweep of this cache.
+     */
+    @Override
+    public void close() {
+        this.sweep.cancel(false);
+    }
+
+    /**
+     * Returns the current time of the monotonic clock used for expiration.
+     *
+     * @return the current time in nanoseconds
+     */
+    protected long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Cached value together with its creation time, refresh time, timeout and expiration deadline.
+     *
+     * @param <V> the type of the value
+     */
+    protected static class CacheValue<V> {
+
+        private final V value;
+        private final long createdAt;
+        private final long refreshAt;
+        private final long staleAt;
+        private final long expiresAt;
+
+        protected CacheValue(V value, long createdAt, long refreshAt, long staleAt, long expiresAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+            this.refreshAt = refreshAt;
+            this.staleAt = staleAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * Checks if the value is expired at the given time.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if the value is expired, false otherwise
+         */
+        public boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+
+        /**
+         * Checks if the value is older than the cache timeout at the given time.
+         * Only loading reads may still serve a stale value, while it is reloaded.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if the value is stale, false otherwise
+         */
+        public boolean isStale(long now) {
+            return now - staleAt > 0;
+        }
+
+        /**
+         * Checks if the value should be reloaded in the background at the given time.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if a refresh is due, false otherwise
+         */
+        public boolean isRefreshDue(long now) {
+            return refreshAt != Long.MAX_VALUE && now - refreshAt >= 0;
+        }
+    }
+}
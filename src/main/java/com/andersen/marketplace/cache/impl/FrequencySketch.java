@@ -0,0 +1,101 @@
+package com.andersen.marketplace.cache.impl;
+
+/**
+ * Count-min sketch with 4-bit counters that estimates how often a key was accessed.
+ * All counters are halved once the number of recorded accesses reaches the sample
+ * size, so that the estimate favours recent popularity over historic one.
+ * <p>
+ * The sketch is not thread-safe and has to be guarded by the caller.
+ *
+ * @param <K> the type of keys whose frequency is estimated
+ */
+final class FrequencySketch<K> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 24;
+    private static final int MAXIMUM_FREQUENCY = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Constructs a sketch sized for the given number of tracked entries.
+     *
+     * @param maximumEntries the expected maximum number of entries in the cache
+     */
+    FrequencySketch(long maximumEntries) {
+        int tableSize = ceilingPowerOfTwo((int) Math.min(Math.max(maximumEntries, 16), MAXIMUM_TABLE_SIZE));
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * tableSize;
+    }
+
+    /**
+     * Returns the estimated number of accesses of the key, capped at 15.
+     *
+     * @param key the key
+     * @return the estimated frequency
+     */
+    int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAXIMUM_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access of the key.
+     *
+     * @param key the key
+     */
+    void increment(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            if (((table[index] >>> offset) & 0xfL) != MAXIMUM_FREQUENCY) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves every counter so that old accesses age out.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long value = (hash + SEEDS[depth]) * SEEDS[depth];
+        value += value >>> 32;
+        return (int) value & tableMask;
+    }
+
+    private static int spread(int hash) {
+        int value = hash * 0x9e3779b9;
+        return value ^ (value >>> 16);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return 1 << -Integer.numberOfLeadingZeros(value - 1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.andersen.marketplace.cache.impl;
+
+import com.andersen.marketplace.cache.model.CachedImage;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Cache implementation for managing pictures copied to local disk.
+ * Entries are weighed by the size of their file, so the maximum weight bounds the disk
+ * space used by the cache, and the file of an entry is deleted once it leaves the cache.
+ * Readers that already opened or mapped the file keep reading it after the deletion.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+@Component
+public class ImageCache<K, V> extends ConcurrentCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageCache.class);
+
+    /**
+     * Constructs a new ImageCache configured by the {@code cache.images} properties.
+     *
+     * @param cacheProperties the cache properties
+     */
+    @Autowired
+    public ImageCache(CacheProperties cacheProperties) {
+        super(cacheProperties.getImages());
+    }
+
+    /**
+     * Constructs a new ImageCache from the given cache settings.
+     *
+     * @param spec the cache timeout, bounds and eviction policy
+     */
+    public ImageCache(CacheProperties.Spec spec) {
+        super(spec);
+    }
+
+    /**
+     * Weighs a picture by the size of its file in bytes.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the weight of the entry
+     */
+    @Override
+    protected int weigh(K key, V value) {
+        if (value instanceof CachedImage image) {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, image.getLength()));
+        }
+        return 1;
+    }
+
+    /**
+     * Deletes the file of a picture that left the cache.
+     *
+     * @param key the key of the removed entry
+     * @param value the removed value
+     */
+    @Override
+    protected void onRemoval(K key, V value) {
+        if (value instanceof CachedImage image) {
+            try {
+                Files.deleteIfExists(image.getPath());
+            } catch (IOException e) {
+                logger.warn("Failed to delete cached image {}", image.getPath(), e);
+            }
+        }
+    }
+}
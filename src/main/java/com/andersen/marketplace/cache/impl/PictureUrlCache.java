@@ -0,0 +1,59 @@
+package com.andersen.marketplace.cache.impl;
+
+import com.andersen.marketplace.properties.CacheProperties;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache implementation for managing presigned picture URLs by picture key.
+ * Entries live at most one URL rotation window, which the signer adds to the validity of every URL,
+ * so a URL served from the cache stays usable for at least the configured presigned URL expiration.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+@Component
+public class PictureUrlCache<K, V> extends ConcurrentCache<K, V> {
+
+    /**
+     * Constructs a new PictureUrlCache with a specified cache timeout.
+     *
+     * @param cacheTimeout the cache timeout in milliseconds
+     */
+    public PictureUrlCache(Long cacheTimeout) {
+        super(cacheTimeout);
+    }
+
+    /**
+     * Constructs a new PictureUrlCache configured by the {@code cache.picture-urls} properties,
+     * with the entry lifetime capped by the presigned URL rotation window.
+     *
+     * @param cacheProperties the cache properties
+     * @param s3BucketProperties the S3 bucket properties holding the URL rotation window
+     */
+    @Autowired
+    public PictureUrlCache(CacheProperties cacheProperties, S3BucketProperties s3BucketProperties) {
+        super(boundedByUrlRotation(cacheProperties.getPictureUrls(), s3BucketProperties.getPresignedUrlRotation()));
+    }
+
+    /**
+     * Copies the cache settings, capping the timeout and the maximum staleness at the URL rotation window.
+     *
+     * @param spec the configured cache settings
+     * @param urlRotation the presigned URL rotation window in milliseconds
+     * @return the settings to use
+     */
+    static CacheProperties.Spec boundedByUrlRotation(CacheProperties.Spec spec, long urlRotation) {
+        long maxLifetime = Math.max(1000, urlRotation);
+        CacheProperties.Spec bounded = new CacheProperties.Spec(Math.min(spec.getTimeout(), maxLifetime));
+        bounded.setMaximumSize(spec.getMaximumSize());
+        bounded.setMaximumWeight(spec.getMaximumWeight());
+        bounded.setPolicy(spec.getPolicy());
+        bounded.setRefreshAheadFraction(spec.getRefreshAheadFraction());
+        if (spec.getMaxStaleness() != null) {
+            bounded.setMaxStaleness(Math.min(spec.getMaxStaleness(), maxLifetime));
+        }
+        return bounded;
+    }
+}
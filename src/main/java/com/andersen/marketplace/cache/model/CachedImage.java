@@ -0,0 +1,81 @@
+package com.andersen.marketplace.cache.model;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picture held by the image cache as a file on local disk.
+ * The file is written once and never modified, so it can be served and memory-mapped
+ * without locking. Once a picture has been read often enough, its mapping is kept with
+ * the entry and shared by all readers.
+ */
+public class CachedImage {
+
+    private final String key;
+    private final Path path;
+    private final long length;
+    private final String contentType;
+    private final String eTag;
+    private final AtomicInteger reads = new AtomicInteger();
+    private volatile ByteBuffer mapping;
+
+    /**
+     * Constructs a new CachedImage.
+     *
+     * @param key the key of the picture
+     * @param path the path of the cached file
+     * @param length the length of the picture in bytes
+     * @param contentType the content type of the picture
+     * @param eTag the quoted entity tag derived from the content of the picture
+     */
+    public CachedImage(String key, Path path, long length, String contentType, String eTag) {
+        this.key = key;
+        this.path = path;
+        this.length = length;
+        this.contentType = contentType;
+        this.eTag = eTag;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Records a read of the picture.
+     *
+     * @return the number of reads so far, including this one
+     */
+    public int recordRead() {
+        return reads.incrementAndGet();
+    }
+
+    /**
+     * Returns the read-only mapping of the file, if the picture has been mapped.
+     *
+     * @return the mapping, or null if the picture is not mapped
+     */
+    public ByteBuffer getMapping() {
+        return mapping;
+    }
+
+    public void setMapping(ByteBuffer mapping) {
+        this.mapping = mapping;
+    }
+}
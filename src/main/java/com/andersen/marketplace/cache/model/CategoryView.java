@@ -0,0 +1,24 @@
+package com.andersen.marketplace.cache.model;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable read model of a category held by the category cache.
+ * Its products are the same {@link ProductView} instances held by the product cache
+ * whenever both are built together.
+ *
+ * @param id the category ID
+ * @param name the interned category name
+ * @param logo the category logo key
+ * @param products the products of the category
+ */
+public record CategoryView(UUID id, String name, String logo, List<ProductView> products) {
+
+    /**
+     * Constructs a CategoryView with an unmodifiable copy of the products.
+     */
+    public CategoryView {
+        products = products == null ? List.of() : List.copyOf(products);
+    }
+}
@@ -0,0 +1,17 @@
+package com.andersen.marketplace.cache.model;
+
+import java.util.UUID;
+
+/**
+ * Immutable read model of a product held by the product cache.
+ * It references its category by id and interned name instead of keeping
+ * the whole category entity alive.
+ *
+ * @param id the product ID
+ * @param name the product name
+ * @param logo the product logo key
+ * @param categoryId the ID of the product category
+ * @param categoryName the interned name of the product category
+ */
+public record ProductView(UUID id, String name, String logo, UUID categoryId, String categoryName) {
+}
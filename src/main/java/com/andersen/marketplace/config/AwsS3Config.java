@@ -15,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
  * Configuration class for setting up Amazon S3 client.
  */
 @Configuration
+@ConditionalOnS3Storage
 public class AwsS3Config {
 
     /**
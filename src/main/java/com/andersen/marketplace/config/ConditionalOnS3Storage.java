@@ -0,0 +1,20 @@
+package com.andersen.marketplace.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers a bean only when pictures are stored in Amazon S3, which is the default
+ * unless {@code pictures.storage} selects another backend.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(prefix = "pictures", name = "storage", havingValue = "s3", matchIfMissing = true)
+public @interface ConditionalOnS3Storage {
+}
@@ -0,0 +1,90 @@
+package com.andersen.marketplace.config;
+
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration class for setting up the executors of background and batch work.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private static final int PICTURE_URL_QUEUE_CAPACITY = 1024;
+    private static final int PICTURE_DERIVATIVE_QUEUE_CAPACITY = 256;
+
+    /**
+     * Creates the bounded pool resolving picture URLs of a batch concurrently.
+     * When the pool is saturated, the calling thread resolves the URL itself.
+     *
+     * @param s3BucketProperties the S3 bucket properties holding the pool size
+     * @return the picture URL executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pictureUrlExecutor(S3BucketProperties s3BucketProperties) {
+        int threads = Math.max(1, s3BucketProperties.getUrlResolutionThreads());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PICTURE_URL_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "picture-url-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates the pool uploading the parts of multipart picture uploads in parallel.
+     * When the pool is saturated, the uploading thread sends the part itself.
+     *
+     * @param s3BucketProperties the S3 bucket properties holding the pool size
+     * @return the picture upload executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pictureUploadExecutor(S3BucketProperties s3BucketProperties) {
+        int threads = Math.max(1, s3BucketProperties.getUploadThreads());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "picture-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates the bounded pool generating picture variants in the background.
+     * When the pool is saturated, further work is rejected rather than run on the request thread.
+     *
+     * @param s3BucketProperties the S3 bucket properties holding the pool size
+     * @return the picture derivative executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pictureDerivativeExecutor(S3BucketProperties s3BucketProperties) {
+        int threads = Math.max(1, s3BucketProperties.getDerivativeThreads());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PICTURE_DERIVATIVE_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "picture-derivative-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,78 @@
+package com.andersen.marketplace.config;
+
+import com.andersen.marketplace.properties.HttpCacheProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Configuration class for setting up HTTP caching of the catalogue responses.
+ * Picture URLs only change when their signing window rotates, so repeated reads of an unchanged
+ * catalogue page produce identical responses that clients and proxies can cache and revalidate.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final String[] CATALOGUE_PATTERNS = {"/api/products/**", "/api/categories/**"};
+    private static final String[] CATALOGUE_URL_PATTERNS = {"/api/products/*", "/api/categories/*"};
+
+    private final HttpCacheProperties httpCacheProperties;
+
+    /**
+     * Constructs a new WebConfig.
+     *
+     * @param httpCacheProperties the HTTP cache properties holding the max age of catalogue responses
+     */
+    public WebConfig(HttpCacheProperties httpCacheProperties) {
+        this.httpCacheProperties = httpCacheProperties;
+    }
+
+    /**
+     * Registers the filter adding an ETag computed from the body to catalogue responses,
+     * answering conditional requests for unchanged responses with 304 Not Modified.
+     *
+     * @return the registration of the ETag filter
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns(CATALOGUE_URL_PATTERNS);
+        return registration;
+    }
+
+    /**
+     * Adds a Cache-Control header to catalogue reads, letting clients reuse a response for the configured
+     * max age and revalidate it with its ETag afterwards. The max age must stay below the presigned URL
+     * expiration, so cached responses never hold expired picture URLs.
+     *
+     * @param registry the interceptor registry
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        String cacheControl = CacheControl.maxAge(Duration.ofMillis(httpCacheProperties.getMaxAge()))
+                .mustRevalidate()
+                .cachePublic()
+                .getHeaderValue();
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (HttpMethod.GET.matches(request.getMethod())) {
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+                }
+                return true;
+            }
+        }).addPathPatterns(CATALOGUE_PATTERNS);
+    }
+}
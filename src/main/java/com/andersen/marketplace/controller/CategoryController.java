@@ -2,6 +2,7 @@ package com.andersen.marketplace.controller;
 
 import com.andersen.marketplace.dto.CategoryDto;
 import com.andersen.marketplace.dto.CategoryProductsDto;
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.service.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -39,6 +40,18 @@ public class CategoryController {
         return ResponseEntity.ok(categoryService.getCategories(page, size));
     }
 
+    @Operation(summary = "Scroll categories", description = "Retrieve a page of categories ordered by name, following the cursor of the previous page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved page"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("scroll")
+    public ResponseEntity<CursorPage<CategoryProductsDto>> scrollCategories(@RequestParam(required = false) String cursor,
+                                                                            @RequestParam(defaultValue = "5") int size) {
+        return ResponseEntity.ok(categoryService.getCategories(cursor, size));
+    }
+
     @Operation(summary = "Add a new category", description = "Create a new category")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully added category",
@@ -48,8 +61,9 @@ public class CategoryController {
     })
     @PostMapping
     public ResponseEntity<CategoryDto> addCategory(@RequestPart(value = "content") CategoryDto categoryDto,
-                                                   @RequestPart(value = "file") MultipartFile logo) {
-        return ResponseEntity.ok(categoryService.addCategory(categoryDto, logo));
+                                                   @RequestPart(value = "file", required = false) MultipartFile logo,
+                                                   @RequestParam(value = "logoKey", required = false) String logoKey) {
+        return ResponseEntity.ok(categoryService.addCategory(categoryDto, logo, logoKey));
     }
 
     @Operation(summary = "Delete a category", description = "Delete a category by its ID")
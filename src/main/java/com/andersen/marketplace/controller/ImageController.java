@@ -0,0 +1,61 @@
+package com.andersen.marketplace.controller;
+
+import com.andersen.marketplace.cache.model.CachedImage;
+import com.andersen.marketplace.service.ImageProxyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("api/images")
+@Tag(name = "Image", description = "The Image proxy API")
+public class ImageController {
+
+    private final ImageProxyService imageProxyService;
+
+    @Autowired
+    public ImageController(ImageProxyService imageProxyService) {
+        this.imageProxyService = imageProxyService;
+    }
+
+    @Operation(summary = "Get an image", description = "Serve a stored picture through the local disk cache, supporting conditional and range requests")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved image"),
+            @ApiResponse(responseCode = "206", description = "Successfully retrieved part of the image"),
+            @ApiResponse(responseCode = "304", description = "Image not modified"),
+            @ApiResponse(responseCode = "404", description = "Image not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    @GetMapping("{key}")
+    public void getImage(@PathVariable String key, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Optional<CachedImage> image = imageProxyService.getImage(key);
+        if (image.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        CachedImage cached = image.get();
+        PictureResponses.Region region = PictureResponses.prepare(request, response, cached.getLength(), cached.getETag());
+        if (region == null) {
+            return;
+        }
+        response.setContentType(cached.getContentType());
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            imageProxyService.transfer(cached, region.start(), region.count(),
+                    Channels.newChannel(response.getOutputStream()));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.andersen.marketplace.controller;
+
+import com.andersen.marketplace.service.LocalPictureService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("api/pictures")
+@ConditionalOnProperty(prefix = "pictures", name = "storage", havingValue = "local")
+@Tag(name = "Picture", description = "The Picture API")
+public class PictureController {
+
+    private final LocalPictureService pictureService;
+
+    @Autowired
+    public PictureController(LocalPictureService pictureService) {
+        this.pictureService = pictureService;
+    }
+
+    @Operation(summary = "Get a picture", description = "Serve a stored picture, supporting conditional and range requests")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved picture"),
+            @ApiResponse(responseCode = "206", description = "Successfully retrieved part of the picture"),
+            @ApiResponse(responseCode = "304", description = "Picture not modified"),
+            @ApiResponse(responseCode = "404", description = "Picture not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    @GetMapping("{key}")
+    public void getPicture(@PathVariable String key, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        Optional<Path> picture = pictureService.findPicture(key);
+        if (picture.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = picture.get();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String eTag = "\"" + Long.toHexString(attributes.lastModifiedTime().toMillis())
+                + "-" + Long.toHexString(attributes.size()) + "\"";
+
+        PictureResponses.Region region = PictureResponses.prepare(request, response, attributes.size(), eTag);
+        if (region == null) {
+            return;
+        }
+        response.setContentType(contentType(path));
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            PictureResponses.sendFile(path, region, request, response);
+        }
+    }
+
+    @Operation(summary = "Upload a picture", description = "Store the content of a pending picture upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully uploaded picture"),
+            @ApiResponse(responseCode = "400", description = "Invalid upload key or picture too large"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("{key}")
+    public ResponseEntity<Void> putPicture(@PathVariable String key, HttpServletRequest request) throws IOException {
+        pictureService.storeUpload(key, request.getInputStream());
+        return ResponseEntity.ok().build();
+    }
+
+    private static String contentType(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            String contentType = URLConnection.guessContentTypeFromStream(in);
+            return contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.andersen.marketplace.controller;
+
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.dto.PictureUploadRequest;
+import com.andersen.marketplace.service.PictureService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/pictures/uploads")
+@Tag(name = "Picture", description = "The Picture API")
+public class PictureUploadController {
+
+    private final PictureService pictureService;
+
+    @Autowired
+    public PictureUploadController(PictureService pictureService) {
+        this.pictureService = pictureService;
+    }
+
+    @Operation(summary = "Create a picture upload",
+            description = "Create a pending upload the picture is sent to directly; pass its key as logoKey when adding or editing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully created upload",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PictureUploadDto.class))),
+            @ApiResponse(responseCode = "400", description = "Content type is not an image type"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public ResponseEntity<PictureUploadDto> createUpload(@RequestBody PictureUploadRequest request) {
+        return ResponseEntity.ok(pictureService.createUpload(request.getContentType()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.andersen.marketplace.controller;
 
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.dto.ProductSearchRequest;
 import com.andersen.marketplace.service.ProductService;
@@ -42,6 +43,18 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProducts(page, size));
     }
 
+    @Operation(summary = "Scroll products", description = "Retrieve a page of products ordered by name, following the cursor of the previous page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved page"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("scroll")
+    public ResponseEntity<CursorPage<ProductDto>> scrollProducts(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "5") int size) {
+        return ResponseEntity.ok(productService.getProducts(cursor, size));
+    }
+
     @Operation(summary = "Get unique products", description = "Retrieve unique product names")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved unique products"),
@@ -52,7 +65,7 @@ public class ProductController {
         return ResponseEntity.ok(productService.getUniqueProducts());
     }
 
-    @Operation(summary = "Search products", description = "Retrieve a paginated list of products based on search criteria")
+    @Operation(summary = "Search products", description = "Retrieve a paginated list of products by substring or ranked full-text match")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved filtered products"),
             @ApiResponse(responseCode = "400", description = "Invalid search criteria"),
@@ -76,8 +89,9 @@ public class ProductController {
     @PutMapping("{id}")
     public ResponseEntity<ProductDto> editProduct(@PathVariable UUID id,
                                                   @RequestPart(value = "content") ProductDto productDto,
-                                                  @RequestPart(value = "file", required = false) MultipartFile logo) {
-        return ResponseEntity.ok(productService.editProduct(id, productDto, logo));
+                                                  @RequestPart(value = "file", required = false) MultipartFile logo,
+                                                  @RequestParam(value = "logoKey", required = false) String logoKey) {
+        return ResponseEntity.ok(productService.editProduct(id, productDto, logo, logoKey));
     }
 
     @Operation(summary = "Add a new product", description = "Create a new product")
@@ -90,8 +104,9 @@ public class ProductController {
     })
     @PostMapping
     public ResponseEntity<ProductDto> addProduct(@RequestPart(value = "content") ProductDto productDto,
-                                                 @RequestPart(value = "file") MultipartFile logo) {
-        return ResponseEntity.ok(productService.addProduct(productDto, logo));
+                                                 @RequestPart(value = "file", required = false) MultipartFile logo,
+                                                 @RequestParam(value = "logoKey", required = false) String logoKey) {
+        return ResponseEntity.ok(productService.addProduct(productDto, logo, logoKey));
     }
 
     @Operation(summary = "Delete a product", description = "Delete a product by its ID.")
@@ -9,6 +9,8 @@ public class CategoryProductsDto {
     private UUID id;
     private String name;
     private String logo;
+    private String thumbnail;
+    private String medium;
     private List<ProductDto> products;
 
     public CategoryProductsDto(UUID id, String name, String logo, List<ProductDto> products) {
@@ -51,6 +53,22 @@ public class CategoryProductsDto {
         this.logo = logo;
     }
 
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(String thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public String getMedium() {
+        return medium;
+    }
+
+    public void setMedium(String medium) {
+        this.medium = medium;
+    }
+
     public List<ProductDto> getProducts() {
         return products;
     }
@@ -67,11 +85,13 @@ public class CategoryProductsDto {
         return Objects.equals(id, that.id) &&
                 Objects.equals(name, that.name) &&
                 Objects.equals(logo, that.logo) &&
+                Objects.equals(thumbnail, that.thumbnail) &&
+                Objects.equals(medium, that.medium) &&
                 Objects.equals(products, that.products);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, logo, products);
+        return Objects.hash(id, name, logo, thumbnail, medium, products);
     }
 }
@@ -0,0 +1,79 @@
+package com.andersen.marketplace.dto;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+
+public class PictureUploadDto {
+
+    private String key;
+    private String url;
+    private String method;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+
+    public PictureUploadDto(String key, String url, String method, Map<String, String> headers, Instant expiresAt) {
+        this.key = key;
+        this.url = url;
+        this.method = method;
+        this.headers = headers;
+        this.expiresAt = expiresAt;
+    }
+
+    public PictureUploadDto() {
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PictureUploadDto that = (PictureUploadDto) o;
+        return Objects.equals(key, that.key) && Objects.equals(url, that.url) && Objects.equals(method, that.method)
+                && Objects.equals(headers, that.headers) && Objects.equals(expiresAt, that.expiresAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, url, method, headers, expiresAt);
+    }
+}
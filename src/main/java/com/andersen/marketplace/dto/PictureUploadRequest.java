@@ -0,0 +1,17 @@
+package com.andersen.marketplace.dto;
+
+public class PictureUploadRequest {
+
+    private String contentType;
+
+    public PictureUploadRequest(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public PictureUploadRequest() {
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
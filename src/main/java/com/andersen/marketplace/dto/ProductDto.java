@@ -8,6 +8,8 @@ public class ProductDto {
     private UUID id;
     private String name;
     private String logo;
+    private String thumbnail;
+    private String medium;
     private String category;
 
     public ProductDto(UUID id, String name, String logo, String category) {
@@ -50,6 +52,22 @@ public class ProductDto {
         this.logo = logo;
     }
 
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(String thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public String getMedium() {
+        return medium;
+    }
+
+    public void setMedium(String medium) {
+        this.medium = medium;
+    }
+
     public String getCategory() {
         return category;
     }
@@ -63,11 +81,11 @@ public class ProductDto {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ProductDto that = (ProductDto) o;
-        return Objects.equals(id, that.id) && Objects.equals(name, that.name) && Objects.equals(logo, that.logo) && Objects.equals(category, that.category);
+        return Objects.equals(id, that.id) && Objects.equals(name, that.name) && Objects.equals(logo, that.logo) && Objects.equals(thumbnail, that.thumbnail) && Objects.equals(medium, that.medium) && Objects.equals(category, that.category);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, logo, category);
+        return Objects.hash(id, name, logo, thumbnail, medium, category);
     }
 }
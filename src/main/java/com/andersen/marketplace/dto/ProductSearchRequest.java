@@ -4,12 +4,19 @@ public class ProductSearchRequest {
 
     private String productCategory;
     private String productName;
+    private SearchMode mode = SearchMode.SUBSTRING;
 
     public ProductSearchRequest(String productCategory, String productName) {
         this.productCategory = productCategory;
         this.productName = productName;
     }
 
+    public ProductSearchRequest(String productCategory, String productName, SearchMode mode) {
+        this.productCategory = productCategory;
+        this.productName = productName;
+        this.mode = mode;
+    }
+
     public ProductSearchRequest() {
     }
 
@@ -20,4 +27,8 @@ public class ProductSearchRequest {
     public String getProductName() {
         return productName;
     }
+
+    public SearchMode getMode() {
+        return mode;
+    }
 }
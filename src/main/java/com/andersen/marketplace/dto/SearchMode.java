@@ -0,0 +1,17 @@
+package com.andersen.marketplace.dto;
+
+/**
+ * Matching modes of the product search.
+ */
+public enum SearchMode {
+
+    /**
+     * Case-insensitive substring match on the product and category names, ordered by product name.
+     */
+    SUBSTRING,
+
+    /**
+     * Full-text match of the search terms against the product and category names, ordered by relevance.
+     */
+    FULL_TEXT
+}
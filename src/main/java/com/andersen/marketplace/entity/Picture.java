@@ -0,0 +1,152 @@
+package com.andersen.marketplace.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Entity class representing the manifest entry of a picture stored in the bucket.
+ */
+@Entity
+@Table(name = "pictures")
+public class Picture {
+
+    @Id
+    @Column(name = "picture_key")
+    private String key;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PictureStatus status;
+
+    @Column
+    private Long size;
+
+    @Column
+    private String checksum;
+
+    @Column(name = "ref_count", updatable = false)
+    private Integer refCount = 0;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Constructs a new Picture with the specified details.
+     *
+     * @param key the picture key
+     * @param status the upload status
+     * @param size the size in bytes
+     * @param checksum the checksum of the content
+     */
+    public Picture(String key, PictureStatus status, Long size, String checksum) {
+        this.key = key;
+        this.status = status;
+        this.size = size;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Default constructor for Picture.
+     */
+    public Picture() {
+    }
+
+    /**
+     * Returns the picture key.
+     *
+     * @return the picture key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Sets the picture key.
+     *
+     * @param key the picture key
+     */
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the number of logos referencing the picture. The count is only changed
+     * by atomic updates of the repository, never by flushing the entity.
+     *
+     * @return the reference count
+     */
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * Returns the upload status.
+     *
+     * @return the upload status
+     */
+    public PictureStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the upload status.
+     *
+     * @param status the upload status
+     */
+    public void setStatus(PictureStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Returns the size in bytes.
+     *
+     * @return the size in bytes
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the size in bytes.
+     *
+     * @param size the size in bytes
+     */
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the checksum of the content.
+     *
+     * @return the checksum
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Sets the checksum of the content.
+     *
+     * @param checksum the checksum
+     */
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * Returns the time the entry was last inserted or updated.
+     *
+     * @return the last update time
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
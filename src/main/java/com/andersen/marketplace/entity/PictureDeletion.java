@@ -0,0 +1,113 @@
+package com.andersen.marketplace.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity class representing a picture waiting in the outbox to be deleted from the bucket.
+ */
+@Entity
+@Table(name = "picture_deletions")
+public class PictureDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "picture_key", nullable = false)
+    private String pictureKey;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    /**
+     * Constructs a new PictureDeletion due immediately.
+     *
+     * @param pictureKey the key of the picture to delete
+     */
+    public PictureDeletion(String pictureKey) {
+        this.pictureKey = pictureKey;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    /**
+     * Default constructor for PictureDeletion.
+     */
+    public PictureDeletion() {
+    }
+
+    /**
+     * Returns the deletion ID.
+     *
+     * @return the deletion ID
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Returns the key of the picture to delete.
+     *
+     * @return the picture key
+     */
+    public String getPictureKey() {
+        return pictureKey;
+    }
+
+    /**
+     * Returns the number of failed attempts.
+     *
+     * @return the number of failed attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the time the next attempt is due.
+     *
+     * @return the time of the next attempt
+     */
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    /**
+     * Returns the error of the last failed attempt.
+     *
+     * @return the last error
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Records a failed attempt and schedules the next one.
+     *
+     * @param error the error of the attempt
+     * @param nextAttemptAt the time the next attempt is due
+     */
+    public void recordFailure(String error, Instant nextAttemptAt) {
+        this.attempts++;
+        this.lastError = error;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+}
@@ -0,0 +1,22 @@
+package com.andersen.marketplace.entity;
+
+/**
+ * Upload states of a picture tracked in the picture manifest.
+ */
+public enum PictureStatus {
+
+    /**
+     * The picture was uploaded by the application or found in the bucket by the reconciler.
+     */
+    UPLOADED,
+
+    /**
+     * The picture is referenced, but the reconciler did not find it in the bucket.
+     */
+    MISSING,
+
+    /**
+     * The picture was referenced before the manifest existed and has not been checked yet.
+     */
+    UNVERIFIED
+}
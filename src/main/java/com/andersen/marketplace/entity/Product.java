@@ -1,7 +1,9 @@
 package com.andersen.marketplace.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -26,6 +28,10 @@ public class Product {
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     /**
      * Constructs a new Product with the specified details.
      *
@@ -143,6 +149,24 @@ public class Product {
         this.category = category;
     }
 
+    /**
+     * Returns the time the product was last inserted or updated.
+     *
+     * @return the last update time
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Sets the time the product was last inserted or updated.
+     *
+     * @param updatedAt the last update time
+     */
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * Checks if this product is equal to another object.
      *
@@ -0,0 +1,11 @@
+package com.andersen.marketplace.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class InvalidCursorException extends ResponseStatusException {
+
+    public InvalidCursorException(String cursor) {
+        super(HttpStatus.BAD_REQUEST, String.format("Cursor %s is invalid", cursor));
+    }
+}
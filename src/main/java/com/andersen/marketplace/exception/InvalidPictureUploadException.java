@@ -0,0 +1,11 @@
+package com.andersen.marketplace.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class InvalidPictureUploadException extends ResponseStatusException {
+
+    public InvalidPictureUploadException(String key, String reason) {
+        super(HttpStatus.BAD_REQUEST, String.format("Picture upload %s is invalid: %s", key, reason));
+    }
+}
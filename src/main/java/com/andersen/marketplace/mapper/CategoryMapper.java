@@ -1,5 +1,7 @@
 package com.andersen.marketplace.mapper;
 
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
 import com.andersen.marketplace.dto.CategoryDto;
 import com.andersen.marketplace.dto.CategoryProductsDto;
 import com.andersen.marketplace.dto.ProductDto;
@@ -17,11 +19,26 @@ public interface CategoryMapper {
     @Mapping(target = "name", source = "category.name")
     @Mapping(target = "logo", source = "logoUrl")
     @Mapping(target = "products", source = "products")
+    @Mapping(target = "thumbnail", ignore = true)
+    @Mapping(target = "medium", ignore = true)
     CategoryProductsDto mapToCategoryProductsDto(Category category, String logoUrl, List<ProductDto> products);
 
+    @Mapping(target = "id", source = "category.id")
+    @Mapping(target = "name", source = "category.name")
+    @Mapping(target = "logo", source = "logoUrl")
+    @Mapping(target = "products", source = "products")
+    @Mapping(target = "thumbnail", ignore = true)
+    @Mapping(target = "medium", ignore = true)
+    CategoryProductsDto mapToCategoryProductsDto(CategoryView category, String logoUrl, List<ProductDto> products);
+
     CategoryDto mapToCategoryDto(Category category);
 
     @Mapping(target = "products", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void mapCategoryDtoToCategory(@MappingTarget Category category, CategoryDto newCategory);
 
+    default CategoryView mapToCategoryView(Category category, List<ProductView> products) {
+        String name = category.getName() != null ? category.getName().intern() : null;
+        return new CategoryView(category.getId(), name, category.getLogo(), products);
+    }
 }
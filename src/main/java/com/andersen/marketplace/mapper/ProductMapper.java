@@ -1,6 +1,8 @@
 package com.andersen.marketplace.mapper;
 
+import com.andersen.marketplace.cache.model.ProductView;
 import com.andersen.marketplace.dto.ProductDto;
+import com.andersen.marketplace.entity.Category;
 import com.andersen.marketplace.entity.Product;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -14,14 +16,34 @@ public interface ProductMapper {
 
     @Mapping(target = "name", source = "product.name")
     @Mapping(target = "category", source = "product.category.name")
+    @Mapping(target = "thumbnail", ignore = true)
+    @Mapping(target = "medium", ignore = true)
     ProductDto mapToProductDto(Product product);
 
     @Mapping(target = "category", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void updateProductFromDto(@MappingTarget Product product, ProductDto updatedProduct);
 
     @Mapping(target = "id", source = "product.id")
     @Mapping(target = "name", source = "product.name")
     @Mapping(target = "category", source = "product.category.name")
     @Mapping(target = "logo", source = "logoUrl")
+    @Mapping(target = "thumbnail", ignore = true)
+    @Mapping(target = "medium", ignore = true)
     ProductDto mapToProductDto(Product product, String logoUrl);
-}
\ No newline at end of file
+
+    @Mapping(target = "id", source = "product.id")
+    @Mapping(target = "name", source = "product.name")
+    @Mapping(target = "category", source = "product.categoryName")
+    @Mapping(target = "logo", source = "logoUrl")
+    @Mapping(target = "thumbnail", ignore = true)
+    @Mapping(target = "medium", ignore = true)
+    ProductDto mapToProductDto(ProductView product, String logoUrl);
+
+    default ProductView mapToProductView(Product product) {
+        Category category = product.getCategory();
+        return new ProductView(product.getId(), product.getName(), product.getLogo(),
+                category != null ? category.getId() : null,
+                category != null && category.getName() != null ? category.getName().intern() : null);
+    }
+}
@@ -0,0 +1,257 @@
+package com.andersen.marketplace.properties;
+
+import com.andersen.marketplace.cache.EvictionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private Spec products = new Spec();
+
+    private Spec categories = new Spec();
+
+    private Spec pictureUrls = new Spec();
+
+    private Spec images = new Spec();
+
+    private WarmUp warmUp = new WarmUp();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private SearchIndex searchIndex = new SearchIndex();
+
+    public Spec getProducts() {
+        return products;
+    }
+
+    public Spec getCategories() {
+        return categories;
+    }
+
+    public void setProducts(Spec products) {
+        this.products = products;
+    }
+
+    public void setCategories(Spec categories) {
+        this.categories = categories;
+    }
+
+    public Spec getPictureUrls() {
+        return pictureUrls;
+    }
+
+    public void setPictureUrls(Spec pictureUrls) {
+        this.pictureUrls = pictureUrls;
+    }
+
+    public Spec getImages() {
+        return images;
+    }
+
+    public void setImages(Spec images) {
+        this.images = images;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public void setSearchIndex(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Settings of a single cache.
+     */
+    public static class Spec {
+
+        public static final Long DEFAULT_TIMEOUT = 90000L;
+
+        private Long timeout = DEFAULT_TIMEOUT;
+
+        private Long maximumSize;
+
+        private Long maximumWeight;
+
+        private EvictionPolicy policy = EvictionPolicy.W_TINY_LFU;
+
+        private Double refreshAheadFraction;
+
+        private Long maxStaleness;
+
+        public Spec() {
+        }
+
+        public Spec(Long timeout) {
+            this.timeout = timeout;
+        }
+
+        public Long getTimeout() {
+            return timeout;
+        }
+
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public Long getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public EvictionPolicy getPolicy() {
+            return policy;
+        }
+
+        public Double getRefreshAheadFraction() {
+            return refreshAheadFraction;
+        }
+
+        public Long getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        public void setTimeout(Long timeout) {
+            this.timeout = timeout;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public void setMaximumWeight(Long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        public void setPolicy(EvictionPolicy policy) {
+            this.policy = policy;
+        }
+
+        public void setRefreshAheadFraction(Double refreshAheadFraction) {
+            this.refreshAheadFraction = refreshAheadFraction;
+        }
+
+        public void setMaxStaleness(Long maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        public boolean isBounded() {
+            return maximumSize != null || maximumWeight != null;
+        }
+    }
+
+    /**
+     * Settings of the cache warm-up run after the application has started.
+     */
+    public static class WarmUp {
+
+        private boolean enabled = true;
+
+        private int threads = 4;
+
+        private int chunkSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Settings of the cache snapshot written on shutdown and restored on startup.
+     */
+    public static class Snapshot {
+
+        private boolean enabled;
+
+        private String path = "cache-snapshot.bin";
+
+        private long maxAge = 3600000L;
+
+        private long reconcileMargin = 60000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getMaxAge() {
+            return maxAge;
+        }
+
+        public long getReconcileMargin() {
+            return reconcileMargin;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public void setMaxAge(long maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public void setReconcileMargin(long reconcileMargin) {
+            this.reconcileMargin = reconcileMargin;
+        }
+    }
+
+    /**
+     * Settings of the in-memory product search index built by the cache warm-up.
+     */
+    public static class SearchIndex {
+
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.andersen.marketplace.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "http.cache")
+public class HttpCacheProperties {
+
+    private long maxAge = 60000L;
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+}
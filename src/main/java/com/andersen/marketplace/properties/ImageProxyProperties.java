@@ -0,0 +1,49 @@
+package com.andersen.marketplace.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pictures.proxy")
+public class ImageProxyProperties {
+
+    private String directory = "image-cache";
+
+    private int mapAfterReads = 2;
+
+    private long mapMaxSize = 1048576L;
+
+    private long missTimeout = 10000L;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public int getMapAfterReads() {
+        return mapAfterReads;
+    }
+
+    public long getMapMaxSize() {
+        return mapMaxSize;
+    }
+
+    public long getMissTimeout() {
+        return missTimeout;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public void setMapAfterReads(int mapAfterReads) {
+        this.mapAfterReads = mapAfterReads;
+    }
+
+    public void setMapMaxSize(long mapMaxSize) {
+        this.mapMaxSize = mapMaxSize;
+    }
+
+    public void setMissTimeout(long missTimeout) {
+        this.missTimeout = missTimeout;
+    }
+}
@@ -0,0 +1,39 @@
+package com.andersen.marketplace.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pictures.local")
+public class LocalStorageProperties {
+
+    private String root = "pictures";
+
+    private String baseUrl = "/api/pictures/";
+
+    private long maxUploadSize = 10485760L;
+
+    public String getRoot() {
+        return root;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public long getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
+    public void setRoot(String root) {
+        this.root = root;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public void setMaxUploadSize(long maxUploadSize) {
+        this.maxUploadSize = maxUploadSize;
+    }
+}
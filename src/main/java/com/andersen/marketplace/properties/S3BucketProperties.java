@@ -15,6 +15,28 @@ public class S3BucketProperties {
 
     private String bucketName;
 
+    private long presignedUrlExpiration = 900000L;
+
+    private long presignedUrlRotation = 300000L;
+
+    private int urlResolutionThreads = 16;
+
+    private long urlBatchTimeout = 2000L;
+
+    private long multipartThreshold = 16777216L;
+
+    private long multipartPartSize = 8388608L;
+
+    private int uploadThreads = 4;
+
+    private int derivativeThreads = 2;
+
+    private long derivativeRetryDelay = 600000L;
+
+    private long uploadUrlExpiration = 900000L;
+
+    private long maxUploadSize = 10485760L;
+
     public String getRegion() {
         return region;
     }
@@ -31,6 +53,50 @@ public class S3BucketProperties {
         return bucketName;
     }
 
+    public long getPresignedUrlExpiration() {
+        return presignedUrlExpiration;
+    }
+
+    public long getPresignedUrlRotation() {
+        return presignedUrlRotation;
+    }
+
+    public int getUrlResolutionThreads() {
+        return urlResolutionThreads;
+    }
+
+    public long getUrlBatchTimeout() {
+        return urlBatchTimeout;
+    }
+
+    public long getMultipartThreshold() {
+        return multipartThreshold;
+    }
+
+    public long getMultipartPartSize() {
+        return multipartPartSize;
+    }
+
+    public int getUploadThreads() {
+        return uploadThreads;
+    }
+
+    public int getDerivativeThreads() {
+        return derivativeThreads;
+    }
+
+    public long getDerivativeRetryDelay() {
+        return derivativeRetryDelay;
+    }
+
+    public long getUploadUrlExpiration() {
+        return uploadUrlExpiration;
+    }
+
+    public long getMaxUploadSize() {
+        return maxUploadSize;
+    }
+
     public void setRegion(String region) {
         this.region = region;
     }
@@ -46,4 +112,48 @@ public class S3BucketProperties {
     public void setBucketName(String bucketName) {
         this.bucketName = bucketName;
     }
+
+    public void setPresignedUrlExpiration(long presignedUrlExpiration) {
+        this.presignedUrlExpiration = presignedUrlExpiration;
+    }
+
+    public void setPresignedUrlRotation(long presignedUrlRotation) {
+        this.presignedUrlRotation = presignedUrlRotation;
+    }
+
+    public void setUrlResolutionThreads(int urlResolutionThreads) {
+        this.urlResolutionThreads = urlResolutionThreads;
+    }
+
+    public void setUrlBatchTimeout(long urlBatchTimeout) {
+        this.urlBatchTimeout = urlBatchTimeout;
+    }
+
+    public void setMultipartThreshold(long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    public void setMultipartPartSize(long multipartPartSize) {
+        this.multipartPartSize = multipartPartSize;
+    }
+
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+    }
+
+    public void setDerivativeThreads(int derivativeThreads) {
+        this.derivativeThreads = derivativeThreads;
+    }
+
+    public void setDerivativeRetryDelay(long derivativeRetryDelay) {
+        this.derivativeRetryDelay = derivativeRetryDelay;
+    }
+
+    public void setUploadUrlExpiration(long uploadUrlExpiration) {
+        this.uploadUrlExpiration = uploadUrlExpiration;
+    }
+
+    public void setMaxUploadSize(long maxUploadSize) {
+        this.maxUploadSize = maxUploadSize;
+    }
 }
@@ -5,8 +5,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,6 +37,16 @@ public interface CategoryRepository extends JpaRepository<Category, UUID> {
     @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products WHERE c.id = :id")
     Optional<Category> findByIdWithProducts(UUID id);
 
+    /**
+     * Locks a category until the transaction ends. The row lock also blocks products from being inserted
+     * into the category, since their foreign key check needs a share lock on it.
+     *
+     * @param id the category ID
+     * @return an Optional containing the category ID, if found
+     */
+    @Query(value = "SELECT c.id FROM categories c WHERE c.id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockById(@Param("id") UUID id);
+
     /**
      * Finds all categories, including their products.
      *
@@ -43,11 +56,70 @@ public interface CategoryRepository extends JpaRepository<Category, UUID> {
     List<Category> findAllWithProducts();
 
     /**
-     * Finds all categories with pagination, including their products.
+     * Finds a page of category IDs ordered by name and ID. Paging the IDs alone keeps the limit and offset
+     * in SQL; a page of categories fetched together with their products would be paginated in memory.
      *
      * @param pageable the pagination information
-     * @return a page of Categories with their products
+     * @return a page of category IDs
      */
-    @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products")
-    Page<Category> findAllWithProducts(Pageable pageable);
+    @Query(value = "SELECT c.id FROM Category c ORDER BY c.name, c.id", countQuery = "SELECT count(c) FROM Category c")
+    Page<UUID> findIdsOrderByName(Pageable pageable);
+
+    /**
+     * Finds the IDs of the first categories ordered by name and ID.
+     *
+     * @param limit the maximum number of IDs
+     * @return the category IDs in order
+     */
+    @Query(value = """
+SELECT c.id
+FROM categories c
+ORDER BY c.name, c.id
+LIMIT :limit
+""", nativeQuery = true)
+    List<UUID> findFirstIdsOrderByName(@Param("limit") int limit);
+
+    /**
+     * Finds the IDs of the categories following the given name and ID, ordered by name and ID,
+     * with a range scan of the {@code (name, id)} index.
+     *
+     * @param name the name of the last category of the previous page
+     * @param id the ID of the last category of the previous page
+     * @param limit the maximum number of IDs
+     * @return the category IDs in order
+     */
+    @Query(value = """
+SELECT c.id
+FROM categories c
+WHERE (c.name, c.id) > (:name, :id)
+ORDER BY c.name, c.id
+LIMIT :limit
+""", nativeQuery = true)
+    List<UUID> findIdsOrderByNameAfter(@Param("name") String name, @Param("id") UUID id, @Param("limit") int limit);
+
+    /**
+     * Finds the categories with the given IDs, including their products.
+     *
+     * @param ids the category IDs
+     * @return the categories with their products, in no particular order
+     */
+    @Query("SELECT DISTINCT c FROM Category c LEFT JOIN FETCH c.products WHERE c.id IN :ids")
+    List<Category> findAllWithProductsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Finds the categories inserted or updated after the given time.
+     *
+     * @param since the exclusive lower bound of the update time
+     * @return the categories updated since the given time
+     */
+    @Query("SELECT c FROM Category c WHERE c.updatedAt > :since")
+    List<Category> findUpdatedSince(@Param("since") Instant since);
+
+    /**
+     * Finds the IDs of all categories.
+     *
+     * @return the category IDs
+     */
+    @Query("SELECT c.id FROM Category c")
+    List<UUID> findAllIds();
 }
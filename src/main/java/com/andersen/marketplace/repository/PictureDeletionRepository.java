@@ -0,0 +1,36 @@
+package com.andersen.marketplace.repository;
+
+import com.andersen.marketplace.entity.PictureDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing the picture deletion outbox.
+ */
+@Repository
+public interface PictureDeletionRepository extends JpaRepository<PictureDeletion, UUID> {
+
+    /**
+     * Finds and locks the deletions due at the given time, oldest first.
+     * Rows locked by another instance are skipped, so several instances can drain the outbox at once.
+     *
+     * @param now the current time
+     * @param limit the maximum number of deletions
+     * @return the due deletions
+     */
+    @Query(value = """
+SELECT *
+FROM picture_deletions
+WHERE next_attempt_at <= :now
+ORDER BY next_attempt_at
+LIMIT :limit
+FOR UPDATE SKIP LOCKED
+""", nativeQuery = true)
+    List<PictureDeletion> findDueForUpdate(@Param("now") Instant now, @Param("limit") int limit);
+}
@@ -0,0 +1,94 @@
+package com.andersen.marketplace.repository;
+
+import com.andersen.marketplace.entity.Picture;
+import com.andersen.marketplace.entity.PictureStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for managing the picture manifest.
+ */
+@Repository
+public interface PictureRepository extends JpaRepository<Picture, String> {
+
+    /**
+     * Finds the keys of all pictures with the given status.
+     *
+     * @param status the upload status
+     * @return the picture keys
+     */
+    @Query("SELECT p.key FROM Picture p WHERE p.status = :status")
+    List<String> findKeysByStatus(@Param("status") PictureStatus status);
+
+    /**
+     * Finds the next chunk of pictures ordered by key, continuing after the given key.
+     *
+     * @param key the exclusive lower bound of the keys
+     * @param pageable the chunk size
+     * @return the pictures of the chunk
+     */
+    List<Picture> findByKeyGreaterThanOrderByKeyAsc(String key, Pageable pageable);
+
+    /**
+     * Checks whether a picture with the given key and status exists.
+     *
+     * @param key the picture key
+     * @param status the upload status
+     * @return true if the picture exists with the status
+     */
+    boolean existsByKeyAndStatus(String key, PictureStatus status);
+
+    /**
+     * Adds a reference to a picture, creating its manifest entry if it does not exist yet.
+     * The entry stays locked until the transaction ends.
+     *
+     * @param key the picture key
+     */
+    @Modifying
+    @Query(value = """
+INSERT INTO pictures (picture_key, status, ref_count, updated_at)
+VALUES (:key, 'UNVERIFIED', 1, now())
+ON CONFLICT (picture_key) DO UPDATE SET ref_count = pictures.ref_count + 1
+""", nativeQuery = true)
+    void addReference(@Param("key") String key);
+
+    /**
+     * Removes references to a picture, never going below zero.
+     *
+     * @param key the picture key
+     * @param count the number of references to remove
+     */
+    @Modifying
+    @Query(value = "UPDATE pictures SET ref_count = GREATEST(ref_count - :count, 0) WHERE picture_key = :key",
+            nativeQuery = true)
+    void releaseReferences(@Param("key") String key, @Param("count") int count);
+
+    /**
+     * Finds the reference count of a picture.
+     *
+     * @param key the picture key
+     * @return the reference count, or null if the picture has no manifest entry
+     */
+    @Query("SELECT p.refCount FROM Picture p WHERE p.key = :key")
+    Integer findRefCount(@Param("key") String key);
+
+    /**
+     * Locks the manifest entries of the given pictures and returns the keys of those still referenced.
+     *
+     * @param keys the picture keys
+     * @return the keys of the referenced pictures
+     */
+    @Query(value = """
+SELECT p.picture_key
+FROM (SELECT picture_key, ref_count FROM pictures WHERE picture_key IN (:keys) FOR UPDATE) p
+WHERE p.ref_count > 0
+""", nativeQuery = true)
+    List<String> lockReferencedKeys(@Param("keys") Collection<String> keys);
+}
@@ -1,13 +1,19 @@
 package com.andersen.marketplace.repository;
 
 import com.andersen.marketplace.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -26,18 +32,243 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     Set<String> findUniqueProducts();
 
     /**
-     * Finds all products with optional filtering by category and name.
+     * Tables of the product search. Each filter combination has its own statement holding only the filters
+     * given, so the {@code ILIKE} of every filter is answered by the trigram index of its column under generic
+     * plans too, once the driver has switched to a server-prepared statement.
+     */
+    String SEARCH_FROM = """
+FROM products p
+JOIN categories c ON c.id = p.category_id
+""";
+
+    /**
+     * Filter on the category name.
+     */
+    String CATEGORY_FILTER = "c.name ILIKE '%' || :category || '%'";
+
+    /**
+     * Filter on the product name.
+     */
+    String NAME_FILTER = "p.name ILIKE '%' || :name || '%'";
+
+    /**
+     * Order of the product search. Names are compared by their bytes under the {@code "C"} collation,
+     * so the order does not depend on the database locale and matches the in-memory search index.
+     */
+    String SEARCH_ORDER = "ORDER BY p.name COLLATE \"C\", p.id";
+
+    /**
+     * Query of a page of all products.
+     */
+    String SEARCH_QUERY = "SELECT p.* " + SEARCH_FROM + SEARCH_ORDER;
+
+    /**
+     * Query counting all products.
+     */
+    String SEARCH_COUNT_QUERY = "SELECT count(*) " + SEARCH_FROM;
+
+    /**
+     * Query of a page of the products whose category name matches.
+     */
+    String SEARCH_BY_CATEGORY_QUERY = "SELECT p.* " + SEARCH_FROM + "WHERE " + CATEGORY_FILTER + "\n" + SEARCH_ORDER;
+
+    /**
+     * Query counting the products whose category name matches.
+     */
+    String SEARCH_BY_CATEGORY_COUNT_QUERY = "SELECT count(*) " + SEARCH_FROM + "WHERE " + CATEGORY_FILTER;
+
+    /**
+     * Query of a page of the products whose name matches.
+     */
+    String SEARCH_BY_NAME_QUERY = "SELECT p.* " + SEARCH_FROM + "WHERE " + NAME_FILTER + "\n" + SEARCH_ORDER;
+
+    /**
+     * Query counting the products whose name matches.
+     */
+    String SEARCH_BY_NAME_COUNT_QUERY = "SELECT count(*) " + SEARCH_FROM + "WHERE " + NAME_FILTER;
+
+    /**
+     * Query of a page of the products whose category name and name match.
+     */
+    String SEARCH_BY_CATEGORY_AND_NAME_QUERY =
+            "SELECT p.* " + SEARCH_FROM + "WHERE " + CATEGORY_FILTER + "\nAND " + NAME_FILTER + "\n" + SEARCH_ORDER;
+
+    /**
+     * Query counting the products whose category name and name match.
+     */
+    String SEARCH_BY_CATEGORY_AND_NAME_COUNT_QUERY =
+            "SELECT count(*) " + SEARCH_FROM + "WHERE " + CATEGORY_FILTER + "\nAND " + NAME_FILTER;
+
+    /**
+     * Finds all products with optional filtering by category and name, ordered by name.
+     * Both filters are case-insensitive substring matches backed by {@code pg_trgm} GIN indexes,
+     * and the statement of the given filter combination is run.
      *
      * @param category the category name to filter by (optional)
      * @param name the product name to filter by (optional)
      * @param pageable the pagination information
      * @return a page of products matching the filter criteria
      */
+    default Page<Product> findAllWithFilter(String category, String name, Pageable pageable) {
+        if (category == null) {
+            return name == null ? findAllOrderByName(pageable) : findAllByNameFilter(name, pageable);
+        }
+        return name == null
+                ? findAllByCategoryFilter(category, pageable)
+                : findAllByCategoryAndNameFilter(category, name, pageable);
+    }
+
+    /**
+     * Finds all products, ordered by name.
+     *
+     * @param pageable the pagination information
+     * @return a page of products
+     */
+    @Query(value = SEARCH_QUERY, countQuery = SEARCH_COUNT_QUERY, nativeQuery = true)
+    Page<Product> findAllOrderByName(Pageable pageable);
+
+    /**
+     * Finds the products whose category name contains the filter, ignoring case, ordered by name.
+     *
+     * @param category the category name filter
+     * @param pageable the pagination information
+     * @return a page of matching products
+     */
+    @Query(value = SEARCH_BY_CATEGORY_QUERY, countQuery = SEARCH_BY_CATEGORY_COUNT_QUERY, nativeQuery = true)
+    Page<Product> findAllByCategoryFilter(@Param("category") String category, Pageable pageable);
+
+    /**
+     * Finds the products whose name contains the filter, ignoring case, ordered by name.
+     *
+     * @param name the product name filter
+     * @param pageable the pagination information
+     * @return a page of matching products
+     */
+    @Query(value = SEARCH_BY_NAME_QUERY, countQuery = SEARCH_BY_NAME_COUNT_QUERY, nativeQuery = true)
+    Page<Product> findAllByNameFilter(@Param("name") String name, Pageable pageable);
+
+    /**
+     * Finds the products whose category name and name contain the filters, ignoring case, ordered by name.
+     *
+     * @param category the category name filter
+     * @param name the product name filter
+     * @param pageable the pagination information
+     * @return a page of matching products
+     */
+    @Query(value = SEARCH_BY_CATEGORY_AND_NAME_QUERY, countQuery = SEARCH_BY_CATEGORY_AND_NAME_COUNT_QUERY,
+            nativeQuery = true)
+    Page<Product> findAllByCategoryAndNameFilter(@Param("category") String category, @Param("name") String name,
+                                                 Pageable pageable);
+
+    /**
+     * Query of a page of the full-text product search, most relevant products first.
+     */
+    String FULL_TEXT_QUERY = """
+SELECT p.*
+FROM products p, websearch_to_tsquery('english', :query) q
+WHERE p.search_vector @@ q
+ORDER BY ts_rank(p.search_vector, q) DESC, p.name, p.id
+""";
+
+    /**
+     * Query counting all products matching the full-text product search.
+     */
+    String FULL_TEXT_COUNT_QUERY = """
+SELECT count(*)
+FROM products p
+WHERE p.search_vector @@ websearch_to_tsquery('english', :query)
+""";
+
+    /**
+     * Finds products matching a full-text query over the product and category names, ranked by relevance.
+     * The query uses web search syntax: quoted phrases, {@code or} and {@code -} exclusions.
+     * Matches are found through the GIN index of the trigger-maintained {@code search_vector} column,
+     * so only matching products are ranked.
+     *
+     * @param query the full-text query
+     * @param pageable the pagination information
+     * @return a page of matching products, most relevant first
+     */
+    @Query(value = FULL_TEXT_QUERY, countQuery = FULL_TEXT_COUNT_QUERY, nativeQuery = true)
+    Page<Product> findAllByFullText(@Param("query") String query, Pageable pageable);
+
+    /**
+     * Finds the IDs of the first products ordered by name and ID.
+     *
+     * @param limit the maximum number of IDs
+     * @return the product IDs in order
+     */
+    @Query(value = """
+SELECT p.id
+FROM products p
+ORDER BY p.name, p.id
+LIMIT :limit
+""", nativeQuery = true)
+    List<UUID> findFirstIdsOrderByName(@Param("limit") int limit);
+
+    /**
+     * Finds the IDs of the products following the given name and ID, ordered by name and ID.
+     * The row value comparison is resolved by a range scan of the {@code (name, id)} index,
+     * so the cost of a page does not grow with its depth.
+     *
+     * @param name the name of the last product of the previous page
+     * @param id the ID of the last product of the previous page
+     * @param limit the maximum number of IDs
+     * @return the product IDs in order
+     */
+    @Query(value = """
+SELECT p.id
+FROM products p
+WHERE (p.name, p.id) > (:name, :id)
+ORDER BY p.name, p.id
+LIMIT :limit
+""", nativeQuery = true)
+    List<UUID> findIdsOrderByNameAfter(@Param("name") String name, @Param("id") UUID id, @Param("limit") int limit);
+
+    /**
+     * Finds the products with the given IDs, together with their categories.
+     *
+     * @param ids the product IDs
+     * @return the products, in no particular order
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findAllWithCategoryByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Finds the next chunk of products, together with their categories, whose IDs lie in the
+     * range {@code (after, upTo]}, ordered by ID. Passing the ID of the last product of a chunk
+     * as {@code after} continues with the next chunk without an offset scan.
+     *
+     * @param after the exclusive lower bound of the IDs
+     * @param upTo the inclusive upper bound of the IDs
+     * @param pageable the chunk size
+     * @return the products of the chunk
+     */
     @Query("""
 SELECT p
 FROM Product p
-WHERE (:category IS NULL OR p.category.name ILIKE %:category%)
-AND (:name IS NULL OR p.name ILIKE %:name%)
+JOIN FETCH p.category
+WHERE p.id > :after
+AND p.id <= :upTo
+ORDER BY p.id
 """)
-    Page<Product> findAllWithFilter(@Param("category") String category, @Param("name") String name, Pageable pageable);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    List<Product> findChunk(@Param("after") UUID after, @Param("upTo") UUID upTo, Pageable pageable);
+
+    /**
+     * Finds the products, together with their categories, inserted or updated after the given time.
+     *
+     * @param since the exclusive lower bound of the update time
+     * @return the products updated since the given time
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.updatedAt > :since")
+    List<Product> findUpdatedSince(@Param("since") Instant since);
+
+    /**
+     * Finds the IDs of all products.
+     *
+     * @return the product IDs
+     */
+    @Query("SELECT p.id FROM Product p")
+    List<UUID> findAllIds();
 }
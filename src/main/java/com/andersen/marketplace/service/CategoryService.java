@@ -1,11 +1,15 @@
 package com.andersen.marketplace.service;
 
+import com.andersen.marketplace.cache.CacheWarmUpGuard;
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.ProductSearchIndex;
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
 import com.andersen.marketplace.dto.CategoryDto;
 import com.andersen.marketplace.dto.CategoryProductsDto;
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.entity.Category;
-import com.andersen.marketplace.entity.Product;
 import com.andersen.marketplace.exception.CategoryNotFoundException;
 import com.andersen.marketplace.exception.DuplicatedCategoryException;
 import com.andersen.marketplace.mapper.CategoryMapper;
@@ -15,12 +19,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing categories.
@@ -34,7 +47,9 @@ public class CategoryService {
     private final CategoryMapper categoryMapper;
     private final ProductMapper productMapper;
     private final PictureService pictureService;
-    private final GenericCache<UUID, Category> cache;
+    private final GenericCache<UUID, CategoryView> cache;
+    private final ProductSearchIndex searchIndex;
+    private final CacheWarmUpGuard warmUpGuard;
 
     /**
      * Constructs a new CategoryService.
@@ -44,21 +59,29 @@ public class CategoryService {
      * @param productMapper the product mapper
      * @param pictureService the picture service
      * @param cache the cache for categories
+     * @param searchIndex the product search index
+     * @param warmUpGuard the guard keeping the cache warm-up from restoring removed categories
      */
     public CategoryService(CategoryRepository categoryRepository,
                            CategoryMapper categoryMapper,
                            ProductMapper productMapper,
                            PictureService pictureService,
-                           @Qualifier("categoryCache") GenericCache<UUID, Category> cache) {
+                           @Qualifier("categoryCache") GenericCache<UUID, CategoryView> cache,
+                           ProductSearchIndex searchIndex,
+                           CacheWarmUpGuard warmUpGuard) {
         this.categoryRepository = categoryRepository;
         this.categoryMapper = categoryMapper;
         this.productMapper = productMapper;
         this.pictureService = pictureService;
         this.cache = cache;
+        this.searchIndex = searchIndex;
+        this.warmUpGuard = warmUpGuard;
     }
 
     /**
-     * Retrieves a paginated list of categories with their products.
+     * Retrieves a paginated list of categories with their products, ordered by name.
+     * The IDs of the page are paged in the database first, and only the categories of the page are then
+     * fetched with their products in one query.
      *
      * @param page the page number
      * @param size the number of items per page
@@ -67,21 +90,113 @@ public class CategoryService {
     public Page<CategoryProductsDto> getCategories(int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size);
 
-        return categoryRepository.findAllWithProducts(pageRequest)
-                .map(category ->
-                        categoryMapper.mapToCategoryProductsDto(category,
-                                pictureService.getPictureUrl(category.getLogo()), getRelatedProductDtoList(category)));
+        Page<UUID> ids = categoryRepository.findIdsOrderByName(pageRequest);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageRequest, ids.getTotalElements());
+        }
+        Map<UUID, Category> categoriesById = categoryRepository.findAllWithProductsByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        List<Category> categories = ids.stream().map(categoriesById::get).filter(Objects::nonNull).toList();
+
+        return new PageImpl<>(mapToCategoryProductsDtos(categories), pageRequest, ids.getTotalElements());
+    }
+
+    /**
+     * Retrieves a keyset page of categories with their products ordered by name, starting after the given cursor.
+     * The IDs of the page are read from the {@code (name, id)} index, one more than requested to find out
+     * whether a next page exists, and the categories are then fetched with their products in one query.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the number of items per page
+     * @return the page of CategoryProductsDto with the cursor of the next page, which is null on the last page
+     * @throws com.andersen.marketplace.exception.InvalidCursorException if the cursor is invalid
+     */
+    public CursorPage<CategoryProductsDto> getCategories(String cursor, int size) {
+        int pageSize = PageCursor.pageSize(size);
+        List<UUID> ids;
+        if (cursor == null || cursor.isEmpty()) {
+            ids = categoryRepository.findFirstIdsOrderByName(pageSize + 1);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            ids = categoryRepository.findIdsOrderByNameAfter(after.name(), after.id(), pageSize + 1);
+        }
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+
+        Map<UUID, Category> categoriesById = categoryRepository.findAllWithProductsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        List<Category> categories = ids.stream().map(categoriesById::get).filter(Objects::nonNull).toList();
+        String nextCursor = null;
+        if (hasNext && !categories.isEmpty()) {
+            Category last = categories.get(categories.size() - 1);
+            nextCursor = new PageCursor(last.getName(), last.getId()).encode();
+        }
+        return new CursorPage<>(mapToCategoryProductsDtos(categories), nextCursor);
+    }
+
+    /**
+     * Maps categories to DTOs with their products, resolving the logo and thumbnail URLs of all categories
+     * and products in one batch each.
+     *
+     * @param categories the categories with their products
+     * @return a list of CategoryProductsDto in the order of the categories
+     */
+    private List<CategoryProductsDto> mapToCategoryProductsDtos(List<Category> categories) {
+        List<String> logos = new ArrayList<>();
+        categories.forEach(category -> {
+            logos.add(category.getLogo());
+            category.getProducts().forEach(product -> logos.add(product.getLogo()));
+        });
+        Map<String, String> logoUrls = pictureService.getPictureUrls(logos);
+        Map<String, String> thumbnailUrls = pictureService.getPictureUrls(logos, PictureVariant.THUMBNAIL);
+
+        return categories.stream()
+                .map(category -> {
+                    CategoryProductsDto categoryDto = categoryMapper.mapToCategoryProductsDto(category,
+                            logoUrls.get(category.getLogo()), getRelatedProductDtoList(category, logoUrls, thumbnailUrls));
+                    categoryDto.setThumbnail(thumbnailUrls.get(category.getLogo()));
+                    return categoryDto;
+                })
+                .toList();
     }
 
     /**
      * Retrieves a list of related product DTOs for a given category.
      *
      * @param category the category
+     * @param logoUrls the resolved logo URLs by logo key
+     * @param thumbnailUrls the resolved thumbnail URLs by logo key
      * @return a list of ProductDto
      */
-    private List<ProductDto> getRelatedProductDtoList(Category category) {
+    private List<ProductDto> getRelatedProductDtoList(Category category, Map<String, String> logoUrls,
+                                                      Map<String, String> thumbnailUrls) {
         return category.getProducts().stream()
-                .map(product -> productMapper.mapToProductDto(product, pictureService.getPictureUrl(product.getLogo())))
+                .map(product -> {
+                    ProductDto productDto = productMapper.mapToProductDto(product, logoUrls.get(product.getLogo()));
+                    productDto.setThumbnail(thumbnailUrls.get(product.getLogo()));
+                    return productDto;
+                })
+                .toList();
+    }
+
+    /**
+     * Retrieves a list of related product DTOs for a given category read model.
+     *
+     * @param category the category read model
+     * @param logoUrls the resolved logo URLs by logo key
+     * @param thumbnailUrls the resolved thumbnail URLs by logo key
+     * @return a list of ProductDto
+     */
+    private List<ProductDto> getRelatedProductDtoList(CategoryView category, Map<String, String> logoUrls,
+                                                      Map<String, String> thumbnailUrls) {
+        return category.products().stream()
+                .map(product -> {
+                    ProductDto productDto = productMapper.mapToProductDto(product, logoUrls.get(product.logo()));
+                    productDto.setThumbnail(thumbnailUrls.get(product.logo()));
+                    return productDto;
+                })
                 .toList();
     }
 
@@ -92,10 +207,20 @@ public class CategoryService {
      * @return the CategoryProductsDto
      */
     public CategoryProductsDto getCategoryById(UUID id) {
-        Category category = this.cache.get(id).orElseGet(() -> getCategoryFromRepository(id));
-        String logoUrl = pictureService.getPictureUrl(category.getLogo());
+        CategoryView category = this.cache.get(id, this::getCategoryViewFromRepository);
+        List<String> logos = new ArrayList<>();
+        logos.add(category.logo());
+        category.products().forEach(product -> logos.add(product.logo()));
+        Map<String, String> logoUrls = pictureService.getPictureUrls(logos);
+        Map<String, String> thumbnailUrls = pictureService.getPictureUrls(
+                logos.subList(1, logos.size()), PictureVariant.THUMBNAIL);
 
-        return categoryMapper.mapToCategoryProductsDto(category, logoUrl, getRelatedProductDtoList(category));
+        CategoryProductsDto categoryDto = categoryMapper.mapToCategoryProductsDto(category,
+                logoUrls.get(category.logo()), getRelatedProductDtoList(category, logoUrls, thumbnailUrls));
+        if (category.logo() != null) {
+            categoryDto.setMedium(pictureService.getPictureUrl(category.logo(), PictureVariant.MEDIUM));
+        }
+        return categoryDto;
     }
 
     /**
@@ -103,15 +228,16 @@ public class CategoryService {
      *
      * @param newCategory the new category DTO
      * @param logo the category logo
+     * @param logoKey the key of a directly uploaded category logo, used instead of the logo file
      * @return the added CategoryDto
      */
-    public CategoryDto addCategory(CategoryDto newCategory, MultipartFile logo) {
+    public CategoryDto addCategory(CategoryDto newCategory, MultipartFile logo, String logoKey) {
         validateCategoryUniqueness(newCategory.getName());
 
-        Category category = createCategoryFromDto(newCategory, logo);
+        Category category = createCategoryFromDto(newCategory, logo, logoKey);
 
         Category savedCategory = categoryRepository.save(category);
-        cache.put(savedCategory.getId(), category);
+        cache.put(savedCategory.getId(), categoryMapper.mapToCategoryView(savedCategory, List.of()));
 
         return categoryMapper.mapToCategoryDto(savedCategory);
     }
@@ -121,11 +247,14 @@ public class CategoryService {
      *
      * @param newCategory the new category DTO
      * @param logo the category logo
+     * @param logoKey the key of the directly uploaded category logo
      * @return the created Category
      */
-    private Category createCategoryFromDto(CategoryDto newCategory, MultipartFile logo) {
+    private Category createCategoryFromDto(CategoryDto newCategory, MultipartFile logo, String logoKey) {
         Category category = new Category();
-        String categoryLogoKey = pictureService.uploadAndGetKey(logo);
+        String categoryLogoKey = logoKey != null
+                ? pictureService.claimUpload(logoKey)
+                : pictureService.uploadAndGetKey(logo);
         newCategory.setLogo(categoryLogoKey);
         categoryMapper.mapCategoryDtoToCategory(category, newCategory);
 
@@ -147,16 +276,26 @@ public class CategoryService {
 
     /**
      * Deletes a category by its ID.
+     * The category is locked and read with its products from the repository, not from the cache, so the logo
+     * references released are exactly those of the deleted rows, even while products are added or the
+     * category is deleted concurrently. The category and its products leave the cache and the search index
+     * once the transaction commits.
      *
      * @param id the category ID
      * @return a message indicating the category has been deleted
+     * @throws CategoryNotFoundException if the category is not found
      */
+    @Transactional
     public String deleteCategory(UUID id) {
-        Category category = cache.get(id).orElseGet(() -> getCategoryFromRepository(id));
+        categoryRepository.lockById(id).orElseThrow(() -> new CategoryNotFoundException(id.toString()));
+        Category category = getCategoryFromRepository(id);
 
         removeLogosFromStorage(category);
-        categoryRepository.delete(category);
-        cache.remove(id);
+        categoryRepository.deleteById(id);
+        afterCommit(() -> warmUpGuard.removeCategory(id, () -> {
+            cache.remove(id);
+            searchIndex.removeCategory(id);
+        }));
 
         return "Category with id " + id + " has been deleted";
     }
@@ -164,12 +303,47 @@ public class CategoryService {
     /**
      * Removes logos from storage for a given category.
      *
-     * @param category the category
+     * @param category the category with its products
      */
     private void removeLogosFromStorage(Category category) {
-        List<String> logoUrls = category.getProducts().stream().map(Product::getLogo).toList();
-        pictureService.deleteFilesFromS3(logoUrls);
-        pictureService.deleteFileFromS3(category.getLogo());
+        List<String> logoKeys = new ArrayList<>(category.getProducts().size() + 1);
+        category.getProducts().forEach(product -> logoKeys.add(product.getLogo()));
+        logoKeys.add(category.getLogo());
+        pictureService.deleteFilesFromS3(logoKeys);
+    }
+
+    /**
+     * Runs an action once the current transaction commits, or right away outside a transaction.
+     *
+     * @param action the action to run
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Retrieves a category with its products from the repository and builds its read model.
+     *
+     * @param id the category ID
+     * @return the CategoryView
+     * @throws CategoryNotFoundException if the category is not found
+     */
+    private CategoryView getCategoryViewFromRepository(UUID id) {
+        Category category = getCategoryFromRepository(id);
+        List<ProductView> products = category.getProducts().stream()
+                .map(productMapper::mapToProductView)
+                .toList();
+
+        return categoryMapper.mapToCategoryView(category, products);
     }
 
     /**
@@ -181,11 +355,8 @@ public class CategoryService {
      */
     public Category getCategoryFromRepository(UUID id) {
         logger.info("Fetching category with id {} from repository", id);
-        Category category = categoryRepository
+        return categoryRepository
                 .findByIdWithProducts(id)
                 .orElseThrow(() -> new CategoryNotFoundException(id.toString()));
-        this.cache.put(id, category);
-
-        return category;
     }
 }
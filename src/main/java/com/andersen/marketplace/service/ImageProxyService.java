@@ -0,0 +1,272 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.impl.ConcurrentCache;
+import com.andersen.marketplace.cache.model.CachedImage;
+import com.andersen.marketplace.properties.CacheProperties;
+import com.andersen.marketplace.properties.ImageProxyProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service serving pictures to consumers that cannot reach the storage directly.
+ * Pictures are copied from the {@link PictureService} to a size-bounded cache on local disk on first use,
+ * so repeated reads do not go back to the storage. Concurrent misses of the same key share one fetch.
+ * Pictures read often enough are memory-mapped and served from the page cache without a system call per read.
+ * A picture evicted between its lookup and its transfer is fetched again and served if its content is unchanged.
+ * <p>
+ * Only pictures referenced in the {@link PictureManifest} are served, so pending direct uploads and pictures
+ * queued for deletion stay private. Keys that could not be served are remembered for a short time,
+ * so repeated requests for unknown keys do not reach the storage.
+ */
+@Service
+public class ImageProxyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageProxyService.class);
+
+    private static final String FILE_SUFFIX = ".img";
+    private static final long MAX_MISSES = 10_000;
+
+    private final PictureService pictureService;
+    private final PictureManifest pictureManifest;
+    private final GenericCache<String, CachedImage> imageCache;
+    private final ConcurrentCache<String, Boolean> misses;
+    private final ImageProxyProperties imageProxyProperties;
+    private final Path directory;
+
+    /**
+     * Constructs a new ImageProxyService, removing the files cached by a previous run,
+     * as the cache index is only kept in memory.
+     *
+     * @param pictureService the picture service to fetch pictures from
+     * @param pictureManifest the manifest telling which pictures are referenced
+     * @param imageCache the cache of pictures on local disk
+     * @param imageProxyProperties the image proxy properties holding the cache directory, mapping
+     *                             and miss settings
+     * @throws UncheckedIOException if the cache directory cannot be prepared
+     */
+    public ImageProxyService(PictureService pictureService, PictureManifest pictureManifest,
+                             @Qualifier("imageCache") GenericCache<String, CachedImage> imageCache,
+                             ImageProxyProperties imageProxyProperties) {
+        this.pictureService = pictureService;
+        this.pictureManifest = pictureManifest;
+        this.imageCache = imageCache;
+        this.imageProxyProperties = imageProxyProperties;
+        CacheProperties.Spec missSpec = new CacheProperties.Spec(Math.max(1, imageProxyProperties.getMissTimeout()));
+        missSpec.setMaximumSize(MAX_MISSES);
+        this.misses = new ConcurrentCache<>(missSpec);
+        this.directory = Path.of(imageProxyProperties.getDirectory()).toAbsolutePath();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+                for (Path path : stale) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare image cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Stops the background sweep of the remembered misses.
+     */
+    @PreDestroy
+    public void close() {
+        misses.close();
+    }
+
+    /**
+     * Retrieves a picture from the disk cache, fetching it from the storage on a miss if it is referenced.
+     *
+     * @param key the file key
+     * @return the cached picture, or empty if no referenced picture is stored under the key
+     * @throws UncheckedIOException if the picture cannot be copied to the cache
+     */
+    public Optional<CachedImage> getImage(String key) {
+        if (key == null || key.isBlank() || misses.get(key).isPresent()) {
+            return Optional.empty();
+        }
+        CachedImage image = imageCache.get(key, this::fetch);
+        if (image == null) {
+            misses.put(key, Boolean.TRUE);
+        }
+        return Optional.ofNullable(image);
+    }
+
+    /**
+     * Writes a region of a cached picture to a channel, from its mapping once the picture is hot
+     * and from its file otherwise. If the file was deleted since the lookup, because the picture left the cache,
+     * the picture is fetched again and written if its entity tag is unchanged, so the response headers
+     * already sent stay correct.
+     *
+     * @param image the cached picture
+     * @param start the offset of the region
+     * @param count the length of the region
+     * @param out the channel to write to
+     * @throws IOException if the picture cannot be read or written, or changed since the lookup
+     */
+    public void transfer(CachedImage image, long start, long count, WritableByteChannel out) throws IOException {
+        transfer(image, start, count, out, true);
+    }
+
+    private void transfer(CachedImage image, long start, long count, WritableByteChannel out,
+                          boolean refetchIfMissing) throws IOException {
+        ByteBuffer mapping = mapping(image);
+        if (mapping != null) {
+            ByteBuffer region = mapping.duplicate();
+            region.position((int) start).limit((int) (start + count));
+            while (region.hasRemaining()) {
+                out.write(region);
+            }
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(image.getPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            if (!refetchIfMissing) {
+                throw e;
+            }
+            transfer(refetch(image, e), start, count, out, false);
+            return;
+        }
+        try (channel) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    throw new EOFException("Cached image " + image.getPath() + " ended before " + (start + count) + " bytes");
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Fetches a picture whose file is missing into the cache again, dropping the entry of the missing file
+     * if it is still cached.
+     *
+     * @param image the cached picture whose file is missing
+     * @param missing the exception reporting the missing file
+     * @return the cached picture with the same content
+     * @throws IOException if the picture is no longer stored or its content changed
+     */
+    private CachedImage refetch(CachedImage image, NoSuchFileException missing) throws IOException {
+        if (imageCache.get(image.getKey()).filter(cached -> cached == image).isPresent()) {
+            imageCache.remove(image.getKey());
+        }
+        logger.debug("Cached image {} was evicted while being served, fetching it again", image.getKey());
+        CachedImage current = imageCache.get(image.getKey(), this::fetch);
+        if (current == null || !current.getETag().equals(image.getETag())) {
+            IOException changed = new IOException("Image " + image.getKey() + " changed while being served");
+            changed.addSuppressed(missing);
+            throw changed;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the mapping of a picture, mapping it once it has been read often enough and is small enough.
+     * Concurrent readers may map the file more than once, in which case only one mapping is kept.
+     *
+     * @param image the cached picture
+     * @return the mapping, or null if the picture is read from its file
+     */
+    ByteBuffer mapping(CachedImage image) {
+        ByteBuffer mapping = image.getMapping();
+        if (mapping != null || image.getLength() == 0 || image.getLength() > Math.min(imageProxyProperties.getMapMaxSize(), Integer.MAX_VALUE)
+                || image.recordRead() < imageProxyProperties.getMapAfterReads()) {
+            return mapping;
+        }
+        try (FileChannel channel = FileChannel.open(image.getPath(), StandardOpenOption.READ)) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, image.getLength());
+        } catch (IOException e) {
+            logger.debug("Failed to map cached image {}", image.getPath(), e);
+            return null;
+        }
+        image.setMapping(mapping);
+        return mapping;
+    }
+
+    /**
+     * Copies a picture from the storage to a new file of the cache directory. The entity tag is derived from
+     * the content while it is copied, so it does not depend on the storage backend.
+     *
+     * @param key the file key
+     * @return the cached picture, or null if the picture is not referenced or not stored under the key
+     */
+    private CachedImage fetch(String key) {
+        if (!pictureManifest.isReferenced(key)) {
+            logger.debug("Image {} is not referenced, not serving it", key);
+            return null;
+        }
+        Optional<PictureContent> picture = pictureService.openPicture(key);
+        if (picture.isEmpty()) {
+            return null;
+        }
+        Path path = directory.resolve(UUID.randomUUID() + FILE_SUFFIX);
+        try (PictureContent content = picture.get()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long length;
+            try (InputStream in = new DigestInputStream(content.content(), digest)) {
+                length = Files.copy(in, path);
+            }
+            if (content.length() >= 0 && length != content.length()) {
+                throw new EOFException("Picture " + key + " ended after " + length + " of " + content.length() + " bytes");
+            }
+            String eTag = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+            String contentType = content.contentType() != null ? content.contentType() : contentType(path);
+            logger.debug("Cached image {} of {} bytes in {}", key, length, path);
+            return new CachedImage(key, path, length, contentType, eTag);
+        } catch (IOException e) {
+            deleteQuietly(path);
+            throw new UncheckedIOException("Failed to cache image " + key, e);
+        } catch (NoSuchAlgorithmException e) {
+            deleteQuietly(path);
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String contentType(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            String contentType = URLConnection.guessContentTypeFromStream(in);
+            return contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete file {}", path, e);
+        }
+    }
+}
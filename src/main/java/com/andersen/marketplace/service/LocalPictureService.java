@@ -0,0 +1,426 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.exception.InvalidPictureUploadException;
+import com.andersen.marketplace.properties.LocalStorageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Service implementation storing pictures on the local file system, selected with {@code pictures.storage=local}
+ * for installations without S3 and as a stand-in for the bucket in integration and performance tests.
+ * <p>
+ * Pictures are stored under their content key in two levels of shard directories, {@code <root>/ab/cd/<key>},
+ * so no directory grows beyond a few entries per thousand pictures. References are counted in the
+ * {@link PictureManifest} exactly like for S3, and the pictures are served by the picture endpoint,
+ * so their URLs are stable and need no signing. Variants are not generated; their URLs resolve to the original.
+ */
+@Service
+@ConditionalOnProperty(prefix = "pictures", name = "storage", havingValue = "local")
+public class LocalPictureService implements PictureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalPictureService.class);
+
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path root;
+    private final String baseUrl;
+    private final long maxUploadSize;
+    private final PictureManifest pictureManifest;
+
+    /**
+     * Constructs a new LocalPictureService.
+     *
+     * @param localStorageProperties the local storage properties holding the root directory and the base URL
+     * @param pictureManifest the manifest counting the references to pictures
+     */
+    public LocalPictureService(LocalStorageProperties localStorageProperties, PictureManifest pictureManifest) {
+        this.root = Path.of(localStorageProperties.getRoot()).toAbsolutePath().normalize();
+        this.baseUrl = localStorageProperties.getBaseUrl();
+        this.maxUploadSize = localStorageProperties.getMaxUploadSize();
+        this.pictureManifest = pictureManifest;
+    }
+
+    /**
+     * Stores a file and returns its key, the SHA-256 checksum of the content.
+     * The content is hashed while it is written to a temporary file in a single pass, and the file is then
+     * moved atomically into its shard directory, unless the same content is already stored.
+     *
+     * @param file the file to store
+     * @return the file key
+     * @throws IllegalArgumentException if the file is null or empty
+     * @throws RuntimeException if the file cannot be stored
+     */
+    @Override
+    public String uploadAndGetKey(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            logger.error("File is null or empty");
+            throw new IllegalArgumentException("File is null or empty");
+        }
+        Path temp = null;
+        String fileKey = null;
+        try {
+            Path tempDirectory = Files.createDirectories(root.resolve(TEMP_DIRECTORY));
+            temp = Files.createTempFile(tempDirectory, "upload", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            fileKey = HexFormat.of().formatHex(digest.digest());
+
+            Path target = resolve(fileKey);
+            if (pictureManifest.addReference(fileKey) > 1 && Files.isRegularFile(target)) {
+                logger.info("File {} is already stored with key {}, skipping write", file.getOriginalFilename(), fileKey);
+                return fileKey;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            pictureManifest.recordUpload(fileKey, size, fileKey);
+            logger.info("File stored successfully with key {}", fileKey);
+            return fileKey;
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            logger.error("Failed to store file {}", file.getOriginalFilename(), e);
+            if (fileKey != null) {
+                releaseReferences(Map.of(fileKey, 1L));
+            }
+            throw new RuntimeException("Failed to store file", e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Creates a pending upload under a random key. The client sends the picture to the picture endpoint
+     * with a PUT request, which stores it through {@link #storeUpload(String, InputStream)}.
+     *
+     * @param contentType the content type of the picture
+     * @return the key of the pending upload and the request to send the picture with
+     * @throws InvalidPictureUploadException if the content type is not an image type
+     */
+    @Override
+    public PictureUploadDto createUpload(String contentType) {
+        String key = UUID.randomUUID().toString();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new InvalidPictureUploadException(key, "content type " + contentType + " is not an image type");
+        }
+        return new PictureUploadDto(key, baseUrl + key, HttpMethod.PUT.name(),
+                Map.of(HttpHeaders.CONTENT_TYPE, contentType), null);
+    }
+
+    /**
+     * Stores the content of a pending upload. Every upload key can be written once, and the content
+     * is limited to the maximum upload size.
+     *
+     * @param key the key of the pending upload
+     * @param content the content of the picture
+     * @throws InvalidPictureUploadException if the key is not an upload key, was already written,
+     *         or the content is too large
+     * @throws IOException if the content cannot be stored
+     */
+    public void storeUpload(String key, InputStream content) throws IOException {
+        if (!isUploadKey(key)) {
+            throw new InvalidPictureUploadException(key, "not an upload key");
+        }
+        Path target = resolve(key);
+        if (Files.exists(target)) {
+            throw new InvalidPictureUploadException(key, "picture was already uploaded");
+        }
+        Path temp = Files.createTempFile(Files.createDirectories(root.resolve(TEMP_DIRECTORY)), "upload", ".tmp");
+        try {
+            try (InputStream in = content; OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long size = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxUploadSize) {
+                        throw new InvalidPictureUploadException(key, "picture exceeds " + maxUploadSize + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target);
+        } catch (FileAlreadyExistsException e) {
+            throw new InvalidPictureUploadException(key, "picture was already uploaded");
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Claims a picture stored with {@link #storeUpload(String, InputStream)}. The first claim records
+     * the picture in the manifest, further claims only add references.
+     *
+     * @param key the key of the pending upload
+     * @return the file key
+     * @throws InvalidPictureUploadException if the key is not an upload key or the picture was not uploaded
+     */
+    @Override
+    public String claimUpload(String key) {
+        if (!isUploadKey(key)) {
+            throw new InvalidPictureUploadException(key, "not an upload key");
+        }
+        Path path = findPicture(key)
+                .orElseThrow(() -> new InvalidPictureUploadException(key, "picture was not uploaded"));
+        try {
+            long size = Files.size(path);
+            if (pictureManifest.addReference(key) == 1) {
+                pictureManifest.recordUpload(key, size, null);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file " + path, e);
+        }
+        return key;
+    }
+
+    /**
+     * Removes a reference to a file, deleting it once no reference is left.
+     *
+     * @param key the file key
+     */
+    @Override
+    public void deleteFileFromS3(String key) {
+        if (key != null) {
+            deleteFilesFromS3(List.of(key));
+        }
+    }
+
+    /**
+     * Removes one reference per occurrence of a key. The manifest entries of the files left without references
+     * are removed as part of the caller's transaction, and the files themselves once it commits.
+     *
+     * @param keys the list of file keys
+     */
+    @Override
+    @Transactional
+    public void deleteFilesFromS3(List<String> keys) {
+        if (keys != null && !keys.isEmpty()) {
+            releaseReferences(keys.stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(Function.identity(), LinkedHashMap::new, Collectors.counting())));
+        }
+    }
+
+    /**
+     * Opens the file of a stored picture. The content type is not recorded for local files and left to the reader.
+     *
+     * @param key the file key
+     * @return the content of the picture, or empty if the picture is not stored
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    @Override
+    public Optional<PictureContent> openPicture(String key) {
+        Optional<Path> picture = findPicture(key);
+        if (picture.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            long length = Files.size(picture.get());
+            return Optional.of(new PictureContent(Files.newInputStream(picture.get()), length, null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open picture " + key, e);
+        }
+    }
+
+    /**
+     * Retrieves the URL of a picture served by the picture endpoint.
+     *
+     * @param key the file key
+     * @return the URL of the picture, or null if the picture is not stored
+     * @throws IllegalArgumentException if the key is null
+     */
+    @Override
+    public String getPictureUrl(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null");
+        }
+        if (findPicture(key).isEmpty()) {
+            logger.warn("Picture key {} doesn't exist in {}", key, root);
+            return null;
+        }
+        return baseUrl + UriUtils.encodePathSegment(key, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the URLs of multiple pictures. Every lookup is a local file check, so the keys are resolved
+     * on the calling thread.
+     *
+     * @param keys the file keys
+     * @return the URLs of the pictures by key
+     */
+    @Override
+    public Map<String, String> getPictureUrls(Collection<String> keys) {
+        Map<String, String> urls = new HashMap<>();
+        keys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(key -> {
+                    String url = getPictureUrl(key);
+                    if (url != null) {
+                        urls.put(key, url);
+                    }
+                });
+        return urls;
+    }
+
+    /**
+     * Retrieves the URL of the original picture, as variants are not generated by this backend.
+     *
+     * @param key the file key of the original picture
+     * @param variant the picture variant
+     * @return the URL of the original picture
+     * @throws IllegalArgumentException if the key is null
+     */
+    @Override
+    public String getPictureUrl(String key, PictureVariant variant) {
+        return getPictureUrl(key);
+    }
+
+    /**
+     * Retrieves the URLs of the original pictures, as variants are not generated by this backend.
+     *
+     * @param keys the file keys of the original pictures
+     * @param variant the picture variant
+     * @return the URLs of the original pictures by key
+     */
+    @Override
+    public Map<String, String> getPictureUrls(Collection<String> keys, PictureVariant variant) {
+        return getPictureUrls(keys);
+    }
+
+    /**
+     * Finds the file of a stored picture.
+     *
+     * @param key the file key
+     * @return the path of the file, or empty if the key is invalid or the picture is not stored
+     */
+    public Optional<Path> findPicture(String key) {
+        if (!isValidKey(key)) {
+            return Optional.empty();
+        }
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Resolves the path of a picture in its shard directory. Content keys are sharded by their own prefix,
+     * other keys by the prefix of their SHA-256 checksum.
+     *
+     * @param key the file key
+     * @return the path of the file
+     */
+    Path resolve(String key) {
+        if (!isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid picture key " + key);
+        }
+        String shard = CONTENT_KEY.matcher(key).matches() ? key : sha256(key);
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(key);
+    }
+
+    /**
+     * Removes references to files, deleting the files left without references once the transaction commits.
+     *
+     * @param references the number of references to remove by file key
+     */
+    private void releaseReferences(Map<String, Long> references) {
+        List<String> unreferenced = references.entrySet().stream()
+                .filter(reference -> pictureManifest.releaseReferences(reference.getKey(), reference.getValue().intValue()) == 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        unreferenced.forEach(pictureManifest::recordDeletion);
+        afterCommit(() -> unreferenced.stream()
+                .filter(this::isValidKey)
+                .map(this::resolve)
+                .forEach(this::deleteQuietly));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete file {}", path, e);
+        }
+    }
+
+    private static boolean isUploadKey(String key) {
+        try {
+            return key != null && UUID.fromString(key).toString().equals(key);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean isValidKey(String key) {
+        return key != null && !key.isEmpty() && !key.equals(".") && !key.equals("..")
+                && key.indexOf('/') < 0 && key.indexOf('\\') < 0 && key.indexOf('\0') < 0;
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a keyset page: the sort key of the last row of the previous page.
+ * Clients receive it as an opaque URL-safe token and send it back unchanged to get the next page.
+ *
+ * @param name the name of the last row
+ * @param id the ID of the last row, breaking ties between equal names
+ */
+public record PageCursor(String name, UUID id) {
+
+    private static final int ID_LENGTH = 36;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Encodes the cursor as an opaque token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token returned by {@link #encode()}.
+     *
+     * @param cursor the token
+     * @return the cursor
+     * @throws InvalidCursorException if the token was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.length() < ID_LENGTH) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new PageCursor(decoded.substring(ID_LENGTH), UUID.fromString(decoded.substring(0, ID_LENGTH)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    /**
+     * Bounds a requested page size to the range served by keyset pages.
+     *
+     * @param size the requested page size
+     * @return the page size to use
+     */
+    public static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+}
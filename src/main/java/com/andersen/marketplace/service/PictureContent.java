@@ -0,0 +1,20 @@
+package com.andersen.marketplace.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content of a stored picture, opened for reading.
+ *
+ * @param content the stream of the picture bytes, to be closed by the caller
+ * @param length the length of the picture in bytes
+ * @param contentType the stored content type of the picture, or null if unknown
+ */
+public record PictureContent(InputStream content, long length, String contentType) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
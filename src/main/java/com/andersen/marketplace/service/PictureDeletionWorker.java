@@ -0,0 +1,157 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.entity.PictureDeletion;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureDeletionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Background job draining the picture deletion outbox.
+ * Due deletions are removed from the bucket with one multi-object delete request per batch;
+ * failed keys are retried with exponential backoff and given up after {@value #MAX_ATTEMPTS} attempts.
+ */
+@Component
+@ConditionalOnS3Storage
+public class PictureDeletionWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureDeletionWorker.class);
+
+    /**
+     * The maximum number of keys S3 accepts in one multi-object delete request.
+     */
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_ATTEMPTS = 10;
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(5);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final AmazonS3 amazonS3;
+    private final S3BucketProperties s3BucketProperties;
+    private final PictureDeletionRepository pictureDeletionRepository;
+    private final PictureManifest pictureManifest;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructs a new PictureDeletionWorker.
+     *
+     * @param amazonS3 the Amazon S3 client
+     * @param s3BucketProperties the S3 bucket properties
+     * @param pictureDeletionRepository the picture deletion outbox repository
+     * @param pictureManifest the picture manifest to update after deleting
+     * @param transactionManager the transaction manager, each batch being drained in its own transaction
+     */
+    public PictureDeletionWorker(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties,
+                                 PictureDeletionRepository pictureDeletionRepository,
+                                 PictureManifest pictureManifest, PlatformTransactionManager transactionManager) {
+        this.amazonS3 = amazonS3;
+        this.s3BucketProperties = s3BucketProperties;
+        this.pictureDeletionRepository = pictureDeletionRepository;
+        this.pictureManifest = pictureManifest;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Drains the due deletions batch by batch until fewer than a full batch is due.
+     */
+    @Scheduled(fixedDelayString = "${pictures.deletion.interval:5000}")
+    public void drain() {
+        Integer drained;
+        do {
+            drained = transactionTemplate.execute(status -> drainBatch());
+        } while (drained != null && drained == BATCH_SIZE);
+    }
+
+    /**
+     * Deletes one batch of due pictures from the bucket. The outbox rows stay locked until the
+     * transaction ends, so other instances skip them instead of deleting the same keys.
+     * The manifest entries are locked as well, so an upload of the same content waits for the deletion
+     * instead of reusing an object about to be deleted; pictures referenced again meanwhile are kept.
+     *
+     * @return the number of deletions in the batch
+     */
+    private int drainBatch() {
+        Instant now = Instant.now();
+        List<PictureDeletion> deletions = pictureDeletionRepository.findDueForUpdate(now, BATCH_SIZE);
+        if (deletions.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = deletions.stream().map(PictureDeletion::getPictureKey).distinct().toList();
+        Set<String> referenced = pictureManifest.lockReferencedKeys(keys);
+        List<String> unreferenced = keys.stream().filter(key -> !referenced.contains(key)).toList();
+        Map<String, String> errors = unreferenced.isEmpty() ? Map.of() : deleteObjects(unreferenced);
+        int failed = 0;
+        for (PictureDeletion deletion : deletions) {
+            String error = errors.get(deletion.getPictureKey());
+            if (referenced.contains(deletion.getPictureKey())) {
+                logger.debug("Picture {} was referenced again, keeping it", deletion.getPictureKey());
+                pictureDeletionRepository.delete(deletion);
+            } else if (error == null) {
+                pictureDeletionRepository.delete(deletion);
+                pictureManifest.recordDeletion(deletion.getPictureKey());
+            } else if (deletion.getAttempts() + 1 >= MAX_ATTEMPTS) {
+                logger.error("Giving up deleting picture {} after {} attempts: {}",
+                        deletion.getPictureKey(), MAX_ATTEMPTS, error);
+                pictureDeletionRepository.delete(deletion);
+                failed++;
+            } else {
+                deletion.recordFailure(error, now.plus(backoff(deletion.getAttempts() + 1)));
+                pictureDeletionRepository.save(deletion);
+                failed++;
+            }
+        }
+        logger.info("Deleted {} of {} pictures from bucket {}", unreferenced.size() - failed, keys.size(),
+                s3BucketProperties.getBucketName());
+        return deletions.size();
+    }
+
+    /**
+     * Deletes objects from the bucket with a single multi-object delete request.
+     * Keys that no longer exist count as deleted.
+     *
+     * @param keys the keys, at most {@value #BATCH_SIZE}
+     * @return the error messages of the keys that could not be deleted
+     */
+    private Map<String, String> deleteObjects(List<String> keys) {
+        Map<String, String> errors = new HashMap<>();
+        DeleteObjectsRequest request = new DeleteObjectsRequest(s3BucketProperties.getBucketName())
+                .withKeys(keys.toArray(String[]::new))
+                .withQuiet(true);
+        try {
+            amazonS3.deleteObjects(request);
+        } catch (MultiObjectDeleteException e) {
+            e.getErrors().forEach(error -> errors.put(error.getKey(), error.getCode() + ": " + error.getMessage()));
+        } catch (SdkClientException e) {
+            logger.warn("Failed to delete {} pictures from bucket {}", keys.size(), s3BucketProperties.getBucketName(), e);
+            keys.forEach(key -> errors.put(key, e.getMessage()));
+        }
+        return errors;
+    }
+
+    /**
+     * Computes the delay before the given attempt, doubling with every failed attempt.
+     *
+     * @param attempt the number of failed attempts
+     * @return the delay before the next attempt
+     */
+    static Duration backoff(int attempt) {
+        Duration delay = INITIAL_BACKOFF.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) < 0 ? delay : MAX_BACKOFF;
+    }
+}
@@ -0,0 +1,267 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.impl.ConcurrentCache;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.properties.CacheProperties;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates the resized and recompressed {@link PictureVariant variants} of uploaded pictures on a bounded pool,
+ * off the request thread. The original is decoded once, subsampled while decoding to about twice the size
+ * of the largest variant, and every variant is written as a JPEG and recorded in the picture manifest.
+ */
+@Component
+@ConditionalOnS3Storage
+public class PictureDerivativeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureDerivativeGenerator.class);
+
+    private static final String CONTENT_TYPE = "image/jpeg";
+    private static final float QUALITY = 0.8f;
+    private static final long MAX_FAILED_KEYS = 10_000;
+    private static final List<PictureVariant> LARGEST_FIRST = Arrays.stream(PictureVariant.values())
+            .sorted(Comparator.comparingInt(PictureVariant::getMaxEdge).reversed())
+            .toList();
+
+    private final AmazonS3 amazonS3;
+    private final S3BucketProperties s3BucketProperties;
+    private final PictureManifest pictureManifest;
+    private final GenericCache<String, String> urlCache;
+    private final ExecutorService derivativeExecutor;
+    private final ConcurrentCache<String, Boolean> failedKeys;
+
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new PictureDerivativeGenerator.
+     *
+     * @param amazonS3 the Amazon S3 client
+     * @param s3BucketProperties the S3 bucket properties holding the retry delay of failed pictures
+     * @param pictureManifest the manifest recording the generated variants
+     * @param urlCache the cache of presigned URLs, invalidated for generated variants
+     * @param derivativeExecutor the executor generating the variants
+     */
+    public PictureDerivativeGenerator(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties,
+                                      PictureManifest pictureManifest,
+                                      @Qualifier("pictureUrlCache") GenericCache<String, String> urlCache,
+                                      @Qualifier("pictureDerivativeExecutor") ExecutorService derivativeExecutor) {
+        this.amazonS3 = amazonS3;
+        this.s3BucketProperties = s3BucketProperties;
+        this.pictureManifest = pictureManifest;
+        this.urlCache = urlCache;
+        this.derivativeExecutor = derivativeExecutor;
+        this.failedKeys = new ConcurrentCache<>(failedKeysSpec(s3BucketProperties.getDerivativeRetryDelay()));
+    }
+
+    /**
+     * Builds the settings of the cache of failed pictures: entries expire after the retry delay,
+     * and the least valuable ones are evicted beyond a fixed number of keys.
+     *
+     * @param retryDelay the time in milliseconds after which a failed picture is tried again
+     * @return the cache settings
+     */
+    private static CacheProperties.Spec failedKeysSpec(long retryDelay) {
+        CacheProperties.Spec spec = new CacheProperties.Spec(Math.max(1, retryDelay));
+        spec.setMaximumSize(MAX_FAILED_KEYS);
+        return spec;
+    }
+
+    /**
+     * Stops the background sweep of the failed pictures.
+     */
+    @PreDestroy
+    public void close() {
+        failedKeys.close();
+    }
+
+    /**
+     * Schedules the generation of the variants of a picture. Pictures already scheduled, or that were missing
+     * from the bucket or could not be decoded within the retry delay, are skipped. When the pool is saturated
+     * or the bucket fails, the request is dropped and retried the next time a variant URL of the picture
+     * is requested.
+     *
+     * @param key the key of the original picture
+     */
+    public void generateAsync(String key) {
+        if (key == null || failedKeys.get(key).isPresent() || !pendingKeys.add(key)) {
+            return;
+        }
+        try {
+            derivativeExecutor.execute(() -> {
+                try {
+                    generate(key);
+                } finally {
+                    pendingKeys.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingKeys.remove(key);
+            logger.debug("Derivative pool is saturated, skipping variants of {}", key);
+        }
+    }
+
+    /**
+     * Generates and uploads the variants of a picture.
+     *
+     * @param key the key of the original picture
+     */
+    void generate(String key) {
+        String bucketName = s3BucketProperties.getBucketName();
+        try (S3Object original = amazonS3.getObject(bucketName, key)) {
+            BufferedImage image = decode(original.getObjectContent(), LARGEST_FIRST.get(0).getMaxEdge() * 2);
+            if (image == null) {
+                logger.warn("Picture {} is not a readable image, no variants generated", key);
+                failedKeys.put(key, Boolean.TRUE);
+                return;
+            }
+            for (PictureVariant variant : LARGEST_FIRST) {
+                image = resize(image, variant.getMaxEdge());
+                upload(variant.keyOf(key), encode(image));
+            }
+            logger.info("Generated variants of picture {}", key);
+        } catch (IOException e) {
+            logger.warn("Failed to decode picture {}, no variants generated", key, e);
+            failedKeys.put(key, Boolean.TRUE);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND.value()) {
+                logger.warn("Failed to generate variants of picture {}", key, e);
+                return;
+            }
+            logger.warn("Picture {} is not in the bucket, no variants generated", key);
+            failedKeys.put(key, Boolean.TRUE);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to generate variants of picture {}", key, e);
+        }
+    }
+
+    private void upload(String key, byte[] content) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setContentType(CONTENT_TYPE);
+        amazonS3.putObject(s3BucketProperties.getBucketName(), key, new ByteArrayInputStream(content), metadata);
+        pictureManifest.recordUpload(key, content.length, sha256(content));
+        urlCache.remove(key);
+    }
+
+    /**
+     * Decodes an image, subsampling rows and columns while reading so that large originals
+     * are never held in memory at full resolution.
+     *
+     * @param content the encoded image
+     * @param targetEdge the edge length the decoded image should not be much smaller than
+     * @return the decoded image, or null if the content is not a supported image
+     * @throws IOException if the content cannot be read
+     */
+    static BufferedImage decode(InputStream content, int targetEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / targetEdge);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image down to fit the given edge length, halving it step by step first to keep quality
+     * with bilinear interpolation. Transparent areas are flattened onto white, as JPEG has no alpha.
+     *
+     * @param image the image
+     * @param maxEdge the maximum width and height
+     * @return the scaled image
+     */
+    static BufferedImage resize(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.model.CachedImage;
+import com.andersen.marketplace.entity.Picture;
+import com.andersen.marketplace.entity.PictureStatus;
+import com.andersen.marketplace.repository.PictureRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the upload state of the pictures written through the application, so that
+ * picture URLs can be signed without asking the bucket whether the picture exists.
+ * Every picture is assumed to be uploaded unless the reconciler has marked it missing;
+ * only the keys of missing pictures are held in memory.
+ * <p>
+ * Pictures left without references and deleted pictures are dropped from the local image cache,
+ * both right away and once the deleting transaction commits, so the image proxy does not keep serving them.
+ */
+@Component
+public class PictureManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureManifest.class);
+
+    private final PictureRepository pictureRepository;
+    private final GenericCache<String, CachedImage> imageCache;
+
+    private volatile Set<String> missingKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new PictureManifest.
+     *
+     * @param pictureRepository the picture repository
+     * @param imageCache the cache of pictures on local disk, invalidated for deleted pictures
+     */
+    public PictureManifest(PictureRepository pictureRepository,
+                           @Qualifier("imageCache") GenericCache<String, CachedImage> imageCache) {
+        this.pictureRepository = pictureRepository;
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * Records a picture uploaded to the bucket.
+     *
+     * @param key the picture key
+     * @param size the size in bytes
+     * @param checksum the checksum of the content
+     */
+    public void recordUpload(String key, long size, String checksum) {
+        pictureRepository.save(new Picture(key, PictureStatus.UPLOADED, size, checksum));
+        missingKeys.remove(key);
+    }
+
+    /**
+     * Adds a reference to a picture by its content key, creating the manifest entry on first use.
+     * The entry is only locked until the surrounding transaction ends, which callers outside a transaction
+     * commit right away; the count does not tell whether the content is uploaded yet, so callers check
+     * {@link #isRecorded(String)} before relying on it.
+     *
+     * @param key the picture key
+     * @return the number of references including the new one
+     */
+    @Transactional
+    public int addReference(String key) {
+        pictureRepository.addReference(key);
+        return pictureRepository.findRefCount(key);
+    }
+
+    /**
+     * Removes references to a picture.
+     *
+     * @param key the picture key
+     * @param count the number of references to remove
+     * @return the number of remaining references, zero if the picture has no manifest entry
+     */
+    @Transactional
+    public int releaseReferences(String key, int count) {
+        pictureRepository.releaseReferences(key, count);
+        Integer references = pictureRepository.findRefCount(key);
+        if (references == null || references == 0) {
+            evictImage(key);
+        }
+        return references != null ? references : 0;
+    }
+
+    /**
+     * Locks the manifest entries of pictures about to be deleted, so no reference can be added
+     * until the deletion commits, and returns the pictures that were referenced again meanwhile.
+     *
+     * @param keys the picture keys
+     * @return the keys of the pictures that are referenced
+     */
+    public Set<String> lockReferencedKeys(Collection<String> keys) {
+        return new HashSet<>(pictureRepository.lockReferencedKeys(keys));
+    }
+
+    /**
+     * Records a picture deleted from the bucket.
+     *
+     * @param key the picture key
+     */
+    public void recordDeletion(String key) {
+        pictureRepository.deleteById(key);
+        missingKeys.remove(key);
+        evictImage(key);
+    }
+
+    /**
+     * Checks whether a picture is uploaded, without any network I/O.
+     *
+     * @param key the picture key
+     * @return false if the picture is known to be missing, true otherwise
+     */
+    public boolean isUploaded(String key) {
+        return !missingKeys.contains(key);
+    }
+
+    /**
+     * Checks whether the manifest holds an uploaded entry for a picture.
+     * Unlike {@link #isUploaded(String)}, unknown keys count as not uploaded, which suits pictures
+     * generated in the background; this lookup queries the database.
+     *
+     * @param key the picture key
+     * @return true if the picture is recorded as uploaded
+     */
+    public boolean isRecorded(String key) {
+        return !missingKeys.contains(key) && pictureRepository.existsByKeyAndStatus(key, PictureStatus.UPLOADED);
+    }
+
+    /**
+     * Checks whether a picture is referenced by a product or category and not known to be missing.
+     * Pending direct uploads and pictures left without references count as not referenced;
+     * this lookup queries the database.
+     *
+     * @param key the picture key
+     * @return true if the picture is referenced
+     */
+    public boolean isReferenced(String key) {
+        if (missingKeys.contains(key)) {
+            return false;
+        }
+        Integer references = pictureRepository.findRefCount(key);
+        return references != null && references > 0;
+    }
+
+    /**
+     * Drops a picture from the local image cache now and again after the current transaction commits,
+     * in case it was fetched again before the deletion became visible.
+     *
+     * @param key the picture key
+     */
+    private void evictImage(String key) {
+        imageCache.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    imageCache.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reloads the keys of the missing pictures, picking up the changes made by the reconciler
+     * on any instance.
+     */
+    @Scheduled(fixedDelayString = "${pictures.manifest.refresh-interval:60000}")
+    public void refresh() {
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        keys.addAll(pictureRepository.findKeysByStatus(PictureStatus.MISSING));
+        missingKeys = keys;
+        logger.debug("Loaded {} missing picture keys", keys.size());
+    }
+}
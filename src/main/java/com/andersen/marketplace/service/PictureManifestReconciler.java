@@ -0,0 +1,129 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.entity.Picture;
+import com.andersen.marketplace.entity.PictureStatus;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Background job finding drift between the picture manifest and the bucket.
+ * Manifest entries not found in the bucket are marked missing, entries found again are marked uploaded,
+ * and objects in the bucket without a manifest entry are reported as orphans.
+ * It runs on a single instance, enabled by {@code pictures.reconcile.enabled}.
+ */
+@Component
+@ConditionalOnS3Storage
+@ConditionalOnProperty(prefix = "pictures.reconcile", name = "enabled", havingValue = "true")
+public class PictureManifestReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureManifestReconciler.class);
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final Duration RECENT_CHANGE_MARGIN = Duration.ofMinutes(5);
+
+    private final AmazonS3 amazonS3;
+    private final S3BucketProperties s3BucketProperties;
+    private final PictureRepository pictureRepository;
+    private final PictureManifest pictureManifest;
+
+    /**
+     * Constructs a new PictureManifestReconciler.
+     *
+     * @param amazonS3 the Amazon S3 client
+     * @param s3BucketProperties the S3 bucket properties
+     * @param pictureRepository the picture repository
+     * @param pictureManifest the picture manifest to refresh after reconciling
+     */
+    public PictureManifestReconciler(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties,
+                                     PictureRepository pictureRepository, PictureManifest pictureManifest) {
+        this.amazonS3 = amazonS3;
+        this.s3BucketProperties = s3BucketProperties;
+        this.pictureRepository = pictureRepository;
+        this.pictureManifest = pictureManifest;
+    }
+
+    /**
+     * Compares the manifest with a listing of the bucket and fixes the status of drifted entries.
+     * Entries changed shortly before or during the listing are not marked missing,
+     * as their upload may not be part of the listing.
+     */
+    @Scheduled(initialDelayString = "${pictures.reconcile.initial-delay:300000}",
+            fixedDelayString = "${pictures.reconcile.interval:3600000}")
+    public void reconcile() {
+        Instant recentChangesFrom = Instant.now().minus(RECENT_CHANGE_MARGIN);
+        Set<String> bucketKeys = listBucketKeys();
+        int missing = 0;
+        int restored = 0;
+        String after = "";
+        List<Picture> chunk;
+        do {
+            chunk = pictureRepository.findByKeyGreaterThanOrderByKeyAsc(after, PageRequest.of(0, CHUNK_SIZE));
+            for (Picture picture : chunk) {
+                PictureStatus status = bucketKeys.remove(picture.getKey()) ? PictureStatus.UPLOADED : PictureStatus.MISSING;
+                if (status == PictureStatus.MISSING && isRecentlyChanged(picture, recentChangesFrom)) {
+                    continue;
+                }
+                if (picture.getStatus() != status) {
+                    if (status == PictureStatus.MISSING) {
+                        missing++;
+                    } else if (picture.getStatus() == PictureStatus.MISSING) {
+                        restored++;
+                    }
+                    picture.setStatus(status);
+                    pictureRepository.save(picture);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1).getKey();
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+
+        if (missing > 0 || restored > 0 || !bucketKeys.isEmpty()) {
+            logger.warn("Picture manifest drift: {} newly missing, {} found again, {} orphaned objects in bucket",
+                    missing, restored, bucketKeys.size());
+        } else {
+            logger.info("Picture manifest is in sync with the bucket");
+        }
+        pictureManifest.refresh();
+    }
+
+    private static boolean isRecentlyChanged(Picture picture, Instant recentChangesFrom) {
+        return picture.getUpdatedAt() != null && picture.getUpdatedAt().isAfter(recentChangesFrom);
+    }
+
+    /**
+     * Lists the keys of all objects in the bucket, a thousand keys per request.
+     *
+     * @return the object keys
+     */
+    private Set<String> listBucketKeys() {
+        Set<String> keys = new HashSet<>();
+        ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(s3BucketProperties.getBucketName());
+        ListObjectsV2Result result;
+        do {
+            result = amazonS3.listObjectsV2(request);
+            for (S3ObjectSummary summary : result.getObjectSummaries()) {
+                keys.add(summary.getKey());
+            }
+            request.setContinuationToken(result.getNextContinuationToken());
+        } while (result.isTruncated());
+        return keys;
+    }
+}
@@ -1,8 +1,12 @@
 package com.andersen.marketplace.service;
 
+import com.andersen.marketplace.dto.PictureUploadDto;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Service interface for managing pictures.
@@ -10,7 +14,7 @@ import java.util.List;
 public interface PictureService {
 
     /**
-     * Uploads a file to S3 and returns the file key.
+     * Uploads a file to S3 and returns the file key, derived from the content of the file.
      *
      * @param file the file to upload
      * @return the file key
@@ -19,19 +23,49 @@ public interface PictureService {
     String uploadAndGetKey(MultipartFile file);
 
     /**
-     * Deletes a file from S3 by its key.
+     * Creates a pending upload the client sends directly to the storage, so the picture bytes do not pass
+     * through the application.
+     *
+     * @param contentType the content type of the picture
+     * @return the key of the pending upload and the request to send the picture with
+     * @throws com.andersen.marketplace.exception.InvalidPictureUploadException if the content type is not an image type
+     */
+    PictureUploadDto createUpload(String contentType);
+
+    /**
+     * Claims a picture uploaded directly to the storage, verifying that it exists and adding a reference to it.
+     * The returned key may differ from the upload key, and only it may be stored.
+     *
+     * @param key the key of the pending upload
+     * @return the file key
+     * @throws com.andersen.marketplace.exception.InvalidPictureUploadException if the key is not an upload key,
+     *         or the picture is missing or too large
+     */
+    String claimUpload(String key);
+
+    /**
+     * Removes a reference to a file, scheduling it for deletion from S3 when no reference is left.
      *
      * @param key the file key
      */
     void deleteFileFromS3(String key);
 
     /**
-     * Deletes multiple files from S3 by their keys.
+     * Removes one reference per occurrence of a key, scheduling the files left without references for deletion.
+     * The files are deleted in the background once the calling transaction commits.
      *
      * @param keys the list of file keys
      */
     void deleteFilesFromS3(List<String> keys);
 
+    /**
+     * Opens a stored picture for reading its content.
+     *
+     * @param key the file key
+     * @return the content of the picture, or empty if no picture is stored under the key
+     */
+    Optional<PictureContent> openPicture(String key);
+
     /**
      * Retrieves the URL of a picture by its key.
      *
@@ -40,4 +74,33 @@ public interface PictureService {
      * @throws IllegalArgumentException if the key is null
      */
     String getPictureUrl(String key);
+
+    /**
+     * Retrieves the URLs of multiple pictures by their keys, resolving them concurrently.
+     * Keys that are null, missing or not resolved within the batch deadline are absent from the result.
+     *
+     * @param keys the file keys
+     * @return the URLs of the pictures by key
+     */
+    Map<String, String> getPictureUrls(Collection<String> keys);
+
+    /**
+     * Retrieves the URL of a variant of a picture, falling back to the original while the variant is not generated.
+     *
+     * @param key the file key of the original picture
+     * @param variant the picture variant
+     * @return the URL of the variant or of the original picture
+     * @throws IllegalArgumentException if the key is null
+     */
+    String getPictureUrl(String key, PictureVariant variant);
+
+    /**
+     * Retrieves the URLs of a variant of multiple pictures, resolving them concurrently.
+     * Pictures whose variant is not generated yet resolve to the URL of the original.
+     *
+     * @param keys the file keys of the original pictures
+     * @param variant the picture variant
+     * @return the URLs of the variants by key of the original picture
+     */
+    Map<String, String> getPictureUrls(Collection<String> keys, PictureVariant variant);
 }
@@ -2,43 +2,112 @@ package com.andersen.marketplace.service;
 
 import com.amazonaws.HttpMethod;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.entity.PictureDeletion;
+import com.andersen.marketplace.exception.InvalidPictureUploadException;
 import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureDeletionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for managing pictures in Amazon S3.
  */
 @Service
+@ConditionalOnS3Storage
 public class PictureServiceImpl implements PictureService {
 
     private static final Logger logger = LoggerFactory.getLogger(PictureServiceImpl.class);
 
+    /**
+     * Prefix of the keys claimed uploads are copied to, which are never accepted as upload keys.
+     */
+    static final String CLAIMED_KEY_PREFIX = "pictures/";
+
     private final AmazonS3 amazonS3;
     private final S3BucketProperties s3BucketProperties;
+    private final GenericCache<String, String> urlCache;
+    private final PictureManifest pictureManifest;
+    private final ExecutorService urlExecutor;
+    private final PictureDeletionRepository pictureDeletionRepository;
+    private final PictureUploader pictureUploader;
+    private final PictureDerivativeGenerator derivativeGenerator;
+    private final PictureUrlSigner urlSigner;
 
     /**
      * Constructs a new PictureServiceImpl.
      *
      * @param amazonS3 the Amazon S3 client
      * @param s3BucketProperties the S3 bucket properties
+     * @param urlCache the cache of presigned URLs by picture key
+     * @param pictureManifest the manifest tracking the upload state of pictures
+     * @param urlExecutor the executor resolving the picture URLs of a batch
+     * @param pictureDeletionRepository the outbox of pictures waiting to be deleted
+     * @param pictureUploader the uploader streaming pictures to the bucket
+     * @param derivativeGenerator the generator of picture variants
+     * @param urlSigner the signer of picture URLs
      */
-    public PictureServiceImpl(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties) {
+    public PictureServiceImpl(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties,
+                              @Qualifier("pictureUrlCache") GenericCache<String, String> urlCache,
+                              PictureManifest pictureManifest,
+                              @Qualifier("pictureUrlExecutor") ExecutorService urlExecutor,
+                              PictureDeletionRepository pictureDeletionRepository,
+                              PictureUploader pictureUploader,
+                              PictureDerivativeGenerator derivativeGenerator,
+                              PictureUrlSigner urlSigner) {
         this.amazonS3 = amazonS3;
         this.s3BucketProperties = s3BucketProperties;
+        this.urlCache = urlCache;
+        this.pictureManifest = pictureManifest;
+        this.urlExecutor = urlExecutor;
+        this.pictureDeletionRepository = pictureDeletionRepository;
+        this.pictureUploader = pictureUploader;
+        this.derivativeGenerator = derivativeGenerator;
+        this.urlSigner = urlSigner;
     }
 
     /**
      * Uploads a file to S3 and returns the file key.
+     * The key is the SHA-256 checksum of the content, so identical pictures are stored once: the manifest
+     * counts the references to every key, and the upload is skipped only when the content is recorded as uploaded.
+     * A reference taken while another upload of the same content is still in flight uploads the content again,
+     * which is harmless since both write the same bytes under the same key.
+     * New content is streamed with its content length and type, and its variants are generated in the background.
      *
      * @param file the file to upload
      * @return the file key
@@ -51,48 +120,196 @@ public class PictureServiceImpl implements PictureService {
             logger.error("File is null or empty");
             throw new IllegalArgumentException("File is null or empty");
         }
-        String newFileKey = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        logger.info("Uploading file with key {}", newFileKey);
-
+        String fileKey;
         try (InputStream inputStream = file.getInputStream()) {
-            amazonS3.putObject(s3BucketProperties.getBucketName(), newFileKey, inputStream, new ObjectMetadata());
-            logger.info("File uploaded successfully with key {}", newFileKey);
+            fileKey = pictureUploader.checksum(inputStream);
         } catch (IOException e) {
+            logger.error("Failed to read file {}", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to read file", e);
+        }
+
+        if (pictureManifest.addReference(fileKey) > 1 && pictureManifest.isRecorded(fileKey)) {
+            logger.info("File {} is already stored with key {}, skipping upload", file.getOriginalFilename(), fileKey);
+            return fileKey;
+        }
+        logger.info("Uploading file with key {}", fileKey);
+
+        try (InputStream inputStream = file.getInputStream()) {
+            PictureUploader.UploadedPicture upload = pictureUploader.upload(
+                    fileKey, inputStream, file.getSize(), file.getContentType());
+            if (!fileKey.equals(upload.sha256())) {
+                throw new IOException("File content changed during upload");
+            }
+            pictureManifest.recordUpload(fileKey, file.getSize(), upload.sha256());
+            urlCache.remove(fileKey);
+            derivativeGenerator.generateAsync(fileKey);
+            logger.info("File uploaded successfully with key {}", fileKey);
+        } catch (IOException | RuntimeException e) {
             logger.error("Failed to upload file to S3", e);
+            releaseReferences(Map.of(fileKey, 1L));
             throw new RuntimeException("Failed to upload file to S3", e);
         }
 
-        return newFileKey;
+        return fileKey;
     }
 
     /**
-     * Deletes a file from S3 by its key.
+     * Creates a pending upload under a random key and presigns a PUT request for it, bound to the content type.
+     * The client sends the picture straight to the bucket and then passes the key to the endpoint creating
+     * or updating the entity, which claims it with {@link #claimUpload(String)}.
+     *
+     * @param contentType the content type of the picture
+     * @return the key of the pending upload and the presigned request
+     * @throws InvalidPictureUploadException if the content type is not an image type
+     */
+    @Override
+    public PictureUploadDto createUpload(String contentType) {
+        String key = UUID.randomUUID().toString();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new InvalidPictureUploadException(key, "content type " + contentType + " is not an image type");
+        }
+        Date expiration = new Date(System.currentTimeMillis() + s3BucketProperties.getUploadUrlExpiration());
+        GeneratePresignedUrlRequest generatePresignedUrlRequest = new GeneratePresignedUrlRequest(
+                s3BucketProperties.getBucketName(), key)
+                .withMethod(HttpMethod.PUT)
+                .withContentType(contentType)
+                .withExpiration(expiration);
+        String url = amazonS3.generatePresignedUrl(generatePresignedUrlRequest).toString();
+        logger.info("Created upload with key {}", key);
+        return new PictureUploadDto(key, url, HttpMethod.PUT.name(),
+                Map.of(HttpHeaders.CONTENT_TYPE, contentType), expiration.toInstant());
+    }
+
+    /**
+     * Claims a picture uploaded with a presigned request. A HEAD request verifies that the object exists,
+     * is an image and does not exceed the maximum upload size; oversized objects are deleted. The verified
+     * object is then copied to a server-owned key, on the condition that its ETag is unchanged, and the upload
+     * key is deleted: the presigned request stays valid after the claim, but can no longer replace the claimed
+     * picture, and claiming the same upload key again fails instead of touching a referenced picture.
+     * Concurrent claims of one upload copy it to the same key and each add a reference to it.
+     *
+     * @param key the key of the pending upload
+     * @return the key of the claimed picture
+     * @throws InvalidPictureUploadException if the key is not an upload key, or the picture is missing or invalid
+     */
+    @Override
+    public String claimUpload(String key) {
+        if (!isUploadKey(key)) {
+            throw new InvalidPictureUploadException(key, "not an upload key");
+        }
+        String bucketName = s3BucketProperties.getBucketName();
+        ObjectMetadata metadata;
+        try {
+            metadata = amazonS3.getObjectMetadata(bucketName, key);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+                throw new InvalidPictureUploadException(key, "picture was not uploaded");
+            }
+            throw e;
+        }
+        if (metadata.getContentType() == null || !metadata.getContentType().startsWith("image/")) {
+            throw new InvalidPictureUploadException(key, "content type " + metadata.getContentType() + " is not an image type");
+        }
+        if (metadata.getContentLength() > s3BucketProperties.getMaxUploadSize()) {
+            amazonS3.deleteObject(bucketName, key);
+            throw new InvalidPictureUploadException(key, "picture exceeds " + s3BucketProperties.getMaxUploadSize() + " bytes");
+        }
+
+        String claimedKey = CLAIMED_KEY_PREFIX + key;
+        CopyObjectResult copy = amazonS3.copyObject(new CopyObjectRequest(bucketName, key, bucketName, claimedKey)
+                .withMatchingETagConstraint(metadata.getETag()));
+        if (copy == null) {
+            throw new InvalidPictureUploadException(key, "picture was replaced while being claimed");
+        }
+        amazonS3.deleteObject(bucketName, key);
+
+        if (pictureManifest.addReference(claimedKey) == 1) {
+            pictureManifest.recordUpload(claimedKey, metadata.getContentLength(), copy.getETag());
+            urlCache.remove(claimedKey);
+            derivativeGenerator.generateAsync(claimedKey);
+        }
+        logger.info("Claimed upload with key {} as {}", key, claimedKey);
+        return claimedKey;
+    }
+
+    /**
+     * Removes a reference to a file, scheduling it for deletion from S3 when no reference is left.
      *
      * @param key the file key
      */
     @Override
     public void deleteFileFromS3(String key) {
         if (key != null) {
-            String bucketName = s3BucketProperties.getBucketName();
-            logger.info("Deleting file with key {} from bucket {}", key, bucketName);
-            amazonS3.deleteObject(bucketName, key);
+            deleteFilesFromS3(List.of(key));
         }
     }
 
     /**
-     * Deletes multiple files from S3 by their keys.
+     * Removes one reference per occurrence of a key, scheduling the files left without references for deletion.
+     * Their keys and the keys of their variants are written to the deletion outbox as part of the caller's
+     * transaction and removed from the bucket in batches by {@link PictureDeletionWorker},
+     * so the caller does not wait for S3.
      *
      * @param keys the list of file keys
      */
     @Override
+    @Transactional
     public void deleteFilesFromS3(List<String> keys) {
         if (keys != null && !keys.isEmpty()) {
-            keys.forEach(this::deleteFileFromS3);
+            releaseReferences(keys.stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(Function.identity(), LinkedHashMap::new, Collectors.counting())));
+        }
+    }
+
+    /**
+     * Removes references to files and schedules the files left without references for deletion.
+     *
+     * @param references the number of references to remove by file key
+     */
+    private void releaseReferences(Map<String, Long> references) {
+        List<PictureDeletion> deletions = references.entrySet().stream()
+                .filter(reference -> pictureManifest.releaseReferences(reference.getKey(), reference.getValue().intValue()) == 0)
+                .flatMap(reference -> Stream.concat(Stream.of(reference.getKey()),
+                        Arrays.stream(PictureVariant.values()).map(variant -> variant.keyOf(reference.getKey()))))
+                .map(PictureDeletion::new)
+                .toList();
+        if (deletions.isEmpty()) {
+            return;
         }
+        logger.info("Scheduling {} files for deletion from bucket {}", deletions.size(),
+                s3BucketProperties.getBucketName());
+        pictureDeletionRepository.saveAll(deletions);
+        deletions.forEach(deletion -> urlCache.remove(deletion.getPictureKey()));
+    }
+
+    /**
+     * Opens a picture in the bucket for reading its content.
+     *
+     * @param key the file key
+     * @return the content of the picture, or empty if the object does not exist
+     */
+    @Override
+    public Optional<PictureContent> openPicture(String key) {
+        S3Object object;
+        try {
+            object = amazonS3.getObject(s3BucketProperties.getBucketName(), key);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        ObjectMetadata metadata = object.getObjectMetadata();
+        return Optional.of(new PictureContent(object.getObjectContent(), metadata.getContentLength(),
+                metadata.getContentType()));
     }
 
     /**
      * Retrieves the URL of a picture by its key.
+     * Presigned URLs are cached per key and signed locally, checking the picture manifest
+     * instead of the bucket, so no lookup needs an S3 round trip; missing pictures are not cached.
+     * The URL of a key only changes when the signing window rotates, so clients can cache the picture.
      *
      * @param key the file key
      * @return the URL of the picture
@@ -103,11 +320,124 @@ public class PictureServiceImpl implements PictureService {
         if (key == null) {
             throw new IllegalArgumentException("Key is null");
         }
-        if (checkIfPictureUploaded(key)) {
-            GeneratePresignedUrlRequest generatePresignedUrlRequest = new GeneratePresignedUrlRequest(
-                    s3BucketProperties.getBucketName(), key)
-                    .withMethod(HttpMethod.GET);
-            return amazonS3.generatePresignedUrl(generatePresignedUrlRequest).toString();
+        return urlCache.get(key, this::generatePictureUrl);
+    }
+
+    /**
+     * Retrieves the URLs of multiple pictures by their keys, resolving them concurrently on a bounded pool.
+     * The whole batch shares one deadline: keys not resolved in time are left out, so a slow lookup
+     * degrades a page to missing pictures instead of delaying it.
+     *
+     * @param keys the file keys
+     * @return the URLs of the pictures by key
+     */
+    @Override
+    public Map<String, String> getPictureUrls(Collection<String> keys) {
+        return resolveUrls(keys, this::getPictureUrl);
+    }
+
+    /**
+     * Retrieves the URL of a variant of a picture by the key of the original.
+     * While the variant is not recorded in the manifest, the URL of the original is returned and cached
+     * under the variant key, and the variant is scheduled for generation; the cached entry is replaced
+     * once the variant is uploaded.
+     *
+     * @param key the file key of the original picture
+     * @param variant the picture variant
+     * @return the URL of the variant or of the original picture
+     * @throws IllegalArgumentException if the key is null
+     */
+    @Override
+    public String getPictureUrl(String key, PictureVariant variant) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key is null");
+        }
+        return urlCache.get(variant.keyOf(key), variantKey -> {
+            if (pictureManifest.isRecorded(variantKey)) {
+                return presignUrl(variantKey);
+            }
+            derivativeGenerator.generateAsync(key);
+            return getPictureUrl(key);
+        });
+    }
+
+    /**
+     * Retrieves the URLs of a variant of multiple pictures, resolving them concurrently like
+     * {@link #getPictureUrls(Collection)}.
+     *
+     * @param keys the file keys of the original pictures
+     * @param variant the picture variant
+     * @return the URLs of the variants by key of the original picture
+     */
+    @Override
+    public Map<String, String> getPictureUrls(Collection<String> keys, PictureVariant variant) {
+        return resolveUrls(keys, key -> getPictureUrl(key, variant));
+    }
+
+    /**
+     * Resolves the URLs of multiple pictures concurrently on a bounded pool, under one deadline for the whole batch.
+     *
+     * @param keys the file keys
+     * @param resolver the resolver of a single URL
+     * @return the resolved URLs by key
+     */
+    private Map<String, String> resolveUrls(Collection<String> keys, Function<String, String> resolver) {
+        Map<String, CompletableFuture<String>> lookups = new LinkedHashMap<>();
+        keys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(key -> lookups.put(key, CompletableFuture.supplyAsync(() -> resolver.apply(key), urlExecutor)));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(s3BucketProperties.getUrlBatchTimeout());
+        Map<String, String> urls = new HashMap<>();
+        int unresolved = 0;
+        for (Map.Entry<String, CompletableFuture<String>> lookup : lookups.entrySet()) {
+            try {
+                String url = lookup.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (url != null) {
+                    urls.put(lookup.getKey(), url);
+                }
+            } catch (TimeoutException e) {
+                lookup.getValue().cancel(false);
+                unresolved++;
+            } catch (ExecutionException e) {
+                logger.warn("Failed to resolve URL of picture {}", lookup.getKey(), e.getCause());
+                unresolved++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (unresolved > 0) {
+            logger.warn("Resolved {} of {} picture URLs within {} ms", lookups.size() - unresolved,
+                    lookups.size(), s3BucketProperties.getUrlBatchTimeout());
+        }
+        return urls;
+    }
+
+    /**
+     * Checks whether a key was issued by {@link #createUpload(String)}, so clients cannot claim content keys.
+     *
+     * @param key the key to check
+     * @return true if the key is in the canonical form of a random UUID
+     */
+    private static boolean isUploadKey(String key) {
+        try {
+            return key != null && UUID.fromString(key).toString().equals(key);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates a presigned URL of a picture, unless the picture manifest knows it to be missing.
+     *
+     * @param key the file key
+     * @return the presigned URL of the picture, or null if the picture does not exist
+     */
+    private String generatePictureUrl(String key) {
+        if (pictureManifest.isUploaded(key)) {
+            return presignUrl(key);
         } else {
             logger.warn("Picture key {} doesn't exist in bucket {}", key, s3BucketProperties.getBucketName());
             return null;
@@ -115,12 +445,12 @@ public class PictureServiceImpl implements PictureService {
     }
 
     /**
-     * Checks if a picture is uploaded in S3 by its key.
+     * Signs a GET URL of an object locally for the current signing window, without a request to S3.
      *
-     * @param key the file key
-     * @return true if the picture exists, false otherwise
+     * @param key the object key
+     * @return the presigned URL
      */
-    private boolean checkIfPictureUploaded(String key) {
-        return amazonS3.doesObjectExist(s3BucketProperties.getBucketName(), key);
+    private String presignUrl(String key) {
+        return urlSigner.presignGet(key);
     }
 }
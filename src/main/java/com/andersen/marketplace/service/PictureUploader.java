@@ -0,0 +1,222 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Streams pictures to S3 with a known content length, so the client never buffers a whole picture in memory.
+ * Pictures below the multipart threshold are sent with a single PUT; larger pictures are cut into parts
+ * that are uploaded in parallel, with at most {@code s3.upload-threads} parts of one upload held in memory.
+ * The SHA-256 checksum of the content is computed while it is read for the upload. The stream handed to the
+ * client does not support mark/reset, so a retried request replays bytes from the client's own buffer and every
+ * byte passes through the digest exactly once.
+ */
+@Component
+@ConditionalOnS3Storage
+public class PictureUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureUploader.class);
+
+    /**
+     * The minimum size S3 accepts for every part of a multipart upload except the last one.
+     */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 amazonS3;
+    private final S3BucketProperties s3BucketProperties;
+    private final ExecutorService uploadExecutor;
+
+    /**
+     * Constructs a new PictureUploader.
+     *
+     * @param amazonS3 the Amazon S3 client
+     * @param s3BucketProperties the S3 bucket properties
+     * @param uploadExecutor the executor uploading the parts of multipart uploads
+     */
+    public PictureUploader(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties,
+                           @Qualifier("pictureUploadExecutor") ExecutorService uploadExecutor) {
+        this.amazonS3 = amazonS3;
+        this.s3BucketProperties = s3BucketProperties;
+        this.uploadExecutor = uploadExecutor;
+    }
+
+    /**
+     * Uploads a picture to the bucket, reading its content exactly once.
+     *
+     * @param key the picture key
+     * @param content the content of the picture, closed when the upload ends
+     * @param size the size of the content in bytes
+     * @param contentType the media type of the content, or null if unknown
+     * @return the ETag and SHA-256 checksum of the uploaded picture
+     * @throws IOException if the content cannot be read or the upload is interrupted
+     */
+    public UploadedPicture upload(String key, InputStream content, long size, String contentType) throws IOException {
+        MessageDigest digest = sha256();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+
+        try (InputStream in = new UnmarkableInputStream(new DigestInputStream(content, digest))) {
+            String eTag = size < s3BucketProperties.getMultipartThreshold()
+                    ? putObject(key, in, size, metadata)
+                    : uploadParts(key, in, size, metadata);
+            return new UploadedPicture(eTag, HexFormat.of().formatHex(digest.digest()));
+        }
+    }
+
+    /**
+     * Computes the SHA-256 checksum of content in one streaming pass, without uploading it.
+     *
+     * @param content the content, closed when read
+     * @return the hex-encoded SHA-256 checksum
+     * @throws IOException if the content cannot be read
+     */
+    public String checksum(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String putObject(String key, InputStream in, long size, ObjectMetadata metadata) {
+        metadata.setContentLength(size);
+        return amazonS3.putObject(new PutObjectRequest(s3BucketProperties.getBucketName(), key, in, metadata)).getETag();
+    }
+
+    /**
+     * Uploads the content as a multipart upload. Parts are read sequentially into their own buffers and
+     * sent in parallel; reading blocks while the maximum number of parts is in flight.
+     * The upload is aborted if any part fails, so no incomplete parts are left billed in the bucket.
+     */
+    private String uploadParts(String key, InputStream in, long size, ObjectMetadata metadata) throws IOException {
+        String bucketName = s3BucketProperties.getBucketName();
+        int partSize = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(MIN_PART_SIZE, s3BucketProperties.getMultipartPartSize()));
+        String uploadId = amazonS3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, key, metadata)).getUploadId();
+        logger.info("Uploading {} bytes with key {} in parts of {} bytes", size, key, partSize);
+
+        Semaphore inFlight = new Semaphore(Math.max(1, s3BucketProperties.getUploadThreads()));
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        try {
+            int length;
+            int partNumber = 0;
+            do {
+                byte[] buffer = new byte[partSize];
+                length = in.readNBytes(buffer, 0, partSize);
+                if (length == 0 && partNumber > 0) {
+                    break;
+                }
+                inFlight.acquire();
+                if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    inFlight.release();
+                    break;
+                }
+                UploadPartRequest request = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(++partNumber)
+                        .withPartSize(length)
+                        .withInputStream(new ByteArrayInputStream(buffer, 0, length));
+                parts.add(CompletableFuture.supplyAsync(() -> amazonS3.uploadPart(request).getPartETag(), uploadExecutor)
+                        .whenComplete((eTag, error) -> inFlight.release()));
+            } while (length == partSize);
+
+            List<PartETag> eTags = new ArrayList<>(parts.size());
+            for (CompletableFuture<PartETag> part : parts) {
+                eTags.add(part.join());
+            }
+            return amazonS3.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, key, uploadId, eTags)).getETag();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(key, uploadId, parts);
+            throw new IOException("Interrupted while uploading " + key, e);
+        } catch (CompletionException e) {
+            abort(key, uploadId, parts);
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private void abort(String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        parts.forEach(part -> part.cancel(false));
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(s3BucketProperties.getBucketName(), key, uploadId));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to abort multipart upload {} of key {}", uploadId, key, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Hides the mark/reset support of the wrapped stream, so nothing upstream of it is ever read twice.
+     */
+    private static final class UnmarkableInputStream extends FilterInputStream {
+
+        private UnmarkableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+
+    /**
+     * Result of a picture upload.
+     *
+     * @param eTag the ETag assigned by S3
+     * @param sha256 the hex-encoded SHA-256 checksum of the content
+     */
+    public record UploadedPicture(String eTag, String sha256) {
+    }
+}
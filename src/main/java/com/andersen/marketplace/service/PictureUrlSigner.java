@@ -0,0 +1,178 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.andersen.marketplace.config.ConditionalOnS3Storage;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+
+/**
+ * Signs GET URLs of pictures with AWS Signature Version 4 query parameters, snapping the signing time
+ * to fixed rotation windows. All URLs of a key signed within the same window are identical, so browsers,
+ * proxies and CDNs can cache the pictures, and API responses embedding the URLs stay byte-for-byte stable.
+ * <p>
+ * The expiry is extended by two rotation windows: one covers URLs signed late in their window, the other the time
+ * a URL is kept in the picture URL cache, whose entries never outlive a rotation window. A URL is thus valid for
+ * at least the configured presigned URL expiration from the moment it is handed out. The SDK presigner cannot be
+ * used for this, as it always derives the expiry from the current time; the endpoint is still taken from the
+ * S3 client, so the URLs point where the client sends its own requests.
+ */
+@Component
+@ConditionalOnS3Storage
+public class PictureUrlSigner {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String TERMINATOR = "aws4_request";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final long MAX_EXPIRES_SECONDS = 7 * 24 * 3600;
+
+    private final S3BucketProperties s3BucketProperties;
+    private final Clock clock;
+    private final String origin;
+    private final String host;
+    private final String bucketPath;
+
+    private volatile SigningKey signingKey;
+
+    /**
+     * Constructs a new PictureUrlSigner.
+     *
+     * @param amazonS3 the Amazon S3 client, whose endpoint and addressing style the URLs use
+     * @param s3BucketProperties the S3 bucket properties holding the credentials, expiration and rotation window
+     */
+    @Autowired
+    public PictureUrlSigner(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties) {
+        this(amazonS3, s3BucketProperties, Clock.systemUTC());
+    }
+
+    PictureUrlSigner(AmazonS3 amazonS3, S3BucketProperties s3BucketProperties, Clock clock) {
+        this.s3BucketProperties = s3BucketProperties;
+        this.clock = clock;
+        URL bucketUrl = amazonS3.getUrl(s3BucketProperties.getBucketName(), "");
+        this.origin = bucketUrl.getProtocol() + "://" + bucketUrl.getAuthority();
+        this.host = bucketUrl.getAuthority();
+        this.bucketPath = bucketUrl.getPath().endsWith("/")
+                ? bucketUrl.getPath().substring(0, bucketUrl.getPath().length() - 1)
+                : bucketUrl.getPath();
+    }
+
+    /**
+     * Signs a GET URL of an object for the current rotation window, without a request to S3.
+     *
+     * @param key the object key
+     * @return the presigned URL
+     */
+    public String presignGet(String key) {
+        long rotation = Math.max(1000, s3BucketProperties.getPresignedUrlRotation());
+        long now = clock.millis();
+        Instant signedAt = Instant.ofEpochMilli(now - now % rotation);
+        long expiresSeconds = Math.min(MAX_EXPIRES_SECONDS,
+                (s3BucketProperties.getPresignedUrlExpiration() + 2 * rotation) / 1000);
+        return presignGet(key, signedAt, expiresSeconds);
+    }
+
+    /**
+     * Signs a GET URL of an object as of the given signing time.
+     *
+     * @param key the object key
+     * @param signedAt the signing time
+     * @param expiresSeconds the validity of the URL from the signing time, in seconds
+     * @return the presigned URL
+     */
+    String presignGet(String key, Instant signedAt, long expiresSeconds) {
+        String region = s3BucketProperties.getRegion();
+        String path = bucketPath + "/" + encode(key, true);
+
+        String dateTime = DATE_TIME.format(signedAt);
+        String date = DATE.format(signedAt);
+        String scope = date + "/" + region + "/" + SERVICE + "/" + TERMINATOR;
+        String query = "X-Amz-Algorithm=" + ALGORITHM
+                + "&X-Amz-Credential=" + encode(s3BucketProperties.getAccessKey() + "/" + scope, false)
+                + "&X-Amz-Date=" + dateTime
+                + "&X-Amz-Expires=" + expiresSeconds
+                + "&X-Amz-SignedHeaders=host";
+
+        String canonicalRequest = "GET\n" + path + "\n" + query + "\nhost:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String stringToSign = ALGORITHM + "\n" + dateTime + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest));
+        String signature = HexFormat.of().formatHex(hmac(signingKey(date, region), stringToSign));
+        return origin + path + "?" + query + "&X-Amz-Signature=" + signature;
+    }
+
+    /**
+     * Returns the signing key of a day, deriving it only when the day or the region changes.
+     *
+     * @param date the signing date
+     * @param region the region
+     * @return the signing key
+     */
+    private byte[] signingKey(String date, String region) {
+        SigningKey current = signingKey;
+        if (current == null || !current.date().equals(date) || !current.region().equals(region)) {
+            byte[] secret = ("AWS4" + s3BucketProperties.getSecretKey()).getBytes(StandardCharsets.UTF_8);
+            byte[] key = hmac(hmac(hmac(hmac(secret, date), region), SERVICE), TERMINATOR);
+            current = new SigningKey(date, region, key);
+            signingKey = current;
+        }
+        return current.key();
+    }
+
+    /**
+     * Percent-encodes a value as required by Signature Version 4, leaving only unreserved characters as they are.
+     *
+     * @param value the value to encode
+     * @param keepSlash whether slashes separate path segments and stay unencoded
+     * @return the encoded value
+     */
+    static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder(value.length());
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private record SigningKey(String date, String region, byte[] key) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.andersen.marketplace.service;
+
+/**
+ * Resized derivatives generated for every uploaded picture, stored next to the original under a derived key.
+ */
+public enum PictureVariant {
+
+    /**
+     * Small variant for list views.
+     */
+    THUMBNAIL("thumbnail", 160),
+
+    /**
+     * Medium variant for detail views.
+     */
+    MEDIUM("medium", 640);
+
+    private final String name;
+    private final int maxEdge;
+
+    PictureVariant(String name, int maxEdge) {
+        this.name = name;
+        this.maxEdge = maxEdge;
+    }
+
+    /**
+     * Returns the maximum width and height of the variant in pixels.
+     *
+     * @return the maximum edge length
+     */
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    /**
+     * Returns the key of this variant of a picture.
+     *
+     * @param key the key of the original picture
+     * @return the key of the variant
+     */
+    public String keyOf(String key) {
+        return "variants/" + name + "/" + key + ".jpg";
+    }
+}
@@ -1,8 +1,13 @@
 package com.andersen.marketplace.service;
 
+import com.andersen.marketplace.cache.CacheWarmUpGuard;
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.ProductSearchIndex;
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.dto.ProductSearchRequest;
+import com.andersen.marketplace.dto.SearchMode;
 import com.andersen.marketplace.entity.Category;
 import com.andersen.marketplace.entity.Product;
 import com.andersen.marketplace.exception.CategoryNotFoundException;
@@ -17,10 +22,20 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing products.
@@ -34,7 +49,9 @@ public class ProductService {
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
     private final PictureService pictureService;
-    private final GenericCache<UUID, Product> cache;
+    private final GenericCache<UUID, ProductView> cache;
+    private final ProductSearchIndex searchIndex;
+    private final CacheWarmUpGuard warmUpGuard;
 
     /**
      * Constructs a new ProductService.
@@ -44,16 +61,21 @@ public class ProductService {
      * @param productMapper the product mapper
      * @param pictureService the picture service
      * @param cache the cache for products
+     * @param searchIndex the product search index
+     * @param warmUpGuard the guard keeping the cache warm-up from overwriting product writes
      */
     @Autowired
     public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
                           ProductMapper productMapper, PictureService pictureService,
-                          @Qualifier("productCache") GenericCache<UUID, Product> cache) {
+                          @Qualifier("productCache") GenericCache<UUID, ProductView> cache,
+                          ProductSearchIndex searchIndex, CacheWarmUpGuard warmUpGuard) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.productMapper = productMapper;
         this.pictureService = pictureService;
         this.cache = cache;
+        this.searchIndex = searchIndex;
+        this.warmUpGuard = warmUpGuard;
     }
 
     /**
@@ -66,8 +88,42 @@ public class ProductService {
     public Page<ProductDto> getProducts(int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size);
 
-        return productRepository.findAll(pageRequest)
-                .map(product -> productMapper.mapToProductDto(product, pictureService.getPictureUrl(product.getLogo())));
+        return mapToProductDtoPage(productRepository.findAll(pageRequest));
+    }
+
+    /**
+     * Retrieves a keyset page of products ordered by name, starting after the given cursor.
+     * The IDs of the page are read from the {@code (name, id)} index, one more than requested to find out
+     * whether a next page exists, and the products are then fetched with their categories in one query.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the number of items per page
+     * @return the page of ProductDto with the cursor of the next page, which is null on the last page
+     * @throws com.andersen.marketplace.exception.InvalidCursorException if the cursor is invalid
+     */
+    public CursorPage<ProductDto> getProducts(String cursor, int size) {
+        int pageSize = PageCursor.pageSize(size);
+        List<UUID> ids;
+        if (cursor == null || cursor.isEmpty()) {
+            ids = productRepository.findFirstIdsOrderByName(pageSize + 1);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            ids = productRepository.findIdsOrderByNameAfter(after.name(), after.id(), pageSize + 1);
+        }
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+
+        Map<UUID, Product> productsById = productRepository.findAllWithCategoryByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> products = ids.stream().map(productsById::get).filter(Objects::nonNull).toList();
+        String nextCursor = null;
+        if (hasNext && !products.isEmpty()) {
+            Product last = products.get(products.size() - 1);
+            nextCursor = new PageCursor(last.getName(), last.getId()).encode();
+        }
+        return new CursorPage<>(mapToProductDtos(products), nextCursor);
     }
 
     /**
@@ -81,6 +137,9 @@ public class ProductService {
 
     /**
      * Retrieves a paginated list of products based on search criteria.
+     * In full-text mode, the product and category terms are searched together and the most relevant
+     * products come first; without any terms, all products are listed as in substring mode.
+     * Substring searches are answered from the in-memory search index once it is ready, without a database query.
      *
      * @param search the search criteria
      * @param page the page number
@@ -90,25 +149,102 @@ public class ProductService {
     public Page<ProductDto> getFilteredProducts(ProductSearchRequest search, int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size);
 
-        return productRepository.findAllWithFilter(search.getProductCategory(), search.getProductName(), pageRequest)
-                .map(product -> productMapper.mapToProductDto(product, pictureService.getPictureUrl(product.getLogo())));
+        if (search.getMode() == SearchMode.FULL_TEXT) {
+            String query = Stream.of(search.getProductName(), search.getProductCategory())
+                    .filter(term -> term != null && !term.isBlank())
+                    .collect(Collectors.joining(" "));
+            if (!query.isEmpty()) {
+                return mapToProductDtoPage(productRepository.findAllByFullText(query, pageRequest));
+            }
+        }
+        Optional<Page<ProductView>> indexed = searchIndex.search(search.getProductCategory(), search.getProductName(),
+                pageRequest);
+        if (indexed.isPresent()) {
+            return mapToProductViewDtoPage(indexed.get());
+        }
+        return mapToProductDtoPage(
+                productRepository.findAllWithFilter(search.getProductCategory(), search.getProductName(), pageRequest));
+    }
+
+    /**
+     * Maps a list of products to DTOs, resolving the logo and thumbnail URLs of the whole list in one batch each.
+     *
+     * @param products the products
+     * @return a list of ProductDto in the order of the products
+     */
+    private List<ProductDto> mapToProductDtos(List<Product> products) {
+        List<String> logos = products.stream().map(Product::getLogo).toList();
+        Map<String, String> logoUrls = pictureService.getPictureUrls(logos);
+        Map<String, String> thumbnailUrls = pictureService.getPictureUrls(logos, PictureVariant.THUMBNAIL);
+
+        return products.stream()
+                .map(product -> {
+                    ProductDto productDto = productMapper.mapToProductDto(product, logoUrls.get(product.getLogo()));
+                    productDto.setThumbnail(thumbnailUrls.get(product.getLogo()));
+                    return productDto;
+                })
+                .toList();
+    }
+
+    /**
+     * Maps a page of products to DTOs, resolving the logo and thumbnail URLs of the whole page in one batch each.
+     *
+     * @param products the page of products
+     * @return a page of ProductDto
+     */
+    private Page<ProductDto> mapToProductDtoPage(Page<Product> products) {
+        List<String> logos = products.map(Product::getLogo).getContent();
+        Map<String, String> logoUrls = pictureService.getPictureUrls(logos);
+        Map<String, String> thumbnailUrls = pictureService.getPictureUrls(logos, PictureVariant.THUMBNAIL);
+
+        return products.map(product -> {
+            ProductDto productDto = productMapper.mapToProductDto(product, logoUrls.get(product.getLogo()));
+            productDto.setThumbnail(thumbnailUrls.get(product.getLogo()));
+            return productDto;
+        });
+    }
+
+    /**
+     * Maps a page of product read models to DTOs, resolving the logo and thumbnail URLs of the whole page
+     * in one batch each.
+     *
+     * @param products the page of product read models
+     * @return a page of ProductDto
+     */
+    private Page<ProductDto> mapToProductViewDtoPage(Page<ProductView> products) {
+        List<String> logos = products.map(ProductView::logo).getContent();
+        Map<String, String> logoUrls = pictureService.getPictureUrls(logos);
+        Map<String, String> thumbnailUrls = pictureService.getPictureUrls(logos, PictureVariant.THUMBNAIL);
+
+        return products.map(product -> {
+            ProductDto productDto = productMapper.mapToProductDto(product, logoUrls.get(product.logo()));
+            productDto.setThumbnail(thumbnailUrls.get(product.logo()));
+            return productDto;
+        });
     }
 
     /**
-     * Edits an existing product by its ID.
+     * Edits an existing product by its ID. The cache and the search index are updated once the transaction
+     * commits, so concurrent readers never see an edit that is rolled back.
      *
      * @param id the product ID
      * @param updatedProduct the updated product data
      * @param logo the new product logo (optional)
+     * @param logoKey the key of a directly uploaded new product logo, used instead of the logo file (optional)
      * @return the edited ProductDto
      */
-    public ProductDto editProduct(UUID id, ProductDto updatedProduct, MultipartFile logo) {
-        Product product = getProductById(id);
-        updateProductLogo(updatedProduct, logo, product.getLogo());
+    @Transactional
+    public ProductDto editProduct(UUID id, ProductDto updatedProduct, MultipartFile logo, String logoKey) {
+        Product product = getProductFromRepository(id);
+        updateProductLogo(updatedProduct, logo, logoKey, product.getLogo());
         productMapper.updateProductFromDto(product, updatedProduct);
 
         Product savedProduct = productRepository.save(product);
-        cache.put(id, savedProduct);
+        ProductView view = productMapper.mapToProductView(savedProduct);
+        afterCommit(() -> warmUpGuard.writeProduct(id, () -> {
+            cache.put(id, view);
+            searchIndex.put(view);
+        }));
 
         return productMapper.mapToProductDto(savedProduct);
     }
@@ -118,31 +254,49 @@ public class ProductService {
      *
      * @param updatedProduct the updated product data
      * @param newLogo the new product logo
+     * @param newLogoKey the key of a directly uploaded new product logo
      * @param currentLogo the current product logo
      */
-    private void updateProductLogo(ProductDto updatedProduct, MultipartFile newLogo, String currentLogo) {
-        if (newLogo == null || newLogo.isEmpty()) {
+    private void updateProductLogo(ProductDto updatedProduct, MultipartFile newLogo, String newLogoKey,
+                                   String currentLogo) {
+        if (newLogoKey == null && (newLogo == null || newLogo.isEmpty())) {
             updatedProduct.setLogo(currentLogo);
         } else {
-            updatedProduct.setLogo(pictureService.uploadAndGetKey(newLogo));
+            updatedProduct.setLogo(storeLogo(newLogo, newLogoKey));
             pictureService.deleteFileFromS3(currentLogo);
         }
     }
 
+    /**
+     * Stores a product logo, claiming it when it was uploaded directly and uploading the file otherwise.
+     *
+     * @param logo the logo file
+     * @param logoKey the key of the directly uploaded logo
+     * @return the logo key
+     */
+    private String storeLogo(MultipartFile logo, String logoKey) {
+        return logoKey != null ? pictureService.claimUpload(logoKey) : pictureService.uploadAndGetKey(logo);
+    }
+
     /**
      * Adds a new product.
      *
      * @param newProduct the new product data
      * @param logo the product logo
+     * @param logoKey the key of a directly uploaded product logo, used instead of the logo file
      * @return the added ProductDto
      */
-    public ProductDto addProduct(ProductDto newProduct, MultipartFile logo) {
+    public ProductDto addProduct(ProductDto newProduct, MultipartFile logo, String logoKey) {
         Category category = getCategoryByName(newProduct.getCategory());
-        String productLogoKey = pictureService.uploadAndGetKey(logo);
+        String productLogoKey = storeLogo(logo, logoKey);
         Product product = new Product(newProduct.getName(), productLogoKey, category);
 
         Product savedProduct = productRepository.save(product);
-        cache.put(savedProduct.getId(), savedProduct);
+        ProductView view = productMapper.mapToProductView(savedProduct);
+        warmUpGuard.writeProduct(view.id(), () -> {
+            cache.put(view.id(), view);
+            searchIndex.put(view);
+        });
 
         return productMapper.mapToProductDto(savedProduct);
     }
@@ -163,21 +317,44 @@ public class ProductService {
     }
 
     /**
-     * Deletes a product by its ID.
+     * Deletes a product by its ID. The product leaves the cache and the search index once the transaction
+     * commits, so a concurrent cache miss cannot load the product back before the deletion is visible.
      *
      * @param id the product ID
      * @return a message indicating the product has been deleted
      */
+    @Transactional
     public String deleteProduct(UUID id) {
-        Product product = getProductById(id);
+        ProductView product = getProductById(id);
 
-        pictureService.deleteFileFromS3(product.getLogo());
-        productRepository.delete(product);
-        cache.remove(id);
+        pictureService.deleteFileFromS3(product.logo());
+        productRepository.deleteById(id);
+        afterCommit(() -> warmUpGuard.writeProduct(id, () -> {
+            cache.remove(id);
+            searchIndex.remove(id);
+        }));
 
         return "Product has been deleted";
     }
 
+    /**
+     * Runs an action once the current transaction commits, or right away outside a transaction.
+     *
+     * @param action the action to run
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * Retrieves a product DTO by its ID.
      *
@@ -185,21 +362,25 @@ public class ProductService {
      * @return the ProductDto
      */
     public ProductDto getProductDto(UUID id) {
-        Product product = getProductById(id);
-        this.cache.put(id, product);
+        ProductView product = getProductById(id);
 
-        return productMapper.mapToProductDto(product, pictureService.getPictureUrl(product.getLogo()));
+        ProductDto productDto = productMapper.mapToProductDto(product, pictureService.getPictureUrl(product.logo()));
+        if (product.logo() != null) {
+            productDto.setMedium(pictureService.getPictureUrl(product.logo(), PictureVariant.MEDIUM));
+        }
+        return productDto;
     }
 
     /**
-     * Retrieves a product by its ID.
+     * Retrieves the read model of a product by its ID, loading it into the cache on a miss.
+     * Concurrent misses for the same product share a single repository lookup.
      *
      * @param id the product ID
-     * @return the Product
+     * @return the ProductView
      * @throws ProductNotFoundException if the product is not found
      */
-    private Product getProductById(UUID id) {
-        return cache.get(id).orElseGet(() -> getProductFromRepository(id));
+    private ProductView getProductById(UUID id) {
+        return cache.get(id, key -> productMapper.mapToProductView(getProductFromRepository(key)));
     }
 
     /**
@@ -0,0 +1,9 @@
+ALTER TABLE categories
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_categories_updated_at ON categories (updated_at);
+
+CREATE INDEX IF NOT EXISTS idx_products_updated_at ON products (updated_at);
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS pictures
+(
+    picture_key VARCHAR                  NOT NULL PRIMARY KEY,
+    status      VARCHAR                  NOT NULL,
+    size        BIGINT,
+    checksum    VARCHAR,
+    updated_at  TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_pictures_status ON pictures (status) WHERE status <> 'UPLOADED';
+
+INSERT INTO pictures (picture_key, status)
+SELECT logo, 'UNVERIFIED' FROM categories WHERE logo IS NOT NULL
+UNION
+SELECT logo, 'UNVERIFIED' FROM products WHERE logo IS NOT NULL
+ON CONFLICT (picture_key) DO NOTHING;
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS picture_deletions
+(
+    id              UUID                     NOT NULL PRIMARY KEY,
+    picture_key     VARCHAR                  NOT NULL,
+    attempts        INTEGER                  NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    last_error      VARCHAR,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_picture_deletions_next_attempt_at ON picture_deletions (next_attempt_at);
@@ -0,0 +1,5 @@
+ALTER TABLE pictures ADD COLUMN IF NOT EXISTS ref_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE pictures p
+SET ref_count = (SELECT count(*) FROM categories c WHERE c.logo = p.picture_key)
+              + (SELECT count(*) FROM products pr WHERE pr.logo = p.picture_key);
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS idx_products_name_id ON products (name, id);
+
+CREATE INDEX IF NOT EXISTS idx_categories_name_id ON categories (name, id);
@@ -0,0 +1,40 @@
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION products_search_vector(product_name TEXT, category_name TEXT) RETURNS tsvector
+    LANGUAGE sql IMMUTABLE AS $$
+SELECT setweight(to_tsvector('english', coalesce(product_name, '')), 'A')
+           || setweight(to_tsvector('english', coalesce(category_name, '')), 'B')
+$$;
+
+CREATE OR REPLACE FUNCTION products_search_vector_update() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.search_vector := products_search_vector(NEW.name,
+            (SELECT c.name FROM categories c WHERE c.id = NEW.category_id));
+    RETURN NEW;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_products_search_vector ON products;
+CREATE TRIGGER trg_products_search_vector
+    BEFORE INSERT OR UPDATE OF name, category_id ON products
+    FOR EACH ROW EXECUTE FUNCTION products_search_vector_update();
+
+CREATE OR REPLACE FUNCTION categories_search_vector_update() RETURNS trigger
+    LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE products p SET search_vector = products_search_vector(p.name, NEW.name) WHERE p.category_id = NEW.id;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS trg_categories_search_vector ON categories;
+CREATE TRIGGER trg_categories_search_vector
+    AFTER UPDATE OF name ON categories
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name) EXECUTE FUNCTION categories_search_vector_update();
+
+UPDATE products p SET search_vector = products_search_vector(p.name, c.name)
+FROM categories c
+WHERE c.id = p.category_id;
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING gin (search_vector);
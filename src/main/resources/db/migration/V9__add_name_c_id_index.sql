@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_products_name_c_id ON products (name COLLATE "C", id);
@@ -0,0 +1,54 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CacheSnapshotTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldRestoreSameContentWhenSnapshotIsReadBack() throws IOException {
+        UUID categoryId = UUID.randomUUID();
+        ProductView product = new ProductView(UUID.randomUUID(), "Phone \u00e9", null, categoryId, "Phones");
+        CategoryView category = new CategoryView(categoryId, "Phones", "logo", List.of(product));
+        CacheSnapshot snapshot = new CacheSnapshot(Instant.ofEpochMilli(1_700_000_000_000L),
+                List.of(category), List.of(product));
+        Path path = directory.resolve("snapshot.bin");
+
+        snapshot.writeTo(path);
+        CacheSnapshot restored = CacheSnapshot.readFrom(path);
+
+        assertEquals(snapshot.createdAt(), restored.createdAt());
+        assertEquals(List.of(product), restored.products());
+        assertEquals(List.of(new CategoryView(categoryId, "Phones", "logo", List.of())), restored.categories());
+        assertSame(restored.categories().get(0).name(), restored.products().get(0).categoryName());
+    }
+
+    @Test
+    void shouldRejectSnapshotWhenContentIsCorrupted() throws IOException {
+        ProductView product = new ProductView(UUID.randomUUID(), "Phone", "logo", UUID.randomUUID(), "Phones");
+        Path path = directory.resolve("snapshot.bin");
+        new CacheSnapshot(Instant.now(), List.of(), List.of(product)).writeTo(path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> CacheSnapshot.readFrom(path));
+    }
+}
@@ -0,0 +1,62 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.ProductView;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheWarmUpGuardTest {
+
+    private static final UUID PHONES = UUID.randomUUID();
+    private static final UUID LAPTOPS = UUID.randomUUID();
+
+    private final CacheWarmUpGuard guard = new CacheWarmUpGuard();
+
+    @Test
+    void shouldSkipLoadedProductsWhenWrittenOrRemovedWhileLoading() {
+        ProductView edited = product(PHONES);
+        ProductView deleted = product(PHONES);
+        ProductView orphaned = product(LAPTOPS);
+        ProductView unchanged = product(PHONES);
+        List<String> writes = new ArrayList<>();
+        List<ProductView> stored = new ArrayList<>();
+
+        guard.startLoading();
+        guard.writeProduct(edited.id(), () -> writes.add("edited"));
+        guard.writeProduct(deleted.id(), () -> writes.add("deleted"));
+        guard.removeCategory(LAPTOPS, () -> writes.add("laptops"));
+        Set<UUID> skipped = guard.putLoadedProducts(List.of(edited, deleted, orphaned, unchanged), stored::addAll);
+
+        assertEquals(List.of("edited", "deleted", "laptops"), writes);
+        assertEquals(Set.of(edited.id(), deleted.id(), orphaned.id()), skipped);
+        assertEquals(List.of(unchanged), stored);
+        assertFalse(guard.putLoadedCategory(LAPTOPS, () -> stored.add(orphaned)));
+        assertTrue(guard.putLoadedCategory(PHONES, () -> { }));
+    }
+
+    @Test
+    void shouldStoreEveryProductWhenWrittenOutsideLoading() {
+        ProductView product = product(PHONES);
+        List<ProductView> stored = new ArrayList<>();
+
+        guard.writeProduct(product.id(), () -> { });
+        guard.startLoading();
+        guard.finishLoading();
+        guard.removeCategory(PHONES, () -> { });
+
+        assertTrue(guard.putLoadedProducts(List.of(product), stored::addAll).isEmpty());
+        assertEquals(List.of(product), stored);
+        assertTrue(guard.putLoadedCategory(PHONES, () -> { }));
+    }
+
+    private static ProductView product(UUID categoryId) {
+        return new ProductView(UUID.randomUUID(), "product", null, categoryId, "category");
+    }
+}
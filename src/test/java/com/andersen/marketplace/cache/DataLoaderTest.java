@@ -0,0 +1,263 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.impl.CategoryCache;
+import com.andersen.marketplace.cache.impl.ProductCache;
+import com.andersen.marketplace.cache.model.CategoryView;
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.entity.Category;
+import com.andersen.marketplace.entity.Product;
+import com.andersen.marketplace.mapper.CategoryMapperImpl;
+import com.andersen.marketplace.mapper.ProductMapperImpl;
+import com.andersen.marketplace.properties.CacheProperties;
+import com.andersen.marketplace.repository.CategoryRepository;
+import com.andersen.marketplace.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DataLoaderTest {
+
+    private static final Comparator<UUID> DATABASE_ORDER =
+            Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+                    .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    private ProductCache<UUID, ProductView> productCache;
+    private CategoryCache<UUID, CategoryView> categoryCache;
+    private CacheWarmUpProgress progress;
+    private ProductSearchIndex searchIndex;
+    private CacheWarmUpGuard warmUpGuard;
+    private CacheProperties cacheProperties;
+    private DataLoader dataLoader;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache<>();
+        categoryCache = new CategoryCache<>();
+        progress = new CacheWarmUpProgress();
+        searchIndex = new ProductSearchIndex();
+
+        cacheProperties = new CacheProperties();
+        cacheProperties.getWarmUp().setThreads(2);
+        cacheProperties.getWarmUp().setChunkSize(3);
+
+        warmUpGuard = new CacheWarmUpGuard();
+        dataLoader = new DataLoader(productCache, categoryCache, searchIndex, warmUpGuard, productRepository,
+                categoryRepository, new ProductMapperImpl(), new CategoryMapperImpl(), cacheProperties, progress);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productCache.close();
+        categoryCache.close();
+    }
+
+    @Test
+    void shouldLoadEveryProductOnceAndShareViewsWithCategories() throws Exception {
+        Category first = new Category(UUID.randomUUID(), "first", "first-logo", List.of());
+        Category second = new Category(UUID.randomUUID(), "second", "second-logo", List.of());
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            products.add(new Product(UUID.randomUUID(), "product" + i, "logo" + i, i % 2 == 0 ? first : second));
+        }
+        products.sort(Comparator.comparing(Product::getId, DATABASE_ORDER));
+
+        when(productRepository.findChunk(any(), any(), any())).thenAnswer(invocation -> {
+            UUID after = invocation.getArgument(0);
+            UUID upTo = invocation.getArgument(1);
+            Pageable pageable = invocation.getArgument(2);
+            return products.stream()
+                    .filter(product -> DATABASE_ORDER.compare(product.getId(), after) > 0
+                            && DATABASE_ORDER.compare(product.getId(), upTo) <= 0)
+                    .limit(pageable.getPageSize())
+                    .toList();
+        });
+        when(categoryRepository.findAll()).thenReturn(List.of(first, second));
+
+        dataLoader.warmUp().get(10, TimeUnit.SECONDS);
+
+        assertEquals(CacheWarmUpProgress.State.COMPLETED, progress.getState());
+        assertEquals(50, progress.getLoadedProducts());
+        assertEquals(2, progress.getLoadedCategories());
+        assertEquals(progress.getTotalRanges(), progress.getCompletedRanges());
+        assertEquals(50, productCache.size());
+
+        CategoryView firstView = categoryCache.get(first.getId()).orElseThrow();
+        assertEquals(25, firstView.products().size());
+        for (ProductView product : firstView.products()) {
+            assertSame(product, productCache.get(product.id()).orElseThrow());
+            assertSame(firstView.name(), product.categoryName());
+        }
+        assertTrue(searchIndex.isReady());
+        assertEquals(50, searchIndex.size());
+        assertEquals(5, searchIndex.search("first", "product1", PageRequest.of(0, 20)).orElseThrow().getTotalElements());
+    }
+
+    @Test
+    void shouldRestoreFromSnapshotAndReconcileChangesWhenSnapshotExists() throws Exception {
+        cacheProperties.getSnapshot().setEnabled(true);
+        cacheProperties.getSnapshot().setPath(directory.resolve("snapshot.bin").toString());
+        Category category = new Category(UUID.randomUUID(), "Phones", "logo", List.of());
+        ProductView kept = new ProductView(UUID.randomUUID(), "kept", "kept-logo", category.getId(), "Phones");
+        ProductView updated = new ProductView(UUID.randomUUID(), "old name", "updated-logo", category.getId(), "Phones");
+        ProductView deleted = new ProductView(UUID.randomUUID(), "deleted", "deleted-logo", category.getId(), "Phones");
+        productCache.put(kept.id(), kept);
+        productCache.put(updated.id(), updated);
+        categoryCache.put(category.getId(),
+                new CategoryView(category.getId(), "Phones", "logo", List.of(kept, updated, deleted)));
+
+        dataLoader.saveSnapshot();
+        productCache.clear();
+        categoryCache.clear();
+
+        when(productRepository.findUpdatedSince(any()))
+                .thenReturn(List.of(new Product(updated.id(), "new name", "updated-logo", category)));
+        when(productRepository.findAllIds()).thenReturn(List.of(kept.id(), updated.id()));
+        when(categoryRepository.findUpdatedSince(any())).thenReturn(List.of());
+        when(categoryRepository.findAllIds()).thenReturn(List.of(category.getId()));
+
+        dataLoader.warmUp().get(10, TimeUnit.SECONDS);
+
+        assertEquals(CacheWarmUpProgress.State.COMPLETED, progress.getState());
+        assertEquals(kept, productCache.get(kept.id()).orElseThrow());
+        assertEquals("new name", productCache.get(updated.id()).orElseThrow().name());
+        assertFalse(productCache.get(deleted.id()).isPresent());
+        assertEquals(2, categoryCache.get(category.getId()).orElseThrow().products().size());
+        assertEquals(List.of(updated.id()), searchIndex.search(null, "new", PageRequest.of(0, 5)).orElseThrow()
+                .map(ProductView::id).getContent());
+        verify(productRepository, never()).findChunk(any(), any(), any());
+    }
+
+    @Test
+    void shouldIndexProductsMissingFromSnapshotWhenRestoring() throws Exception {
+        cacheProperties.getSnapshot().setEnabled(true);
+        cacheProperties.getSnapshot().setPath(directory.resolve("snapshot.bin").toString());
+        Category category = new Category(UUID.randomUUID(), "Phones", "logo", List.of());
+        ProductView cached = new ProductView(UUID.randomUUID(), "cached", "cached-logo", category.getId(), "Phones");
+        Product evicted = new Product(UUID.randomUUID(), "evicted", "evicted-logo", category);
+        productCache.put(cached.id(), cached);
+
+        dataLoader.saveSnapshot();
+        productCache.clear();
+
+        when(productRepository.findUpdatedSince(any())).thenReturn(List.of());
+        when(productRepository.findAllIds()).thenReturn(List.of(cached.id(), evicted.getId()));
+        when(productRepository.findAllWithCategoryByIdIn(List.of(evicted.getId()))).thenReturn(List.of(evicted));
+        when(categoryRepository.findUpdatedSince(any())).thenReturn(List.of());
+        when(categoryRepository.findAllIds()).thenReturn(List.of(category.getId()));
+
+        dataLoader.warmUp().get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, searchIndex.size());
+        assertEquals(List.of("cached", "evicted"), searchIndex.search("phone", null, PageRequest.of(0, 5))
+                .orElseThrow().map(ProductView::name).getContent());
+    }
+
+    @Test
+    void shouldKeepWritesMadeDuringWarmUpWhenLoadedRowsAreOlder() throws Exception {
+        cacheProperties.getWarmUp().setThreads(1);
+        Category kept = new Category(UUID.randomUUID(), "kept", "kept-logo", List.of());
+        Category deletedCategory = new Category(UUID.randomUUID(), "deleted", "deleted-logo", List.of());
+        Product edited = new Product(UUID.randomUUID(), "old name", "edited-logo", kept);
+        Product deleted = new Product(UUID.randomUUID(), "deleted", "deleted-logo", kept);
+        Product unchanged = new Product(UUID.randomUUID(), "unchanged", "unchanged-logo", kept);
+        Product orphaned = new Product(UUID.randomUUID(), "orphaned", "orphaned-logo", deletedCategory);
+        List<Product> products = new ArrayList<>(List.of(edited, deleted, unchanged, orphaned));
+        products.sort(Comparator.comparing(Product::getId, DATABASE_ORDER));
+        ProductView renamed = new ProductView(edited.getId(), "new name", "edited-logo", kept.getId(), "kept");
+        AtomicBoolean written = new AtomicBoolean();
+
+        when(productRepository.findChunk(any(), any(), any())).thenAnswer(invocation -> {
+            UUID after = invocation.getArgument(0);
+            UUID upTo = invocation.getArgument(1);
+            List<Product> chunk = products.stream()
+                    .filter(product -> DATABASE_ORDER.compare(product.getId(), after) > 0
+                            && DATABASE_ORDER.compare(product.getId(), upTo) <= 0)
+                    .limit(((Pageable) invocation.getArgument(2)).getPageSize())
+                    .toList();
+            if (!chunk.isEmpty() && written.compareAndSet(false, true)) {
+                warmUpGuard.writeProduct(renamed.id(), () -> {
+                    productCache.put(renamed.id(), renamed);
+                    searchIndex.put(renamed);
+                });
+                warmUpGuard.writeProduct(deleted.getId(), () -> {
+                    productCache.remove(deleted.getId());
+                    searchIndex.remove(deleted.getId());
+                });
+                warmUpGuard.removeCategory(deletedCategory.getId(), () -> {
+                    categoryCache.remove(deletedCategory.getId());
+                    searchIndex.removeCategory(deletedCategory.getId());
+                });
+            }
+            return chunk;
+        });
+        when(categoryRepository.findAll()).thenReturn(List.of(kept, deletedCategory));
+
+        dataLoader.warmUp().get(10, TimeUnit.SECONDS);
+
+        assertEquals("new name", productCache.get(edited.getId()).orElseThrow().name());
+        assertFalse(productCache.get(deleted.getId()).isPresent());
+        assertFalse(productCache.get(orphaned.getId()).isPresent());
+        assertFalse(categoryCache.get(deletedCategory.getId()).isPresent());
+        assertEquals(List.of("new name", "unchanged"), searchIndex.search(null, null, PageRequest.of(0, 5))
+                .orElseThrow().map(ProductView::name).getContent());
+        assertEquals(List.of("new name", "unchanged"), categoryCache.get(kept.getId()).orElseThrow().products()
+                .stream().map(ProductView::name).sorted().toList());
+    }
+
+    @Test
+    void shouldReportFailureWhenRepositoryFails() throws Exception {
+        when(productRepository.findChunk(any(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        dataLoader.warmUp().handle((ignored, error) -> error).get(10, TimeUnit.SECONDS);
+
+        assertEquals(CacheWarmUpProgress.State.FAILED, progress.getState());
+        assertTrue(progress.isFinished());
+        assertFalse(searchIndex.isReady());
+    }
+
+    @Test
+    void shouldSplitKeySpaceIntoContiguousRanges() {
+        List<DataLoader.KeyRange> ranges = DataLoader.splitKeyRange(8);
+
+        assertEquals(8, ranges.size());
+        assertEquals(new UUID(0L, 0L), ranges.get(0).after());
+        assertEquals(new UUID(-1L, -1L), ranges.get(7).upTo());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).upTo(), ranges.get(i).after());
+            assertTrue(DATABASE_ORDER.compare(ranges.get(i).after(), ranges.get(i).upTo()) < 0);
+        }
+    }
+}
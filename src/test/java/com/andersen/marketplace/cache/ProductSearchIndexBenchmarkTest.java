@@ -0,0 +1,104 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the product search answered by the database through the trigram indexes with the same search
+ * answered by the in-memory product search index, for selective, broad and combined filters.
+ * Run with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Sql("classpath:db/migration/V7__add_trigram_indexes.sql")
+class ProductSearchIndexBenchmarkTest extends IntegrationTestConfig {
+
+    private static final int CATEGORIES = 100;
+    private static final int PRODUCTS = 300_000;
+    private static final String[][] FILTERS = {
+            {null, "phone 4217 "}, {null, "PHONE 12"}, {"category 42", null}, {"ory 7", "phone 9"}, {null, "a"}};
+    private static final PageRequest PAGE = PageRequest.of(0, 20);
+    private static final int ROUNDS = 15;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+INSERT INTO categories (id, name)
+SELECT gen_random_uuid(), 'category ' || i
+FROM generate_series(1, ?) AS i
+""", CATEGORIES);
+        jdbcTemplate.update("""
+INSERT INTO products (id, name, category_id)
+SELECT gen_random_uuid(), 'phone ' || i || ' ' || md5(i::text), c.id
+FROM generate_series(1, ?) AS i
+JOIN categories c ON c.name = 'category ' || (i % ? + 1)
+""", PRODUCTS, CATEGORIES);
+        jdbcTemplate.execute("ANALYZE categories");
+        jdbcTemplate.execute("ANALYZE products");
+
+        List<ProductView> products = jdbcTemplate.query("""
+SELECT p.id, p.name, p.logo, c.id AS category_id, c.name AS category_name
+FROM products p
+JOIN categories c ON c.id = p.category_id
+""", (row, number) -> new ProductView(row.getObject("id", UUID.class), row.getString("name"),
+                row.getString("logo"), row.getObject("category_id", UUID.class), row.getString("category_name")));
+        searchIndex.putAll(products);
+        searchIndex.markReady();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM categories");
+    }
+
+    @Test
+    void compareDatabaseAndIndexSearch() {
+        System.out.printf("%-28s %10s %16s %16s%n", "filter", "matches", "database (ms)", "index (ms)");
+        for (String[] filter : FILTERS) {
+            long matches = searchIndex.search(filter[0], filter[1], PAGE).orElseThrow().getTotalElements();
+            long databaseMatches = productRepository.findAllWithFilter(filter[0], filter[1], PAGE).getTotalElements();
+            if (matches != databaseMatches) {
+                throw new IllegalStateException("Index found " + matches + " products, database " + databaseMatches);
+            }
+            double database = median(() -> productRepository.findAllWithFilter(filter[0], filter[1], PAGE)
+                    .getContent().size());
+            double index = median(() -> searchIndex.search(filter[0], filter[1], PAGE).orElseThrow()
+                    .getContent().size());
+            System.out.printf("%-28s %10d %16.2f %16.2f%n", Arrays.toString(filter), matches, database, index);
+        }
+    }
+
+    private static double median(Query query) {
+        query.run();
+        double[] millis = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            query.run();
+            millis[round] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        int run();
+    }
+}
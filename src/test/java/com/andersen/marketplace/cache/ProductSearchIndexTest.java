@@ -0,0 +1,169 @@
+package com.andersen.marketplace.cache;
+
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private static final UUID PHONES = UUID.randomUUID();
+    private static final UUID LAPTOPS = UUID.randomUUID();
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.putAll(List.of(
+                product("iPhone 15", PHONES, "Smartphones"),
+                product("Galaxy S24", PHONES, "Smartphones"),
+                product("MacBook Pro", LAPTOPS, "Laptops"),
+                product("ThinkPad X1", LAPTOPS, "Laptops")));
+        index.markReady();
+    }
+
+    @Test
+    void shouldMatchSubstringsIgnoringCaseWhenFiltersAreGiven() {
+        assertEquals(List.of("iPhone 15"), names(index.search(null, "PHONE", PageRequest.of(0, 10))));
+        assertEquals(List.of("MacBook Pro", "ThinkPad X1"), names(index.search("lap", null, PageRequest.of(0, 10))));
+        assertEquals(List.of("ThinkPad X1"), names(index.search("tops", "pad", PageRequest.of(0, 10))));
+        assertEquals(List.of(), names(index.search("phones", "pad", PageRequest.of(0, 10))));
+        assertEquals(List.of("Galaxy S24", "MacBook Pro", "ThinkPad X1", "iPhone 15"),
+                names(index.search(null, "", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void shouldCheckEveryProductWhenFilterIsShorterThanTrigram() {
+        assertEquals(List.of("Galaxy S24", "MacBook Pro", "ThinkPad X1"),
+                names(index.search(null, "a", PageRequest.of(0, 10))));
+        assertEquals(List.of("ThinkPad X1"), names(index.search(null, "x1", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void shouldReturnRequestedPageAndTotalWhenResultsSpanPages() {
+        Page<ProductView> page = index.search(null, null, PageRequest.of(1, 3)).orElseThrow();
+
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of("iPhone 15"), page.map(ProductView::name).getContent());
+    }
+
+    @Test
+    void shouldReturnPagesInNameOrderWhenOnlyFirstPagesAreKept() {
+        List<String> expected = new ArrayList<>();
+        List<ProductView> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String name = String.format("item %02d", (i * 17) % 50);
+            products.add(product(name, PHONES, "Smartphones"));
+            expected.add(String.format("item %02d", i));
+        }
+        index.putAll(products);
+
+        List<String> pages = new ArrayList<>();
+        for (int page = 0; page < 8; page++) {
+            Page<ProductView> result = index.search(null, "item", PageRequest.of(page, 7)).orElseThrow();
+            assertEquals(50, result.getTotalElements());
+            pages.addAll(result.map(ProductView::name).getContent());
+        }
+
+        assertEquals(expected, pages);
+    }
+
+    @Test
+    void shouldReflectUpdatesAndRemovalsWhenProductsChange() {
+        ProductView galaxy = index.search(null, "galaxy", PageRequest.of(0, 1)).orElseThrow().getContent().get(0);
+
+        index.put(new ProductView(galaxy.id(), "Pixel 9", null, PHONES, "Smartphones"));
+        index.remove(index.search(null, "iphone", PageRequest.of(0, 1)).orElseThrow().getContent().get(0).id());
+        index.removeCategory(LAPTOPS);
+
+        assertEquals(List.of(), names(index.search(null, "galaxy", PageRequest.of(0, 10))));
+        assertEquals(List.of("Pixel 9"), names(index.search(null, null, PageRequest.of(0, 10))));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void shouldKeepResultsWhenRemovedProductsAreCompacted() {
+        List<ProductView> products = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            products.add(product("item " + i, PHONES, "Smartphones"));
+        }
+        index.putAll(products);
+        products.subList(0, 2990).forEach(product -> index.remove(product.id()));
+
+        assertEquals(14, index.size());
+        assertEquals(List.of("item 2990", "item 2991", "item 2992", "item 2993", "item 2994", "item 2995",
+                "item 2996", "item 2997", "item 2998", "item 2999"),
+                names(index.search(null, "item", PageRequest.of(0, 20))));
+    }
+
+    @Test
+    void shouldOrderNamesByCodePointWhenCaseAccentsAndPunctuationDiffer() {
+        index.putAll(List.of(product("ipad", PHONES, "Smartphones"), product("Ipad", PHONES, "Smartphones"),
+                product("\u00e9clair", PHONES, "Smartphones"), product("i-pad", PHONES, "Smartphones"),
+                product("i pad", PHONES, "Smartphones"), product("\ud83d\ude00 phone", PHONES, "Smartphones"),
+                product("\uff21 phone", PHONES, "Smartphones")));
+
+        assertEquals(List.of("Galaxy S24", "Ipad", "MacBook Pro", "ThinkPad X1", "i pad", "i-pad", "iPhone 15",
+                "ipad", "\u00e9clair", "\uff21 phone", "\ud83d\ude00 phone"),
+                names(index.search(null, null, PageRequest.of(0, 20))));
+    }
+
+    @Test
+    void shouldLeaveSearchToDatabaseWhenNotReadyOrFilterHasWildcards() {
+        ProductSearchIndex empty = new ProductSearchIndex();
+
+        assertFalse(empty.search(null, "phone", PageRequest.of(0, 10)).isPresent());
+        assertFalse(index.search(null, "i_hone", PageRequest.of(0, 10)).isPresent());
+        assertFalse(index.search("smart%", null, PageRequest.of(0, 10)).isPresent());
+        assertTrue(index.search(null, "iphone", PageRequest.of(0, 10)).isPresent());
+    }
+
+    @Test
+    void shouldIgnoreUpdatesAndLeaveSearchToDatabaseWhenDisabled() {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getSearchIndex().setEnabled(false);
+        ProductSearchIndex disabled = new ProductSearchIndex(cacheProperties);
+
+        disabled.putAll(List.of(product("iPhone 15", PHONES, "Smartphones")));
+        disabled.markReady();
+
+        assertEquals(0, disabled.size());
+        assertFalse(disabled.isReady());
+        assertFalse(disabled.search(null, "phone", PageRequest.of(0, 10)).isPresent());
+    }
+
+    @Test
+    void shouldRoundTripCompressedPostingsWhenGapsVary() {
+        int[] documents = {0, 1, 127, 128, 16_511, 16_512, 2_000_000, Integer.MAX_VALUE};
+        ProductSearchIndex.Postings postings = new ProductSearchIndex.Postings();
+        for (int document : documents) {
+            postings.add(document);
+            postings.add(document);
+        }
+
+        assertArrayEquals(documents, postings.toArray());
+        assertEquals(documents.length, postings.size());
+        assertEquals(15, postings.encodedLength());
+    }
+
+    private static ProductView product(String name, UUID categoryId, String categoryName) {
+        return new ProductView(UUID.randomUUID(), name, null, categoryId, categoryName);
+    }
+
+    private static List<String> names(Optional<Page<ProductView>> page) {
+        return page.orElseThrow().map(ProductView::name).getContent();
+    }
+}
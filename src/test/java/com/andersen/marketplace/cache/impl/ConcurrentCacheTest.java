@@ -0,0 +1,444 @@
+package com.andersen.marketplace.cache.impl;
+
+import com.andersen.marketplace.cache.EvictionPolicy;
+import com.andersen.marketplace.properties.CacheProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentCacheTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int KEYS_PER_THREAD = 10_000;
+    private static final int SHARED_KEYS = 64;
+
+    private final List<ConcurrentCache<?, ?>> caches = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(ConcurrentCache::close);
+    }
+
+    @Test
+    void shouldNotLoseEntriesWhenWrittenConcurrently() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>());
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                String key = thread + ":" + i;
+                cache.put(key, key);
+                cache.get(key);
+            }
+        });
+
+        assertEquals(THREADS * KEYS_PER_THREAD, cache.size());
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                String key = thread + ":" + i;
+                assertEquals(Optional.of(key), cache.get(key));
+            }
+        }
+    }
+
+    @Test
+    void shouldNeverReturnCorruptedValuesWhenKeysAreShared() throws Exception {
+        ConcurrentCache<Integer, String> cache = register(new ConcurrentCache<>());
+        AtomicInteger corrupted = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                int key = i % SHARED_KEYS;
+                if (i % 3 == 0) {
+                    cache.remove(key);
+                } else {
+                    cache.put(key, key + ":" + thread);
+                }
+                cache.get(key)
+                        .filter(value -> !value.startsWith(key + ":"))
+                        .ifPresent(value -> corrupted.incrementAndGet());
+                if (i % 100 == 0) {
+                    cache.clean();
+                }
+            }
+        });
+
+        assertEquals(0, corrupted.get());
+        assertTrue(cache.size() <= SHARED_KEYS);
+    }
+
+    @Test
+    void shouldTreatExpiredEntryAsAbsentWhenTimeoutElapsed() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>(TimeUnit.HOURS.toMillis(1)) {
+            private long now;
+
+            @Override
+            protected long now() {
+                return now += TimeUnit.MINUTES.toNanos(45);
+            }
+        });
+        cache.put("key", "value");
+
+        assertEquals(Optional.of("value"), cache.get("key"));
+        assertEquals(Optional.empty(), cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldRemoveExpiredEntriesInBackgroundWhenTimeoutElapsed() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>(10L));
+        cache.put("key", "value");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldStayWithinMaximumSizeWhenWrittenConcurrently() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>(spec(1_000L, null, EvictionPolicy.W_TINY_LFU)));
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                String key = thread + ":" + i;
+                cache.put(key, key);
+                cache.get(key).ifPresent(value -> assertEquals(key, value));
+            }
+        });
+
+        assertEquals(1_000, cache.size());
+    }
+
+    @Test
+    void shouldKeepFrequentlyUsedEntriesWhenOneOffKeysAreScanned() {
+        ConcurrentCache<Integer, Integer> cache = register(new ConcurrentCache<>(spec(100L, null, EvictionPolicy.W_TINY_LFU)));
+        for (int key = 0; key < 50; key++) {
+            cache.put(key, key);
+            for (int i = 0; i < 5; i++) {
+                cache.get(key);
+            }
+        }
+
+        for (int key = 1_000; key < 11_000; key++) {
+            cache.put(key, key);
+            cache.get(key % 50);
+        }
+
+        long retained = countPresent(cache, 0, 50);
+        assertTrue(retained >= 45, "only " + retained + " hot entries retained");
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntryWhenSegmentedLruIsFull() {
+        ConcurrentCache<Integer, Integer> cache = register(new ConcurrentCache<>(spec(3L, null, EvictionPolicy.SEGMENTED_LRU)));
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.get(1);
+
+        cache.put(4, 4);
+
+        assertEquals(Optional.of(1), cache.get(1));
+        assertEquals(Optional.empty(), cache.get(2));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void shouldStayWithinMaximumWeightWhenEntriesHaveDifferentWeights() {
+        ConcurrentCache<Integer, String> cache = register(new ConcurrentCache<>(spec(null, 100L, EvictionPolicy.W_TINY_LFU)) {
+            @Override
+            protected int weigh(Integer key, String value) {
+                return value.length();
+            }
+        });
+
+        for (int key = 0; key < 100; key++) {
+            cache.put(key, "x".repeat(1 + key % 20));
+        }
+
+        int weight = 0;
+        for (int key = 0; key < 100; key++) {
+            weight += cache.get(key).map(String::length).orElse(0);
+        }
+        assertTrue(weight <= 100, "weight " + weight + " exceeds maximum");
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    void shouldNotifyRemovalWhenEntriesAreEvictedReplacedOrRemoved() {
+        List<String> removed = new ArrayList<>();
+        ConcurrentCache<Integer, String> cache = register(new ConcurrentCache<>(spec(2L, null, EvictionPolicy.SEGMENTED_LRU)) {
+            @Override
+            protected void onRemoval(Integer key, String value) {
+                removed.add(value);
+            }
+        });
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(1, "uno");
+        cache.put(3, "three");
+        cache.remove(3);
+        cache.remove(4);
+        cache.clear();
+
+        assertEquals(List.of("one", "two", "three", "uno"), removed);
+    }
+
+    @Test
+    void shouldLoadOnceWhenConcurrentCallersMissSameKey() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread releaser = new Thread(() -> {
+            awaitQuietly(arrived);
+            sleepQuietly(100);
+            release.countDown();
+        });
+        releaser.start();
+        runConcurrently(thread -> {
+            arrived.countDown();
+            String value = cache.get("key", key -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                return "value";
+            });
+            assertEquals("value", value);
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(Optional.of("value"), cache.get("key"));
+    }
+
+    @Test
+    void shouldPropagateFailureToAllWaitersWithoutCachingWhenLoadFails() throws Exception {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>());
+        IllegalStateException failure = new IllegalStateException("load failed");
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread releaser = new Thread(() -> {
+            awaitQuietly(arrived);
+            sleepQuietly(100);
+            release.countDown();
+        });
+        releaser.start();
+        runConcurrently(thread -> {
+            arrived.countDown();
+            IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                throw failure;
+            }));
+            assertSame(failure, thrown);
+            failures.incrementAndGet();
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(THREADS, failures.get());
+        assertEquals(Optional.empty(), cache.get("key"));
+        assertEquals("reloaded", cache.get("key", key -> "reloaded"));
+    }
+
+    @Test
+    void shouldNotCacheWhenLoaderReturnsNull() {
+        ConcurrentCache<String, String> cache = register(new ConcurrentCache<>());
+
+        assertNull(cache.get("key", key -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldServeCurrentValueAndReloadInBackgroundWhenRefreshIsDue() {
+        List<Runnable> refreshes = new ArrayList<>();
+        ManualClockCache<String, String> cache = register(new ManualClockCache<>(refreshSpec(), refreshes::add));
+        cache.put("key", "v1");
+
+        cache.advance(600);
+
+        assertEquals("v1", cache.get("key", key -> "v2"));
+        assertEquals(1, refreshes.size());
+        assertEquals("v1", cache.get("key", key -> "v3"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+
+        assertEquals(Optional.of("v2"), cache.get("key"));
+    }
+
+    @Test
+    void shouldBlockOnLoadWhenMaximumStalenessElapsed() {
+        Executor saturated = task -> {
+            throw new RejectedExecutionException();
+        };
+        ManualClockCache<String, String> cache = register(new ManualClockCache<>(refreshSpec(), saturated));
+        cache.put("key", "v1");
+
+        cache.advance(600);
+        assertEquals("v1", cache.get("key", key -> "v2"));
+
+        cache.advance(2_500);
+        assertEquals("v3", cache.get("key", key -> "v3"));
+    }
+
+    @Test
+    void shouldExpireAtTimeoutForReadsWithoutLoaderWhenRefreshAheadIsEnabled() {
+        List<Runnable> refreshes = new ArrayList<>();
+        ManualClockCache<String, String> cache = register(new ManualClockCache<>(refreshSpec(), refreshes::add));
+        cache.put("key", "v1");
+
+        cache.advance(1_500);
+
+        assertEquals(Optional.empty(), cache.get("key"));
+        List<String> values = new ArrayList<>();
+        cache.forEach((key, value) -> values.add(value));
+        assertEquals(List.of(), values);
+        assertEquals("v1", cache.get("key", key -> "v2"));
+        assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    void shouldRejectRefreshAheadFractionWhenOutsideUnitInterval() {
+        for (double fraction : new double[]{0, 1, -0.5, 1.5}) {
+            CacheProperties.Spec spec = refreshSpec();
+            spec.setRefreshAheadFraction(fraction);
+
+            assertThrows(IllegalArgumentException.class, () -> new ConcurrentCache<>(spec));
+        }
+    }
+
+    @Test
+    void shouldRecordHitsMissesLoadsAndEvictionsWhenCacheIsUsed() {
+        ConcurrentCache<Integer, String> cache = register(new ConcurrentCache<>(spec(2L, null, EvictionPolicy.SEGMENTED_LRU)));
+
+        cache.get(1, key -> "one");
+        cache.get(1, key -> "one");
+        assertThrows(IllegalStateException.class, () -> cache.get(2, key -> {
+            throw new IllegalStateException();
+        }));
+        cache.put(2, "two");
+        cache.put(3, "three");
+
+        CacheStatsCounter stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getLoadSuccessCount());
+        assertEquals(1, stats.getLoadFailureCount());
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(2, cache.weightedSize());
+    }
+
+    private static CacheProperties.Spec refreshSpec() {
+        CacheProperties.Spec spec = new CacheProperties.Spec(1_000L);
+        spec.setRefreshAheadFraction(0.5);
+        spec.setMaxStaleness(3_000L);
+        return spec;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CacheProperties.Spec spec(Long maximumSize, Long maximumWeight, EvictionPolicy policy) {
+        CacheProperties.Spec spec = new CacheProperties.Spec();
+        spec.setMaximumSize(maximumSize);
+        spec.setMaximumWeight(maximumWeight);
+        spec.setPolicy(policy);
+        return spec;
+    }
+
+    private static long countPresent(ConcurrentCache<Integer, ?> cache, int from, int to) {
+        long present = 0;
+        for (int key = from; key < to; key++) {
+            if (cache.get(key).isPresent()) {
+                present++;
+            }
+        }
+        return present;
+    }
+
+    private <C extends ConcurrentCache<?, ?>> C register(C cache) {
+        caches.add(cache);
+        return cache;
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                int threadId = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadId);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class ManualClockCache<K, V> extends ConcurrentCache<K, V> {
+
+        private long now;
+
+        ManualClockCache(CacheProperties.Spec spec, Executor refreshExecutor) {
+            super(spec, refreshExecutor);
+        }
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        protected long now() {
+            return now;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
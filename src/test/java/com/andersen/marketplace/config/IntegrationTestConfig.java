@@ -1,6 +1,5 @@
 package com.andersen.marketplace.config;
 
-import com.amazonaws.services.s3.AmazonS3;
 import com.andersen.marketplace.cache.GenericCache;
 import com.andersen.marketplace.entity.Product;
 import com.andersen.marketplace.repository.CategoryRepository;
@@ -8,12 +7,10 @@ import com.andersen.marketplace.repository.ProductRepository;
 import com.andersen.marketplace.service.PictureService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -21,6 +18,10 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.UUID;
 
 @RunWith(SpringRunner.class)
@@ -31,6 +32,10 @@ public abstract class IntegrationTestConfig {
 
     private static final CustomPostgresqlContainer pgContainer = CustomPostgresqlContainer.getInstance();
 
+    private static final Path pictureRoot = createTempDirectory("pictures");
+
+    private static final Path imageCacheDirectory = createTempDirectory("image-cache");
+
     @Autowired
     protected MockMvc mockMvc;
 
@@ -46,14 +51,21 @@ public abstract class IntegrationTestConfig {
     @Autowired
     private CategoryRepository categoryRepository;
 
-    @MockBean
-    private AmazonS3 amazonS3;
-
     @DynamicPropertySource
     static void configureProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.datasource.url", pgContainer::getJdbcUrl);
         registry.add("spring.datasource.username", pgContainer::getUsername);
         registry.add("spring.datasource.password", pgContainer::getPassword);
+        registry.add("pictures.local.root", pictureRoot::toString);
+        registry.add("pictures.proxy.directory", imageCacheDirectory::toString);
+    }
+
+    private static Path createTempDirectory(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @AfterEach
@@ -1,9 +1,9 @@
 package com.andersen.marketplace.controller;
 
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.model.CategoryView;
 import com.andersen.marketplace.config.IntegrationTestConfig;
 import com.andersen.marketplace.dto.CategoryDto;
-import com.andersen.marketplace.entity.Product;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +13,7 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockPart;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.List;
 import java.util.UUID;
 
 import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_ID;
@@ -27,7 +28,7 @@ class CategoryControllerIntegrationTest extends IntegrationTestConfig {
 
     @Qualifier("categoryCache")
     @Autowired
-    private GenericCache<UUID, Product> cache;
+    private GenericCache<UUID, CategoryView> cache;
 
     @AfterEach
     public void tearDown() {
@@ -44,6 +45,27 @@ class CategoryControllerIntegrationTest extends IntegrationTestConfig {
                 .andExpect(jsonPath("$.content[0].name").value(TEST_CATEGORY_NAME));
     }
 
+    @Test
+    void shouldPageCategoriesWithTheirProductsWhenCategoriesSpanPages() throws Exception {
+        for (String name : List.of("Phones", "Audio", "Laptops")) {
+            UUID categoryId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, ?)", categoryId, name);
+            for (int i = 0; i < 2; i++) {
+                jdbcTemplate.update("INSERT INTO products (id, name, category_id) VALUES (?, ?, ?)",
+                        UUID.randomUUID(), name + " " + i, categoryId);
+            }
+        }
+
+        mockMvc.perform(get("/api/categories")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("Phones"))
+                .andExpect(jsonPath("$.content[0].products.length()").value(2));
+    }
+
     @Test
     void shouldReturnCategoryWhenCategoryWasAdded() throws Exception {
         String newCategory = "new category";
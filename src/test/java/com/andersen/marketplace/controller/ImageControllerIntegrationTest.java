@@ -0,0 +1,72 @@
+package com.andersen.marketplace.controller;
+
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.service.PictureService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ImageControllerIntegrationTest extends IntegrationTestConfig {
+
+    @Autowired
+    private PictureService pictureService;
+
+    private byte[] picture;
+    private String key;
+
+    @BeforeEach
+    public void storePicture() {
+        picture = ("image-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        key = pictureService.uploadAndGetKey(new MockMultipartFile("file", "image.png", "image/png", picture));
+    }
+
+    @Test
+    void shouldServeImageThroughCacheWhenImageExists() throws Exception {
+        String eTag = mockMvc.perform(get("/api/images/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, picture.length))
+                .andExpect(content().bytes(picture))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/images/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().bytes(picture));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenETagMatches() throws Exception {
+        String eTag = mockMvc.perform(get("/api/images/" + key))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/images/" + key).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void shouldReturnPartialContentWhenRangeIsRequested() throws Exception {
+        mockMvc.perform(get("/api/images/" + key).header(HttpHeaders.RANGE, "bytes=1-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-4/" + picture.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(picture, 1, 5)));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenImageIsMissing() throws Exception {
+        mockMvc.perform(get("/api/images/" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+}
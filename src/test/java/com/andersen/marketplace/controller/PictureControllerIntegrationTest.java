@@ -0,0 +1,104 @@
+package com.andersen.marketplace.controller;
+
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.dto.PictureUploadRequest;
+import com.andersen.marketplace.service.PictureService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PictureControllerIntegrationTest extends IntegrationTestConfig {
+
+    @Autowired
+    private PictureService pictureService;
+
+    private byte[] picture;
+    private String key;
+
+    @BeforeEach
+    public void storePicture() {
+        picture = ("picture-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        key = pictureService.uploadAndGetKey(new MockMultipartFile("file", "picture.png", "image/png", picture));
+    }
+
+    @Test
+    void shouldServePictureWithETagWhenPictureExists() throws Exception {
+        mockMvc.perform(get(pictureService.getPictureUrl(key)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, picture.length))
+                .andExpect(content().bytes(picture));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenETagMatches() throws Exception {
+        String eTag = mockMvc.perform(get("/api/pictures/" + key))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/pictures/" + key).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void shouldReturnPartialContentWhenRangeIsRequested() throws Exception {
+        mockMvc.perform(get("/api/pictures/" + key).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/" + picture.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(picture, 2, 6)));
+
+        mockMvc.perform(get("/api/pictures/" + key).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(picture, picture.length - 3, picture.length)));
+    }
+
+    @Test
+    void shouldReturnRangeNotSatisfiableWhenRangeIsOutOfBounds() throws Exception {
+        mockMvc.perform(get("/api/pictures/" + key).header(HttpHeaders.RANGE, "bytes=" + picture.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + picture.length));
+    }
+
+    @Test
+    void shouldServeDirectUploadWhenPictureWasPut() throws Exception {
+        String response = mockMvc.perform(post("/api/pictures/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PictureUploadRequest("image/png"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.method").value("PUT"))
+                .andReturn().getResponse().getContentAsString();
+        PictureUploadDto upload = objectMapper.readValue(response, PictureUploadDto.class);
+
+        mockMvc.perform(put(upload.getUrl()).content(picture))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(upload.getUrl()).content(picture))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(upload.getUrl()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(picture));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenPictureDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/pictures/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
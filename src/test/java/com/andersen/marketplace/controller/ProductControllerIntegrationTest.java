@@ -1,16 +1,21 @@
 package com.andersen.marketplace.controller;
 
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.model.ProductView;
 import com.andersen.marketplace.config.IntegrationTestConfig;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.dto.ProductSearchRequest;
-import com.andersen.marketplace.entity.Product;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockPart;
 import org.springframework.test.context.jdbc.Sql;
 
@@ -21,11 +26,15 @@ import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_NAME;
 import static com.andersen.marketplace.utils.TestConstants.TEST_LOGO;
 import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_ID;
 import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_NAME;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -33,7 +42,10 @@ public class ProductControllerIntegrationTest extends IntegrationTestConfig {
 
     @Qualifier("productCache")
     @Autowired
-    private GenericCache<UUID, Product> cache;
+    private GenericCache<UUID, ProductView> cache;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
 
     @AfterEach
     public void tearDown() {
@@ -63,6 +75,50 @@ public class ProductControllerIntegrationTest extends IntegrationTestConfig {
                 .andExpect(jsonPath("$.category").value(TEST_CATEGORY_NAME));
     }
 
+    @Test
+    @Sql("/sql/add-products.sql")
+    void shouldAllowCachingWhenProductIsRead() throws Exception {
+        mockMvc.perform(get("/api/products/" + TEST_PRODUCT_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, public"));
+    }
+
+    @Test
+    @Sql("/sql/add-products.sql")
+    void shouldReturnNotModifiedWhenProductIsUnchanged() {
+        ResponseEntity<String> first = restTemplate.getForEntity("/api/products/" + TEST_PRODUCT_ID, String.class);
+        String eTag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(eTag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        ResponseEntity<String> second = restTemplate.exchange("/api/products/" + TEST_PRODUCT_ID, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+    }
+
+    @Test
+    @Sql("/sql/add-products.sql")
+    void shouldScrollProductsByNameWhenCursorIsFollowed() throws Exception {
+        String cursor = mockMvc.perform(get("/api/products/scroll").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("Asus VivoBook", "iPhone 15 Pro")))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get("/api/products/scroll")
+                        .param("size", "2")
+                        .param("cursor", objectMapper.readTree(cursor).get("nextCursor").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("iPhone 16 Pro")))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/products/scroll").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Sql("/sql/add-products.sql")
     void shouldReturnProductsWhenProductsWereFound() throws Exception {
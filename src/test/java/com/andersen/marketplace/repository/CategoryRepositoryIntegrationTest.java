@@ -0,0 +1,54 @@
+package com.andersen.marketplace.repository;
+
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.entity.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CategoryRepositoryIntegrationTest extends IntegrationTestConfig {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldPageCategoryIdsByNameWhenPageIsRequested() {
+        UUID audio = insertCategory("Audio");
+        insertCategory("Phones");
+        UUID laptops = insertCategory("Laptops");
+
+        Page<UUID> firstPage = categoryRepository.findIdsOrderByName(PageRequest.of(0, 2));
+
+        assertEquals(List.of(audio, laptops), firstPage.getContent());
+        assertEquals(3, firstPage.getTotalElements());
+    }
+
+    @Test
+    void shouldRejectPagedCollectionFetchWhenItWouldBePaginatedInMemory() {
+        insertCategory("Audio");
+        TypedQuery<Category> query = entityManager
+                .createQuery("SELECT c FROM Category c LEFT JOIN FETCH c.products", Category.class)
+                .setMaxResults(2);
+
+        assertThrows(PersistenceException.class, query::getResultList);
+    }
+
+    private UUID insertCategory(String name) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, ?)", id, name);
+        return id;
+    }
+}
@@ -0,0 +1,233 @@
+package com.andersen.marketplace.repository;
+
+import com.andersen.marketplace.cache.ProductSearchIndex;
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Sql("classpath:db/migration/V7__add_trigram_indexes.sql")
+@Sql(scripts = "classpath:db/migration/V8__add_product_search_vector.sql",
+        config = @SqlConfig(separator = ScriptUtils.EOF_STATEMENT_SEPARATOR))
+@Sql("classpath:db/migration/V9__add_name_c_id_index.sql")
+class ProductRepositoryIntegrationTest extends IntegrationTestConfig {
+
+    private static final int CATEGORIES = 10_000;
+    private static final int PRODUCTS = 100_000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+INSERT INTO categories (id, name)
+SELECT gen_random_uuid(), 'category ' || md5(i::text)
+FROM generate_series(1, ?) AS i
+""", CATEGORIES);
+        jdbcTemplate.update("""
+INSERT INTO products (id, name, category_id)
+SELECT gen_random_uuid(), 'product ' || md5((-i)::text), c.id
+FROM generate_series(1, ?) AS i
+JOIN categories c ON c.name = 'category ' || md5((i % ? + 1)::text)
+""", PRODUCTS, CATEGORIES);
+        jdbcTemplate.execute("ANALYZE categories");
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM categories");
+    }
+
+    @Test
+    void shouldUseProductTrigramIndexWhenFilteringByName() {
+        String name = jdbcTemplate.queryForObject("SELECT upper(substr(md5('-42'), 3, 12))", String.class);
+
+        Page<Product> page = productRepository.findAllWithFilter(null, name, PageRequest.of(0, 5));
+
+        assertEquals(1, page.getTotalElements());
+        assertTrue(page.getContent().get(0).getName().contains(name.toLowerCase()));
+        assertUsesIndex(ProductRepository.SEARCH_BY_NAME_QUERY, null, name, "idx_products_name_trgm");
+        assertUsesIndex(ProductRepository.SEARCH_BY_NAME_COUNT_QUERY, null, name, "idx_products_name_trgm");
+    }
+
+    @Test
+    void shouldUseCategoryTrigramIndexWhenFilteringByCategory() {
+        String category = jdbcTemplate.queryForObject("SELECT upper(substr(md5('7'), 3, 12))", String.class);
+
+        Page<Product> page = productRepository.findAllWithFilter(category, null, PageRequest.of(0, 20));
+
+        assertEquals(PRODUCTS / CATEGORIES, page.getTotalElements());
+        assertEquals(PRODUCTS / CATEGORIES, page.getContent().size());
+        assertUsesIndex(ProductRepository.SEARCH_BY_CATEGORY_QUERY, category, null, "idx_categories_name_trgm");
+        assertUsesIndex(ProductRepository.SEARCH_BY_CATEGORY_COUNT_QUERY, category, null, "idx_categories_name_trgm");
+    }
+
+    @Test
+    void shouldUseTrigramIndexesWhenStatementIsPlannedGenerically() {
+        String name = jdbcTemplate.queryForObject("SELECT upper(substr(md5('-42'), 3, 12))", String.class);
+        String category = jdbcTemplate.queryForObject("SELECT c.name FROM products p JOIN categories c "
+                + "ON c.id = p.category_id WHERE p.name = 'product ' || md5('-42')", String.class).substring(9, 21);
+
+        assertEquals(1, productRepository.findAllWithFilter(category, name, PageRequest.of(0, 5)).getTotalElements());
+        assertUsesIndexWithGenericPlan(ProductRepository.SEARCH_BY_NAME_QUERY,
+                Map.of("name", name), "idx_products_name_trgm");
+        assertUsesIndexWithGenericPlan(ProductRepository.SEARCH_BY_CATEGORY_COUNT_QUERY,
+                Map.of("category", category), "idx_categories_name_trgm");
+        assertUsesIndexWithGenericPlan(ProductRepository.SEARCH_BY_CATEGORY_AND_NAME_QUERY,
+                Map.of("category", category, "name", name), "idx_products_name_trgm");
+    }
+
+    @Test
+    void shouldOrderSearchLikeSearchIndexWhenNamesDifferInCasePunctuationAndSpaces() {
+        UUID gadgets = insertCategory("Gadgets");
+        List.of("ipad", "Ipad", "i-pad", "i pad", "ipad mini", "iPad Air", "_pad", "10 pad", "2 pad", "\u00e9clair",
+                "\u00c9clair", "e-clair", "eclair", "Zune", "zune", "\uff21 phone", "\ud83d\ude00 phone", "ipad")
+                .forEach(name -> insertProduct(name, gadgets));
+
+        List<Product> products = productRepository.findAllWithFilter("gadgets", null, PageRequest.of(0, 50))
+                .getContent();
+        List<ProductView> views = new ArrayList<>(products.stream()
+                .map(product -> new ProductView(product.getId(), product.getName(), null, gadgets, "Gadgets"))
+                .toList());
+        Collections.shuffle(views, new Random(42));
+        ProductSearchIndex searchIndex = new ProductSearchIndex();
+        searchIndex.putAll(views);
+        searchIndex.markReady();
+
+        assertEquals(18, products.size());
+        assertEquals(products.stream().map(Product::getId).toList(),
+                searchIndex.search("gadgets", null, PageRequest.of(0, 50)).orElseThrow()
+                        .map(ProductView::id).getContent());
+    }
+
+    @Test
+    void shouldUseNameIndexWhenSearchingWithoutFilters() {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + ProductRepository.SEARCH_QUERY + " LIMIT 20",
+                String.class);
+
+        String text = String.join("\n", plan);
+        assertTrue(text.contains("Index Scan using idx_products_name_c_id"), text);
+    }
+
+    @Test
+    void shouldRankProductsByRelevanceWhenSearchingFullText() {
+        UUID footwear = insertCategory("Footwear");
+        UUID shoes = insertCategory("Shoes");
+        insertProduct("Running socks", shoes);
+        insertProduct("Trail running shoes", footwear);
+        insertProduct("Leather boots", footwear);
+
+        Page<Product> page = productRepository.findAllByFullText("running shoes", PageRequest.of(0, 5));
+
+        assertEquals(List.of("Trail running shoes", "Running socks"),
+                page.getContent().stream().map(Product::getName).toList());
+        assertUsesIndex(ProductRepository.FULL_TEXT_QUERY,
+                new MapSqlParameterSource("query", "running shoes"), "idx_products_search_vector");
+        assertUsesIndex(ProductRepository.FULL_TEXT_COUNT_QUERY,
+                new MapSqlParameterSource("query", "running shoes"), "idx_products_search_vector");
+    }
+
+    @Test
+    void shouldFindProductsByNewCategoryNameWhenCategoryIsRenamed() {
+        UUID shoes = insertCategory("Shoes");
+        insertProduct("Running socks", shoes);
+
+        jdbcTemplate.update("UPDATE categories SET name = 'Sneakers' WHERE id = ?", shoes);
+
+        assertEquals(List.of("Running socks"), productRepository.findAllByFullText("sneakers", PageRequest.of(0, 5))
+                .getContent().stream().map(Product::getName).toList());
+        assertEquals(0, productRepository.findAllByFullText("shoes", PageRequest.of(0, 5)).getTotalElements());
+    }
+
+    private UUID insertCategory(String name) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, ?)", id, name);
+        return id;
+    }
+
+    private void insertProduct(String name, UUID categoryId) {
+        jdbcTemplate.update("INSERT INTO products (id, name, category_id) VALUES (?, ?, ?)",
+                UUID.randomUUID(), name, categoryId);
+    }
+
+    private void assertUsesIndex(String query, String category, String name, String index) {
+        assertUsesIndex(query, new MapSqlParameterSource()
+                .addValue("category", category)
+                .addValue("name", name), index);
+    }
+
+    /**
+     * Asserts that a query uses an index under the generic plan PostgreSQL may switch to once the driver
+     * server-prepares the statement, past its {@code prepareThreshold}, which is forced here.
+     */
+    private void assertUsesIndexWithGenericPlan(String query, Map<String, String> parameters, String index) {
+        List<String> names = new ArrayList<>(parameters.keySet());
+        String sql = query;
+        for (int i = 0; i < names.size(); i++) {
+            sql = sql.replace(":" + names.get(i), "$" + (i + 1));
+        }
+        String prepare = "PREPARE generic_search (" + String.join(", ", Collections.nCopies(names.size(), "text"))
+                + ") AS " + sql;
+        String arguments = names.stream()
+                .map(name -> "'" + parameters.get(name).replace("'", "''") + "'")
+                .collect(Collectors.joining(", "));
+        List<String> plan = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute(prepare);
+                try (ResultSet resultSet = statement.executeQuery("EXPLAIN EXECUTE generic_search (" + arguments + ")")) {
+                    List<String> lines = new ArrayList<>();
+                    while (resultSet.next()) {
+                        lines.add(resultSet.getString(1));
+                    }
+                    return lines;
+                } finally {
+                    statement.execute("DEALLOCATE generic_search");
+                    statement.execute("RESET plan_cache_mode");
+                }
+            }
+        });
+
+        String text = String.join("\n", plan);
+        assertTrue(text.contains("Index Scan on " + index), text);
+    }
+
+    private void assertUsesIndex(String query, MapSqlParameterSource parameters, String index) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(query);
+        String sql = NamedParameterUtils.substituteNamedParameters(parsedSql, parameters);
+        Object[] arguments = NamedParameterUtils.buildValueArray(parsedSql, parameters, null);
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, arguments);
+
+        String text = String.join("\n", plan);
+        assertTrue(text.contains("Bitmap Index Scan on " + index), text);
+    }
+}
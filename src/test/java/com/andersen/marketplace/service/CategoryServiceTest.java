@@ -1,8 +1,12 @@
 package com.andersen.marketplace.service;
 
+import com.andersen.marketplace.cache.CacheWarmUpGuard;
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.ProductSearchIndex;
+import com.andersen.marketplace.cache.model.CategoryView;
 import com.andersen.marketplace.dto.CategoryDto;
 import com.andersen.marketplace.dto.CategoryProductsDto;
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.entity.Category;
 import com.andersen.marketplace.entity.Product;
@@ -13,8 +17,6 @@ import com.andersen.marketplace.mapper.ProductMapperImpl;
 import com.andersen.marketplace.repository.CategoryRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -25,10 +27,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_ID;
 import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_NAME;
@@ -38,7 +43,10 @@ import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_ID;
 import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,10 +70,13 @@ class CategoryServiceTest {
     private MultipartFile file;
 
     @Mock
-    private GenericCache<UUID, Category> cache;
+    private GenericCache<UUID, CategoryView> cache;
 
-    @Captor
-    private ArgumentCaptor<Category> categoryCaptor;
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Spy
+    private CacheWarmUpGuard warmUpGuard;
 
     @InjectMocks
     private CategoryService categoryService;
@@ -76,17 +87,49 @@ class CategoryServiceTest {
         Category category = getCategoryById();
         Product product = new Product(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, category);
         category.setProducts(List.of(product));
-        Page<Category> page = new PageImpl<>(List.of(category));
+        Page<UUID> page = new PageImpl<>(List.of(category.getId()), pageable, 1);
 
         ProductDto productDto = new ProductDto(product.getId(), product.getName(), product.getLogo(), category.getName());
         CategoryProductsDto expected = new CategoryProductsDto(category.getId(), category.getName(), category.getLogo(), List.of(productDto));
 
-        when(categoryRepository.findAllWithProducts(pageable)).thenReturn(page);
-        when(pictureService.getPictureUrl(category.getLogo())).thenReturn(TEST_LOGO);
+        when(categoryRepository.findIdsOrderByName(pageable)).thenReturn(page);
+        when(categoryRepository.findAllWithProductsByIdIn(List.of(category.getId()))).thenReturn(List.of(category));
+        when(pictureService.getPictureUrls(List.of(category.getLogo(), product.getLogo())))
+                .thenReturn(Map.of(TEST_LOGO, TEST_LOGO));
 
         Page<CategoryProductsDto> actual = categoryService.getCategories(0, 5);
 
         assertEquals(expected, actual.getContent().get(0));
+        assertEquals(1, actual.getTotalElements());
+    }
+
+    @Test
+    void shouldNotFetchCategoriesWhenPageIsEmpty() {
+        Pageable pageable = PageRequest.of(3, 5);
+
+        when(categoryRepository.findIdsOrderByName(pageable)).thenReturn(new PageImpl<>(List.of(), pageable, 12));
+
+        Page<CategoryProductsDto> actual = categoryService.getCategories(3, 5);
+
+        assertTrue(actual.getContent().isEmpty());
+        assertEquals(12, actual.getTotalElements());
+        verify(categoryRepository, never()).findAllWithProductsByIdIn(any());
+    }
+
+    @Test
+    void shouldReturnCategoriesInKeyOrderWithNextCursorWhenMoreCategoriesFollow() {
+        Category first = new Category(UUID.randomUUID(), "Audio", TEST_LOGO, List.of());
+        Category second = new Category(UUID.randomUUID(), "Cameras", TEST_LOGO, List.of());
+
+        when(categoryRepository.findFirstIdsOrderByName(3))
+                .thenReturn(List.of(first.getId(), second.getId(), UUID.randomUUID()));
+        when(categoryRepository.findAllWithProductsByIdIn(List.of(first.getId(), second.getId())))
+                .thenReturn(List.of(second, first));
+
+        CursorPage<CategoryProductsDto> page = categoryService.getCategories(null, 2);
+
+        assertEquals(List.of("Audio", "Cameras"), page.getContent().stream().map(CategoryProductsDto::getName).toList());
+        assertEquals(new PageCursor("Cameras", second.getId()), PageCursor.decode(page.getNextCursor()));
     }
 
     @Test
@@ -97,7 +140,7 @@ class CategoryServiceTest {
         when(pictureService.uploadAndGetKey(any(MultipartFile.class))).thenReturn(TEST_LOGO_KEY);
         when(categoryRepository.save(any(Category.class))).thenReturn(savedCategory);
 
-        CategoryDto result = categoryService.addCategory(new CategoryDto(TEST_CATEGORY_NAME, TEST_LOGO), file);
+        CategoryDto result = categoryService.addCategory(new CategoryDto(TEST_CATEGORY_NAME, TEST_LOGO), file, null);
 
         assertEquals(TEST_CATEGORY_NAME, result.getName());
     }
@@ -108,25 +151,35 @@ class CategoryServiceTest {
 
         when(categoryRepository.findByName(TEST_CATEGORY_NAME)).thenReturn(new Category());
 
-        assertThrows(DuplicatedCategoryException.class, () -> categoryService.addCategory(categoryDto, file));
+        assertThrows(DuplicatedCategoryException.class, () -> categoryService.addCategory(categoryDto, file, null));
     }
 
     @Test
     void shouldVerifyCategoryByIdWithRelatedLogosDeleted() {
-        Category category = getCategoryById();
-        Product product = new Product(TEST_PRODUCT_NAME, TEST_LOGO, category);
-        category.setProducts(List.of(product));
+        Category category = new Category(TEST_CATEGORY_ID, TEST_CATEGORY_NAME, TEST_LOGO, new ArrayList<>());
+        Product product = new Product(TEST_PRODUCT_NAME, TEST_LOGO_KEY, category);
+        category.getProducts().add(product);
 
-        when(cache.get(TEST_CATEGORY_ID)).thenReturn(Optional.of(category));
+        when(categoryRepository.lockById(TEST_CATEGORY_ID)).thenReturn(Optional.of(TEST_CATEGORY_ID));
+        when(categoryRepository.findByIdWithProducts(TEST_CATEGORY_ID)).thenReturn(Optional.of(category));
 
         categoryService.deleteCategory(TEST_CATEGORY_ID);
 
-        verify(pictureService, times(1)).deleteFilesFromS3(List.of(product.getLogo()));
-        verify(pictureService, times(1)).deleteFileFromS3(category.getLogo());
-        verify(categoryRepository, times(1)).delete(categoryCaptor.capture());
-        verify(cache, times(1)).get(TEST_CATEGORY_ID);
+        verify(pictureService, times(1)).deleteFilesFromS3(List.of(TEST_LOGO_KEY, TEST_LOGO));
+        verify(categoryRepository, times(1)).deleteById(TEST_CATEGORY_ID);
+        verify(cache, times(1)).remove(TEST_CATEGORY_ID);
+        verify(cache, never()).get(TEST_CATEGORY_ID);
+        verify(searchIndex, times(1)).removeCategory(TEST_CATEGORY_ID);
+    }
+
+    @Test
+    void shouldNotReleaseLogosWhenDeletedCategoryIsMissing() {
+        when(categoryRepository.lockById(TEST_CATEGORY_ID)).thenReturn(Optional.empty());
 
-        assertEquals(category, categoryCaptor.getValue());
+        assertThrows(CategoryNotFoundException.class, () -> categoryService.deleteCategory(TEST_CATEGORY_ID));
+
+        verify(pictureService, never()).deleteFilesFromS3(any());
+        verify(categoryRepository, never()).deleteById(any());
     }
 
     @Test
@@ -135,22 +188,29 @@ class CategoryServiceTest {
         CategoryProductsDto expectedCategoryProductsDto = new CategoryProductsDto(
                 category.getId(), category.getName(), category.getLogo(), Collections.emptyList());
 
+        loadThroughCache();
         when(categoryRepository.findByIdWithProducts(TEST_CATEGORY_ID)).thenReturn(Optional.of(category));
-        when(pictureService.getPictureUrl(category.getLogo())).thenReturn(TEST_LOGO);
+        when(pictureService.getPictureUrls(List.of(category.getLogo()))).thenReturn(Map.of(TEST_LOGO, TEST_LOGO));
 
         CategoryProductsDto actualCategoryProductsDto = categoryService.getCategoryById(TEST_CATEGORY_ID);
 
         assertEquals(expectedCategoryProductsDto, actualCategoryProductsDto);
-        verify(cache).put(TEST_CATEGORY_ID, category);
+        verify(cache).get(eq(TEST_CATEGORY_ID), any());
     }
 
     @Test
     void shouldThrowWhenCategoryNotFoundById() {
+        loadThroughCache();
         when(categoryRepository.findByIdWithProducts(TEST_CATEGORY_ID)).thenReturn(Optional.empty());
 
         assertThrows(CategoryNotFoundException.class, () -> categoryService.getCategoryById(TEST_CATEGORY_ID));
     }
 
+    private void loadThroughCache() {
+        when(cache.get(eq(TEST_CATEGORY_ID), any())).thenAnswer(invocation ->
+                invocation.<Function<UUID, CategoryView>>getArgument(1).apply(TEST_CATEGORY_ID));
+    }
+
     private Category getCategoryById() {
         return new Category(TEST_CATEGORY_ID, TEST_CATEGORY_NAME, TEST_LOGO, Collections.emptyList());
     }
@@ -0,0 +1,173 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.cache.EvictionPolicy;
+import com.andersen.marketplace.cache.impl.ImageCache;
+import com.andersen.marketplace.cache.model.CachedImage;
+import com.andersen.marketplace.properties.CacheProperties;
+import com.andersen.marketplace.properties.ImageProxyProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageProxyServiceTest {
+
+    private static final byte[] PICTURE = "picture-content".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private PictureService pictureService;
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @TempDir
+    private Path directory;
+
+    private ImageCache<String, CachedImage> imageCache;
+    private ImageProxyService imageProxyService;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties.Spec spec = new CacheProperties.Spec(60_000L);
+        spec.setMaximumWeight(2L * PICTURE.length);
+        spec.setPolicy(EvictionPolicy.SEGMENTED_LRU);
+        imageCache = new ImageCache<>(spec);
+        ImageProxyProperties properties = new ImageProxyProperties();
+        properties.setDirectory(directory.toString());
+        properties.setMapAfterReads(2);
+        properties.setMissTimeout(60_000L);
+        imageProxyService = new ImageProxyService(pictureService, pictureManifest, imageCache, properties);
+        when(pictureManifest.isReferenced(anyString())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageProxyService.close();
+        imageCache.close();
+    }
+
+    @Test
+    void shouldFetchOnceAndServeFromDiskWhenImageIsReadAgain() throws IOException {
+        when(pictureService.openPicture("key")).thenReturn(content(PICTURE, "image/png"));
+
+        CachedImage first = imageProxyService.getImage("key").orElseThrow();
+        CachedImage second = imageProxyService.getImage("key").orElseThrow();
+
+        assertEquals(first, second);
+        assertEquals(PICTURE.length, first.getLength());
+        assertEquals("image/png", first.getContentType());
+        assertTrue(first.getETag().startsWith("\""));
+        assertArrayEquals(PICTURE, Files.readAllBytes(first.getPath()));
+        verify(pictureService, times(1)).openPicture("key");
+    }
+
+    @Test
+    void shouldRememberMissWhenImageIsMissing() {
+        when(pictureService.openPicture("missing")).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), imageProxyService.getImage("missing"));
+        assertEquals(Optional.empty(), imageProxyService.getImage("missing"));
+
+        verify(pictureService, times(1)).openPicture("missing");
+        assertEquals(0, imageCache.size());
+    }
+
+    @Test
+    void shouldNotServeImageWhenNotReferenced() {
+        when(pictureManifest.isReferenced("pending")).thenReturn(false);
+
+        assertEquals(Optional.empty(), imageProxyService.getImage("pending"));
+        assertEquals(Optional.empty(), imageProxyService.getImage("pending"));
+
+        verify(pictureManifest, times(1)).isReferenced("pending");
+        verifyNoInteractions(pictureService);
+    }
+
+    @Test
+    void shouldMapImageWhenReadOftenEnough() throws IOException {
+        when(pictureService.openPicture("key")).thenReturn(content(PICTURE, "image/png"));
+        CachedImage image = imageProxyService.getImage("key").orElseThrow();
+
+        assertArrayEquals(Arrays.copyOfRange(PICTURE, 2, 6), read(image, 2, 4));
+        assertNull(image.getMapping());
+        assertArrayEquals(PICTURE, read(image, 0, PICTURE.length));
+        assertNotNull(image.getMapping());
+        assertArrayEquals(Arrays.copyOfRange(PICTURE, 3, 9), read(image, 3, 6));
+    }
+
+    @Test
+    void shouldDeleteFileWhenImageIsEvicted() {
+        when(pictureService.openPicture("a")).thenReturn(content(PICTURE, "image/png"));
+        when(pictureService.openPicture("b")).thenReturn(content(PICTURE, "image/png"));
+        when(pictureService.openPicture("c")).thenReturn(content(PICTURE, "image/png"));
+
+        Path evicted = imageProxyService.getImage("a").orElseThrow().getPath();
+        imageProxyService.getImage("b");
+        imageProxyService.getImage("c");
+
+        assertFalse(Files.exists(evicted));
+        assertEquals(2L * PICTURE.length, imageCache.weightedSize());
+    }
+
+    @Test
+    void shouldFetchAgainWhenImageIsEvictedBeforeTransfer() throws IOException {
+        when(pictureService.openPicture("key")).thenAnswer(invocation -> content(PICTURE, "image/png"));
+        CachedImage image = imageProxyService.getImage("key").orElseThrow();
+
+        imageCache.remove("key");
+
+        assertFalse(Files.exists(image.getPath()));
+        assertArrayEquals(PICTURE, read(image, 0, PICTURE.length));
+        verify(pictureService, times(2)).openPicture("key");
+    }
+
+    @Test
+    void shouldFailTransferWhenEvictedImageChanged() {
+        byte[] changed = "changed-content".getBytes(StandardCharsets.UTF_8);
+        when(pictureService.openPicture("key"))
+                .thenReturn(content(PICTURE, "image/png"))
+                .thenReturn(content(changed, "image/png"));
+        CachedImage image = imageProxyService.getImage("key").orElseThrow();
+
+        imageCache.remove("key");
+
+        assertThrows(IOException.class, () -> read(image, 0, PICTURE.length));
+    }
+
+    private byte[] read(CachedImage image, long start, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageProxyService.transfer(image, start, count, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static Optional<PictureContent> content(byte[] bytes, String contentType) {
+        return Optional.of(new PictureContent(new ByteArrayInputStream(bytes), bytes.length, contentType));
+    }
+}
@@ -0,0 +1,165 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.exception.InvalidPictureUploadException;
+import com.andersen.marketplace.properties.LocalStorageProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalPictureServiceTest {
+
+    private static final byte[] CONTENT = "pictureContent".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @TempDir
+    private Path root;
+
+    private LocalPictureService pictureService;
+
+    @BeforeEach
+    void setUp() {
+        LocalStorageProperties properties = new LocalStorageProperties();
+        properties.setRoot(root.toString());
+        pictureService = new LocalPictureService(properties, pictureManifest);
+    }
+
+    @Test
+    void shouldStoreFileInShardDirectoryUnderContentKey() throws Exception {
+        String key = sha256(CONTENT);
+        when(pictureManifest.addReference(key)).thenReturn(1);
+
+        String result = pictureService.uploadAndGetKey(new MockMultipartFile("file", "picture.png", "image/png", CONTENT));
+
+        assertEquals(key, result);
+        Path stored = root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        assertArrayEquals(CONTENT, Files.readAllBytes(stored));
+        assertEquals(Optional.of(stored), pictureService.findPicture(key));
+        assertEquals("/api/pictures/" + key, pictureService.getPictureUrl(key));
+        assertEquals("/api/pictures/" + key, pictureService.getPictureUrl(key, PictureVariant.THUMBNAIL));
+        verify(pictureManifest).recordUpload(key, CONTENT.length, key);
+        try (Stream<Path> files = Files.list(root.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldSkipWriteWhenContentIsAlreadyStored() throws Exception {
+        String key = sha256(CONTENT);
+        when(pictureManifest.addReference(key)).thenReturn(1, 2);
+        pictureService.uploadAndGetKey(new MockMultipartFile("file", CONTENT));
+
+        assertEquals(key, pictureService.uploadAndGetKey(new MockMultipartFile("file", CONTENT)));
+
+        verify(pictureManifest).recordUpload(key, CONTENT.length, key);
+    }
+
+    @Test
+    void shouldDeleteFileWhenNoReferenceIsLeft() throws Exception {
+        String key = sha256(CONTENT);
+        when(pictureManifest.addReference(key)).thenReturn(1);
+        pictureService.uploadAndGetKey(new MockMultipartFile("file", CONTENT));
+        Path stored = pictureService.findPicture(key).orElseThrow();
+        when(pictureManifest.releaseReferences(key, 2)).thenReturn(0);
+
+        pictureService.deleteFilesFromS3(List.of(key, key));
+
+        assertFalse(Files.exists(stored));
+        assertNull(pictureService.getPictureUrl(key));
+        verify(pictureManifest).recordDeletion(key);
+    }
+
+    @Test
+    void shouldKeepFileWhenStillReferenced() throws Exception {
+        String key = sha256(CONTENT);
+        when(pictureManifest.addReference(key)).thenReturn(1);
+        pictureService.uploadAndGetKey(new MockMultipartFile("file", CONTENT));
+        when(pictureManifest.releaseReferences(key, 1)).thenReturn(1);
+
+        pictureService.deleteFileFromS3(key);
+
+        assertTrue(pictureService.findPicture(key).isPresent());
+        verify(pictureManifest, never()).recordDeletion(anyString());
+    }
+
+    @Test
+    void shouldStoreAndClaimDirectUploadOnce() throws Exception {
+        PictureUploadDto upload = pictureService.createUpload("image/png");
+        String key = upload.getKey();
+        when(pictureManifest.addReference(key)).thenReturn(1, 2);
+
+        pictureService.storeUpload(key, new ByteArrayInputStream(CONTENT));
+
+        assertEquals("/api/pictures/" + key, upload.getUrl());
+        assertEquals("PUT", upload.getMethod());
+        assertThrows(InvalidPictureUploadException.class,
+                () -> pictureService.storeUpload(key, new ByteArrayInputStream(CONTENT)));
+        assertEquals(key, pictureService.claimUpload(key));
+        assertEquals(key, pictureService.claimUpload(key));
+        verify(pictureManifest).recordUpload(key, CONTENT.length, null);
+    }
+
+    @Test
+    void shouldRejectDirectUploadWhenTooLargeOrNotUploaded() {
+        LocalStorageProperties properties = new LocalStorageProperties();
+        properties.setRoot(root.toString());
+        properties.setMaxUploadSize(CONTENT.length - 1);
+        LocalPictureService limitedService = new LocalPictureService(properties, pictureManifest);
+        String key = limitedService.createUpload("image/png").getKey();
+
+        assertThrows(InvalidPictureUploadException.class,
+                () -> limitedService.storeUpload(key, new ByteArrayInputStream(CONTENT)));
+        assertThrows(InvalidPictureUploadException.class, () -> limitedService.claimUpload(key));
+        assertThrows(InvalidPictureUploadException.class, () -> limitedService.claimUpload("logo.png"));
+        assertThrows(InvalidPictureUploadException.class, () -> limitedService.createUpload("text/html"));
+        verifyNoInteractions(pictureManifest);
+    }
+
+    @Test
+    void shouldShardLegacyKeysAndRejectPathTraversal() {
+        Path legacy = pictureService.resolve("logo.png");
+
+        assertEquals(root, legacy.getParent().getParent().getParent());
+        assertEquals("logo.png", legacy.getFileName().toString());
+        assertEquals(Optional.empty(), pictureService.findPicture("../secret"));
+        assertEquals(Optional.empty(), pictureService.findPicture(".."));
+        assertEquals(Map.of(), pictureService.getPictureUrls(List.of("missing")));
+        assertThrows(IllegalArgumentException.class, () -> pictureService.resolve("a/b"));
+        assertThrows(IllegalArgumentException.class, () -> pictureService.uploadAndGetKey(null));
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
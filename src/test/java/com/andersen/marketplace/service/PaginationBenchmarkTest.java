@@ -0,0 +1,91 @@
+package com.andersen.marketplace.service;
+
+import com.andersen.marketplace.config.IntegrationTestConfig;
+import com.andersen.marketplace.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares offset paging, which scans and discards every row before the page and counts the whole table,
+ * with keyset paging on the {@code (name, id)} index, at increasing page depths.
+ * Run with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaginationBenchmarkTest extends IntegrationTestConfig {
+
+    private static final int PRODUCTS = 500_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int[] DEPTHS = {0, 100, 1_000, 10_000, 24_000};
+    private static final int ROUNDS = 15;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        UUID categoryId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, 'Benchmark')", categoryId);
+        jdbcTemplate.update("""
+INSERT INTO products (id, name, category_id)
+SELECT gen_random_uuid(), 'product ' || lpad((i % 50000)::text, 5, '0'), ?
+FROM generate_series(1, ?) AS i
+""", categoryId, PRODUCTS);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_name_id ON products (name, id)");
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM categories");
+    }
+
+    @Test
+    void compareOffsetAndKeysetPaging() {
+        System.out.printf("%-8s %16s %16s%n", "page", "offset (ms)", "keyset (ms)");
+        for (int depth : DEPTHS) {
+            PageRequest pageRequest = PageRequest.of(depth, PAGE_SIZE, Sort.by("name", "id"));
+            double offset = median(() -> productRepository.findAll(pageRequest).getContent().size());
+
+            Map<String, Object> last = depth == 0 ? null : jdbcTemplate.queryForMap(
+                    "SELECT name, id FROM products ORDER BY name, id OFFSET ? LIMIT 1", depth * PAGE_SIZE - 1);
+            double keyset = median(() -> {
+                List<UUID> ids = last == null
+                        ? productRepository.findFirstIdsOrderByName(PAGE_SIZE + 1)
+                        : productRepository.findIdsOrderByNameAfter((String) last.get("name"), (UUID) last.get("id"),
+                        PAGE_SIZE + 1);
+                return productRepository.findAllWithCategoryByIdIn(ids.subList(0, Math.min(PAGE_SIZE, ids.size()))).size();
+            });
+            System.out.printf("%-8d %16.2f %16.2f%n", depth, offset, keyset);
+        }
+    }
+
+    private static double median(Query query) {
+        query.run();
+        double[] millis = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            if (query.run() != PAGE_SIZE) {
+                throw new IllegalStateException("Page is not full");
+            }
+            millis[round] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        int run();
+    }
+}
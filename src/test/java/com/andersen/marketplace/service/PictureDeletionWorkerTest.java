@@ -0,0 +1,109 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.andersen.marketplace.entity.PictureDeletion;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureDeletionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PictureDeletionWorkerTest {
+
+    @Mock
+    private AmazonS3 amazonS3;
+
+    @Mock
+    private S3BucketProperties s3BucketProperties;
+
+    @Mock
+    private PictureDeletionRepository pictureDeletionRepository;
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private PictureDeletionWorker worker;
+
+    @Test
+    void shouldDeleteBatchInOneRequestAndRetryFailedKeys() {
+        PictureDeletion deleted = new PictureDeletion("deleted");
+        PictureDeletion failed = new PictureDeletion("failed");
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey("failed");
+        error.setCode("SlowDown");
+        error.setMessage("Please reduce your request rate");
+
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(pictureDeletionRepository.findDueForUpdate(any(), anyInt())).thenReturn(List.of(deleted, failed));
+        when(amazonS3.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenThrow(new MultiObjectDeleteException(List.of(error), List.of()));
+
+        Instant before = Instant.now();
+        worker.drain();
+
+        ArgumentCaptor<DeleteObjectsRequest> request = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(amazonS3).deleteObjects(request.capture());
+        assertEquals(2, request.getValue().getKeys().size());
+        verify(pictureDeletionRepository).delete(deleted);
+        verify(pictureManifest).recordDeletion("deleted");
+        verify(pictureManifest, never()).recordDeletion("failed");
+        verify(pictureDeletionRepository).save(failed);
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getNextAttemptAt().isAfter(before));
+        assertTrue(failed.getLastError().startsWith("SlowDown"));
+    }
+
+    @Test
+    void shouldKeepPictureWhenReferencedAgain() {
+        PictureDeletion revived = new PictureDeletion("revived");
+
+        when(pictureDeletionRepository.findDueForUpdate(any(), anyInt())).thenReturn(List.of(revived));
+        when(pictureManifest.lockReferencedKeys(List.of("revived"))).thenReturn(Set.of("revived"));
+
+        worker.drain();
+
+        verify(amazonS3, never()).deleteObjects(any());
+        verify(pictureDeletionRepository).delete(revived);
+        verify(pictureManifest, never()).recordDeletion(any());
+    }
+
+    @Test
+    void shouldNotCallS3WhenNothingIsDue() {
+        when(pictureDeletionRepository.findDueForUpdate(any(), anyInt())).thenReturn(List.of());
+
+        worker.drain();
+
+        verify(amazonS3, never()).deleteObjects(any());
+    }
+
+    @Test
+    void shouldDoubleBackoffUpToLimit() {
+        assertEquals(Duration.ofSeconds(5), PictureDeletionWorker.backoff(1));
+        assertEquals(Duration.ofSeconds(20), PictureDeletionWorker.backoff(3));
+        assertEquals(Duration.ofHours(1), PictureDeletionWorker.backoff(PictureDeletionWorker.MAX_ATTEMPTS * 2));
+    }
+}
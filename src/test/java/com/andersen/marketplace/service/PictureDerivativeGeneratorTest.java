@@ -0,0 +1,178 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PictureDerivativeGeneratorTest {
+
+    private static final String KEY = "picture.png";
+
+    @Mock
+    private AmazonS3 amazonS3;
+
+    @Mock
+    private S3BucketProperties s3BucketProperties;
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @Mock
+    private GenericCache<String, String> urlCache;
+
+    @Mock
+    private ExecutorService derivativeExecutor;
+
+    private PictureDerivativeGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = generator(600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.close();
+    }
+
+    @Test
+    void shouldUploadResizedJpegVariantsWhenPictureIsImage() throws IOException {
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", KEY)).thenReturn(s3Object(png(3000, 1500)));
+
+        generator.generate(KEY);
+
+        ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+        ArgumentCaptor<ObjectMetadata> metadata = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(amazonS3).putObject(eq("test"), eq(PictureVariant.MEDIUM.keyOf(KEY)), content.capture(), metadata.capture());
+        verify(amazonS3).putObject(eq("test"), eq(PictureVariant.THUMBNAIL.keyOf(KEY)), content.capture(), metadata.capture());
+
+        List<BufferedImage> variants = content.getAllValues().stream().map(PictureDerivativeGeneratorTest::read).toList();
+        assertEquals(640, variants.get(0).getWidth());
+        assertEquals(320, variants.get(0).getHeight());
+        assertEquals(160, variants.get(1).getWidth());
+        assertEquals(80, variants.get(1).getHeight());
+        assertEquals("image/jpeg", metadata.getValue().getContentType());
+        verify(pictureManifest, times(2)).recordUpload(anyString(), anyLong(), anyString());
+        verify(urlCache).remove(PictureVariant.THUMBNAIL.keyOf(KEY));
+    }
+
+    @Test
+    void shouldNotRetryWhenPictureIsNotImage() {
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", KEY)).thenReturn(s3Object("not an image".getBytes()));
+
+        generator.generate(KEY);
+        generator.generateAsync(KEY);
+
+        verify(amazonS3, never()).putObject(anyString(), anyString(), any(InputStream.class), any());
+        verifyNoInteractions(derivativeExecutor, pictureManifest);
+    }
+
+    @Test
+    void shouldNotRetryWhenPictureIsMissingFromBucket() {
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", KEY)).thenThrow(notFound);
+
+        generator.generate(KEY);
+        generator.generateAsync(KEY);
+
+        verifyNoInteractions(derivativeExecutor, pictureManifest);
+    }
+
+    @Test
+    void shouldRetryWhenBucketFailsTransiently() {
+        AmazonS3Exception unavailable = new AmazonS3Exception("Service Unavailable");
+        unavailable.setStatusCode(503);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", KEY)).thenThrow(unavailable);
+
+        generator.generate(KEY);
+        generator.generateAsync(KEY);
+
+        verify(derivativeExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void shouldRetryFailedPictureWhenRetryDelayHasPassed() throws InterruptedException {
+        generator.close();
+        generator = generator(50L);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", KEY)).thenReturn(s3Object("not an image".getBytes()));
+
+        generator.generate(KEY);
+        generator.generateAsync(KEY);
+        Thread.sleep(100);
+        generator.generateAsync(KEY);
+
+        verify(derivativeExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void shouldKeepSmallPictureSizeWhenBelowVariantSize() {
+        BufferedImage image = PictureDerivativeGenerator.resize(new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB), 160);
+
+        assertEquals(100, image.getWidth());
+        assertEquals(50, image.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+    }
+
+    private PictureDerivativeGenerator generator(long retryDelay) {
+        when(s3BucketProperties.getDerivativeRetryDelay()).thenReturn(retryDelay);
+        return new PictureDerivativeGenerator(amazonS3, s3BucketProperties, pictureManifest, urlCache,
+                derivativeExecutor);
+    }
+
+    private static S3Object s3Object(byte[] content) {
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(content));
+        return object;
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage read(InputStream content) {
+        try {
+            return ImageIO.read(content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.andersen.marketplace.entity.Picture;
+import com.andersen.marketplace.entity.PictureStatus;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PictureManifestReconcilerTest {
+
+    @Mock
+    private AmazonS3 amazonS3;
+
+    @Mock
+    private S3BucketProperties s3BucketProperties;
+
+    @Mock
+    private PictureRepository pictureRepository;
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @InjectMocks
+    private PictureManifestReconciler reconciler;
+
+    @Test
+    void shouldUpdateDriftedStatusesWhenManifestDiffersFromBucket() {
+        Picture present = new Picture("present", PictureStatus.UNVERIFIED, null, null);
+        Picture lost = new Picture("lost", PictureStatus.UPLOADED, null, null);
+        Picture found = new Picture("found", PictureStatus.MISSING, null, null);
+        Picture unchanged = new Picture("unchanged", PictureStatus.UPLOADED, null, null);
+
+        ListObjectsV2Result listing = new ListObjectsV2Result();
+        for (String key : List.of("found", "present", "unchanged", "orphan")) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(key);
+            listing.getObjectSummaries().add(summary);
+        }
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(listing);
+        when(pictureRepository.findByKeyGreaterThanOrderByKeyAsc(eq(""), any(Pageable.class)))
+                .thenReturn(List.of(found, lost, present, unchanged));
+
+        reconciler.reconcile();
+
+        assertEquals(PictureStatus.UPLOADED, present.getStatus());
+        assertEquals(PictureStatus.MISSING, lost.getStatus());
+        assertEquals(PictureStatus.UPLOADED, found.getStatus());
+        verify(pictureRepository).save(present);
+        verify(pictureRepository).save(lost);
+        verify(pictureRepository).save(found);
+        verify(pictureRepository, never()).save(unchanged);
+        verify(pictureManifest).refresh();
+    }
+}
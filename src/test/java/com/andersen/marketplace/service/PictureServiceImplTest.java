@@ -1,24 +1,55 @@
 package com.andersen.marketplace.service;
 
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.dto.PictureUploadDto;
+import com.andersen.marketplace.entity.PictureDeletion;
+import com.andersen.marketplace.exception.InvalidPictureUploadException;
 import com.andersen.marketplace.properties.S3BucketProperties;
+import com.andersen.marketplace.repository.PictureDeletionRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static com.andersen.marketplace.utils.TestConstants.TEST_LOGO_KEY;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.times;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -32,23 +63,105 @@ class PictureServiceImplTest {
     @Mock
     private S3BucketProperties s3BucketProperties;
 
+    @Mock
+    private GenericCache<String, String> urlCache;
+
+    @Mock
+    private PictureManifest pictureManifest;
+
+    @Mock
+    private PictureDeletionRepository pictureDeletionRepository;
+
+    @Mock
+    private PictureUploader pictureUploader;
+
+    @Mock
+    private PictureDerivativeGenerator derivativeGenerator;
+
+    @Mock
+    private PictureUrlSigner urlSigner;
+
     @Mock
     private MultipartFile file;
 
+    @Captor
+    private ArgumentCaptor<List<PictureDeletion>> deletionsCaptor;
+
+    @Spy
+    private ExecutorService urlExecutor = Executors.newFixedThreadPool(4);
+
     @InjectMocks
     private PictureServiceImpl pictureService;
 
+    @AfterEach
+    void tearDown() {
+        urlExecutor.shutdownNow();
+    }
+
     @Test
-    void shouldReturnImageKeyWhenFileNotNullAndEmpty() throws IOException {
+    void shouldReturnContentKeyWhenFileNotNullAndEmpty() throws IOException {
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(TEST_LOGO_KEY.getBytes()));
+        when(file.getSize()).thenReturn((long) TEST_LOGO_KEY.length());
+        when(file.getContentType()).thenReturn("image/png");
+        when(pictureUploader.checksum(any())).thenReturn("sha256");
+        when(pictureManifest.addReference("sha256")).thenReturn(1);
+        when(pictureUploader.upload(eq("sha256"), any(), eq((long) TEST_LOGO_KEY.length()), eq("image/png")))
+                .thenReturn(new PictureUploader.UploadedPicture("etag", "sha256"));
+
+        String actualImageKey = pictureService.uploadAndGetKey(file);
+
+        assertEquals("sha256", actualImageKey);
+        verify(pictureManifest).recordUpload("sha256", TEST_LOGO_KEY.length(), "sha256");
+        verify(derivativeGenerator).generateAsync("sha256");
+    }
+
+    @Test
+    void shouldSkipUploadWhenContentAlreadyStored() throws IOException {
         when(file.isEmpty()).thenReturn(false);
-        when(file.getOriginalFilename()).thenReturn(TEST_LOGO_KEY);
         when(file.getInputStream()).thenReturn(new ByteArrayInputStream(TEST_LOGO_KEY.getBytes()));
+        when(file.getOriginalFilename()).thenReturn(TEST_LOGO_KEY);
+        when(pictureUploader.checksum(any())).thenReturn("sha256");
+        when(pictureManifest.addReference("sha256")).thenReturn(2);
+        when(pictureManifest.isRecorded("sha256")).thenReturn(true);
+
+        assertEquals("sha256", pictureService.uploadAndGetKey(file));
+
+        verify(pictureUploader, never()).upload(anyString(), any(), anyLong(), any());
+        verify(pictureManifest, never()).recordUpload(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void shouldUploadWhenContentIsReferencedButNotRecordedAsUploaded() throws IOException {
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(TEST_LOGO_KEY.getBytes()));
+        when(file.getSize()).thenReturn((long) TEST_LOGO_KEY.length());
+        when(file.getContentType()).thenReturn("image/png");
+        when(pictureUploader.checksum(any())).thenReturn("sha256");
+        when(pictureManifest.addReference("sha256")).thenReturn(2);
+        when(pictureManifest.isRecorded("sha256")).thenReturn(false);
+        when(pictureUploader.upload(eq("sha256"), any(), eq((long) TEST_LOGO_KEY.length()), eq("image/png")))
+                .thenReturn(new PictureUploader.UploadedPicture("etag", "sha256"));
+
+        assertEquals("sha256", pictureService.uploadAndGetKey(file));
+
+        verify(pictureManifest).recordUpload("sha256", TEST_LOGO_KEY.length(), "sha256");
+    }
+
+    @Test
+    void shouldReleaseReferenceWhenUploadFails() throws IOException {
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(TEST_LOGO_KEY.getBytes()));
+        when(file.getSize()).thenReturn((long) TEST_LOGO_KEY.length());
+        when(pictureUploader.checksum(any())).thenReturn("sha256");
+        when(pictureManifest.addReference("sha256")).thenReturn(1);
+        when(pictureUploader.upload(eq("sha256"), any(), anyLong(), any())).thenThrow(new IOException("down"));
         when(s3BucketProperties.getBucketName()).thenReturn("test");
 
-        String actualImageKey = pictureService.uploadAndGetKey(file);
+        assertThrows(RuntimeException.class, () -> pictureService.uploadAndGetKey(file));
 
-        verify(amazonS3).putObject(anyString(), anyString(), any(), any());
-        assertEquals(TEST_LOGO_KEY, actualImageKey.split("_")[1]);
+        verify(pictureManifest).releaseReferences("sha256", 1);
+        verify(pictureDeletionRepository).saveAll(any());
     }
 
     @Test
@@ -57,29 +170,257 @@ class PictureServiceImplTest {
     }
 
     @Test
-    void shouldVerifyFileDeleteWhenKeyNotNull() {
+    void shouldPresignPutBoundToContentTypeWhenUploadCreated() throws Exception {
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(s3BucketProperties.getUploadUrlExpiration()).thenReturn(60000L);
+        when(amazonS3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .thenReturn(new URL("https://test.s3.amazonaws.com/upload"));
+
+        PictureUploadDto upload = pictureService.createUpload("image/png");
+
+        ArgumentCaptor<GeneratePresignedUrlRequest> request = ArgumentCaptor.forClass(GeneratePresignedUrlRequest.class);
+        verify(amazonS3).generatePresignedUrl(request.capture());
+        assertEquals(HttpMethod.PUT, request.getValue().getMethod());
+        assertEquals("image/png", request.getValue().getContentType());
+        assertEquals(upload.getKey(), request.getValue().getKey());
+        assertEquals("https://test.s3.amazonaws.com/upload", upload.getUrl());
+        assertEquals(Map.of("Content-Type", "image/png"), upload.getHeaders());
+    }
+
+    @Test
+    void shouldRejectUploadWhenContentTypeIsNotImage() {
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.createUpload("text/html"));
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void shouldCopyUploadToClaimedKeyAndDeleteUploadWhenClaimed() {
+        String key = UUID.randomUUID().toString();
+        String claimedKey = PictureServiceImpl.CLAIMED_KEY_PREFIX + key;
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("image/png");
+        metadata.setContentLength(100);
+        metadata.setHeader("ETag", "etag");
+        CopyObjectResult copy = new CopyObjectResult();
+        copy.setETag("etag");
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(s3BucketProperties.getMaxUploadSize()).thenReturn(1000L);
+        when(amazonS3.getObjectMetadata("test", key)).thenReturn(metadata);
+        when(amazonS3.copyObject(any(CopyObjectRequest.class))).thenReturn(copy);
+        when(pictureManifest.addReference(claimedKey)).thenReturn(1);
+
+        assertEquals(claimedKey, pictureService.claimUpload(key));
+
+        ArgumentCaptor<CopyObjectRequest> request = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(amazonS3).copyObject(request.capture());
+        assertEquals(key, request.getValue().getSourceKey());
+        assertEquals(claimedKey, request.getValue().getDestinationKey());
+        assertEquals(List.of("etag"), request.getValue().getMatchingETagConstraints());
+        verify(amazonS3).deleteObject("test", key);
+        verify(pictureManifest).recordUpload(claimedKey, 100, "etag");
+        verify(derivativeGenerator).generateAsync(claimedKey);
+    }
+
+    @Test
+    void shouldRejectClaimWhenUploadReplacedBeforeCopy() {
+        String key = UUID.randomUUID().toString();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("image/png");
+        metadata.setContentLength(100);
+        metadata.setHeader("ETag", "etag");
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(s3BucketProperties.getMaxUploadSize()).thenReturn(1000L);
+        when(amazonS3.getObjectMetadata("test", key)).thenReturn(metadata);
+        when(amazonS3.copyObject(any(CopyObjectRequest.class))).thenReturn(null);
+
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.claimUpload(key));
+
+        verify(amazonS3, never()).deleteObject(anyString(), anyString());
+        verifyNoInteractions(pictureManifest);
+    }
+
+    @Test
+    void shouldRejectClaimedKeyWithoutTouchingBucket() {
+        String claimedKey = PictureServiceImpl.CLAIMED_KEY_PREFIX + UUID.randomUUID();
+
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.claimUpload(claimedKey));
+
+        verifyNoInteractions(amazonS3, pictureManifest);
+    }
+
+    @Test
+    void shouldDeleteAndRejectUploadWhenPictureTooLarge() {
+        String key = UUID.randomUUID().toString();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("image/png");
+        metadata.setContentLength(2000);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(s3BucketProperties.getMaxUploadSize()).thenReturn(1000L);
+        when(amazonS3.getObjectMetadata("test", key)).thenReturn(metadata);
+
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.claimUpload(key));
+
+        verify(amazonS3).deleteObject("test", key);
+        verifyNoInteractions(pictureManifest);
+    }
+
+    @Test
+    void shouldRejectUploadWhenKeyIsNotUploadKeyOrPictureMissing() {
+        String key = UUID.randomUUID().toString();
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObjectMetadata("test", key)).thenThrow(notFound);
+
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.claimUpload(key));
+        assertThrows(InvalidPictureUploadException.class, () -> pictureService.claimUpload("sha256"));
+        verifyNoInteractions(pictureManifest);
+    }
+
+    @Test
+    void shouldOpenObjectContentWhenPictureExistsAndEmptyWhenMissing() throws IOException {
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        object.getObjectMetadata().setContentLength(3);
+        object.getObjectMetadata().setContentType("image/png");
+        AmazonS3Exception notFound = new AmazonS3Exception("Not Found");
+        notFound.setStatusCode(404);
+        when(s3BucketProperties.getBucketName()).thenReturn("test");
+        when(amazonS3.getObject("test", TEST_LOGO_KEY)).thenReturn(object);
+        when(amazonS3.getObject("test", "missing")).thenThrow(notFound);
+
+        try (PictureContent content = pictureService.openPicture(TEST_LOGO_KEY).orElseThrow()) {
+            assertEquals(3, content.length());
+            assertEquals("image/png", content.contentType());
+            assertArrayEquals(new byte[]{1, 2, 3}, content.content().readAllBytes());
+        }
+        assertEquals(Optional.empty(), pictureService.openPicture("missing"));
+    }
+
+    @Test
+    void shouldScheduleDeletionWhenKeyNotNull() {
         when(s3BucketProperties.getBucketName()).thenReturn("test");
 
         pictureService.deleteFileFromS3(TEST_LOGO_KEY);
 
-        verify(amazonS3).deleteObject("test", TEST_LOGO_KEY);
+        verify(pictureDeletionRepository).saveAll(deletionsCaptor.capture());
+        assertEquals(withVariants(TEST_LOGO_KEY),
+                deletionsCaptor.getValue().stream().map(PictureDeletion::getPictureKey).toList());
+        verify(urlCache).remove(TEST_LOGO_KEY);
+        verify(urlCache).remove(PictureVariant.THUMBNAIL.keyOf(TEST_LOGO_KEY));
+        verify(pictureManifest).releaseReferences(TEST_LOGO_KEY, 1);
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void shouldKeepFileWhenStillReferenced() {
+        when(pictureManifest.releaseReferences(TEST_LOGO_KEY, 1)).thenReturn(1);
+
+        pictureService.deleteFileFromS3(TEST_LOGO_KEY);
+
+        verifyNoInteractions(amazonS3, pictureDeletionRepository, urlCache);
     }
 
     @Test
     void shouldVerifyNotInteractionsFileDeleteWhenKeyNotNull() {
         pictureService.deleteFileFromS3(null);
-        verifyNoInteractions(amazonS3);
+        verifyNoInteractions(amazonS3, pictureDeletionRepository);
     }
 
     @Test
-    void shouldVerifyDeleteFilesWhenKeysNotNull() {
-        List<String> testLogoKey = List.of(TEST_LOGO_KEY, TEST_LOGO_KEY);
+    void shouldReleaseEveryReferenceWhenDeletingFiles() {
+        List<String> testLogoKey = Arrays.asList(TEST_LOGO_KEY, null, TEST_LOGO_KEY, "other");
 
         when(s3BucketProperties.getBucketName()).thenReturn("test");
 
         pictureService.deleteFilesFromS3(testLogoKey);
 
-        verify(amazonS3, times(2)).deleteObject("test", TEST_LOGO_KEY);
+        verify(pictureDeletionRepository).saveAll(deletionsCaptor.capture());
+        List<String> expectedKeys = new ArrayList<>(withVariants(TEST_LOGO_KEY));
+        expectedKeys.addAll(withVariants("other"));
+        assertEquals(expectedKeys, deletionsCaptor.getValue().stream().map(PictureDeletion::getPictureKey).toList());
+        verify(pictureManifest).releaseReferences(TEST_LOGO_KEY, 2);
+        verify(pictureManifest).releaseReferences("other", 1);
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void shouldReturnPresignedUrlThroughCacheWhenPictureExists() throws Exception {
+        String expectedUrl = "https://test.s3.amazonaws.com/" + TEST_LOGO_KEY;
+
+        loadThroughCache();
+        when(pictureManifest.isUploaded(TEST_LOGO_KEY)).thenReturn(true);
+        when(urlSigner.presignGet(TEST_LOGO_KEY)).thenReturn(expectedUrl);
+
+        assertEquals(expectedUrl, pictureService.getPictureUrl(TEST_LOGO_KEY));
+        verify(urlCache).get(eq(TEST_LOGO_KEY), any());
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void shouldReturnNullWithoutCallingS3WhenPictureMissing() {
+        loadThroughCache();
+        when(pictureManifest.isUploaded(TEST_LOGO_KEY)).thenReturn(false);
+
+        assertNull(pictureService.getPictureUrl(TEST_LOGO_KEY));
+        verifyNoInteractions(amazonS3);
+    }
+
+    @Test
+    void shouldFallBackToOriginalAndScheduleVariantWhenVariantNotRecorded() throws Exception {
+        String originalUrl = "https://test.s3.amazonaws.com/" + TEST_LOGO_KEY;
+        String thumbnailKey = PictureVariant.THUMBNAIL.keyOf(TEST_LOGO_KEY);
+
+        when(urlCache.get(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, String>>getArgument(1).apply(invocation.getArgument(0)));
+        when(pictureManifest.isRecorded(thumbnailKey)).thenReturn(false);
+        when(pictureManifest.isUploaded(TEST_LOGO_KEY)).thenReturn(true);
+        when(urlSigner.presignGet(TEST_LOGO_KEY)).thenReturn(originalUrl);
+
+        assertEquals(originalUrl, pictureService.getPictureUrl(TEST_LOGO_KEY, PictureVariant.THUMBNAIL));
+        verify(urlCache).get(eq(thumbnailKey), any());
+        verify(derivativeGenerator).generateAsync(TEST_LOGO_KEY);
+    }
+
+    @Test
+    void shouldSignVariantWhenVariantRecorded() throws Exception {
+        String thumbnailKey = PictureVariant.THUMBNAIL.keyOf(TEST_LOGO_KEY);
+        String thumbnailUrl = "https://test.s3.amazonaws.com/" + thumbnailKey;
+
+        when(urlCache.get(eq(thumbnailKey), any())).thenAnswer(invocation ->
+                invocation.<Function<String, String>>getArgument(1).apply(thumbnailKey));
+        when(pictureManifest.isRecorded(thumbnailKey)).thenReturn(true);
+        when(urlSigner.presignGet(thumbnailKey)).thenReturn(thumbnailUrl);
+
+        assertEquals(thumbnailUrl, pictureService.getPictureUrl(TEST_LOGO_KEY, PictureVariant.THUMBNAIL));
+        verifyNoInteractions(derivativeGenerator);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldReturnResolvedUrlsOnlyWhenBatchDeadlineElapses() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(s3BucketProperties.getUrlBatchTimeout()).thenReturn(200L);
+        when(urlCache.get(anyString(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            if (key.equals("slow")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return key.equals("missing") ? null : "https://test/" + key;
+        });
+
+        Map<String, String> urls = pictureService.getPictureUrls(Arrays.asList("fast", "slow", null, "missing", "fast"));
+        release.countDown();
+
+        assertEquals(Map.of("fast", "https://test/fast"), urls);
+    }
+
+    private static List<String> withVariants(String key) {
+        return List.of(key, PictureVariant.THUMBNAIL.keyOf(key), PictureVariant.MEDIUM.keyOf(key));
+    }
+
+    private void loadThroughCache() {
+        when(urlCache.get(eq(TEST_LOGO_KEY), any())).thenAnswer(invocation ->
+                invocation.<Function<String, String>>getArgument(1).apply(TEST_LOGO_KEY));
+    }
+}
@@ -0,0 +1,198 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the memory use and throughput of the former upload path, which sends streams without a content length,
+ * with the streaming uploader. S3 is replaced by a local server that checksums and discards the uploaded bytes.
+ * Run with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PictureUploadBenchmarkTest {
+
+    private static final String BUCKET = "benchmark";
+    private static final int CONCURRENT_UPLOADS = 8;
+    private static final int ROUNDS = 3;
+    private static final long[] SIZES = {512 * 1024, 8 * 1024 * 1024, 48 * 1024 * 1024};
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService uploadExecutor;
+    private ExecutorService clients;
+    private AmazonS3 amazonS3;
+    private PictureUploader pictureUploader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", PictureUploadBenchmarkTest::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        amazonS3 = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+                        "http://127.0.0.1:" + server.getAddress().getPort(), "us-east-1"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new AnonymousAWSCredentials()))
+                .build();
+
+        S3BucketProperties s3BucketProperties = new S3BucketProperties();
+        s3BucketProperties.setBucketName(BUCKET);
+        uploadExecutor = Executors.newFixedThreadPool(s3BucketProperties.getUploadThreads() * CONCURRENT_UPLOADS);
+        clients = Executors.newFixedThreadPool(CONCURRENT_UPLOADS);
+        pictureUploader = new PictureUploader(amazonS3, s3BucketProperties, uploadExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        uploadExecutor.shutdownNow();
+        amazonS3.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void compareLegacyAndStreamingUploads() throws Exception {
+        System.out.printf("%-10s %12s %14s %16s%n", "path", "size (KiB)", "MiB/s", "peak heap (MiB)");
+        for (long size : SIZES) {
+            run("legacy", size, key -> amazonS3.putObject(BUCKET, key, new GeneratedInputStream(size), new ObjectMetadata()));
+            run("streaming", size, key -> pictureUploader.upload(key, new GeneratedInputStream(size), size, "image/png"));
+        }
+    }
+
+    private void run(String path, long size, Upload upload) throws Exception {
+        upload.upload("warm-up");
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_UPLOADS; i++) {
+                String key = path + "-" + round + "-" + i;
+                uploads.add(clients.submit(() -> {
+                    upload.upload(key);
+                    return null;
+                }));
+            }
+            for (Future<?> future : uploads) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+
+        double mebibytes = size * CONCURRENT_UPLOADS * ROUNDS / (1024.0 * 1024.0);
+        System.out.printf("%-10s %12d %14.1f %16.1f%n", path, size / 1024, mebibytes / seconds, peakHeap / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Minimal S3 endpoint accepting single and multipart uploads. It answers with the MD5 of each body
+     * as ETag, which the client verifies.
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery() == null ? "" : exchange.getRequestURI().getRawQuery();
+        String eTag = "\"" + md5(exchange.getRequestBody()) + "\"";
+        String response = "";
+        if (exchange.getRequestMethod().equals("POST") && query.startsWith("uploads")) {
+            response = "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>key</Key>"
+                    + "<UploadId>upload</UploadId></InitiateMultipartUploadResult>";
+        } else if (exchange.getRequestMethod().equals("POST")) {
+            response = "<CompleteMultipartUploadResult><Location>location</Location><Bucket>" + BUCKET
+                    + "</Bucket><Key>key</Key><ETag>&quot;etag-1&quot;</ETag></CompleteMultipartUploadResult>";
+        } else {
+            exchange.getResponseHeaders().add("ETag", eTag);
+        }
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    private static String md5(InputStream body) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Upload {
+        void upload(String key) throws Exception;
+    }
+
+    /**
+     * Stream of generated bytes, so the benchmark itself holds no picture content in memory.
+     */
+    private static final class GeneratedInputStream extends InputStream {
+
+        private long remaining;
+
+        private GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            return remaining-- > 0 ? (int) (remaining & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) (remaining - i);
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.andersen.marketplace.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.andersen.marketplace.properties.S3BucketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PictureUploaderTest {
+
+    private static final int PART_SIZE = PictureUploader.MIN_PART_SIZE;
+
+    @Mock
+    private AmazonS3 amazonS3;
+
+    private final S3BucketProperties s3BucketProperties = new S3BucketProperties();
+    private final ExecutorService uploadExecutor = Executors.newFixedThreadPool(2);
+    private PictureUploader pictureUploader;
+
+    @BeforeEach
+    void setUp() {
+        s3BucketProperties.setBucketName("test");
+        s3BucketProperties.setMultipartThreshold(PART_SIZE);
+        s3BucketProperties.setMultipartPartSize(PART_SIZE);
+        s3BucketProperties.setUploadThreads(2);
+        pictureUploader = new PictureUploader(amazonS3, s3BucketProperties, uploadExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldPutSmallPictureWithContentLengthAndType() throws Exception {
+        byte[] content = randomBytes(1024);
+        PutObjectResult result = new PutObjectResult();
+        result.setETag("etag");
+        when(amazonS3.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            assertArrayEquals(content, request.getInputStream().readAllBytes());
+            return result;
+        });
+
+        PictureUploader.UploadedPicture upload =
+                pictureUploader.upload("key", new ByteArrayInputStream(content), content.length, "image/png");
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(amazonS3).putObject(request.capture());
+        assertEquals(content.length, request.getValue().getMetadata().getContentLength());
+        assertEquals("image/png", request.getValue().getMetadata().getContentType());
+        assertEquals("etag", upload.eTag());
+        assertEquals(sha256(content), upload.sha256());
+    }
+
+    @Test
+    void shouldHashEveryByteOnceWhenClientRetriesPut() throws Exception {
+        byte[] content = randomBytes(1024);
+        PutObjectResult result = new PutObjectResult();
+        result.setETag("etag");
+        when(amazonS3.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            InputStream in = invocation.<PutObjectRequest>getArgument(0).getInputStream();
+            assertFalse(in.markSupported());
+            InputStream retryable = new BufferedInputStream(in, content.length + 1);
+            retryable.mark(content.length + 1);
+            retryable.readNBytes(100);
+            retryable.reset();
+            assertArrayEquals(content, retryable.readAllBytes());
+            return result;
+        });
+
+        PictureUploader.UploadedPicture upload =
+                pictureUploader.upload("key", new ByteArrayInputStream(content), content.length, "image/png");
+
+        assertEquals(sha256(content), upload.sha256());
+    }
+
+    @Test
+    void shouldUploadLargePictureInPartsWhenAboveThreshold() throws Exception {
+        byte[] content = randomBytes(PART_SIZE * 2 + 100);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload");
+        CompleteMultipartUploadResult completed = new CompleteMultipartUploadResult();
+        completed.setETag("etag-3");
+        when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("part-" + request.getPartNumber() + "-" + request.getPartSize());
+            return result;
+        });
+        when(amazonS3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(completed);
+
+        PictureUploader.UploadedPicture upload =
+                pictureUploader.upload("key", new ByteArrayInputStream(content), content.length, "image/png");
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> request = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(amazonS3).completeMultipartUpload(request.capture());
+        assertEquals(List.of("part-1-" + PART_SIZE, "part-2-" + PART_SIZE, "part-3-100"),
+                request.getValue().getPartETags().stream().map(part -> part.getETag()).toList());
+        assertEquals("etag-3", upload.eTag());
+        assertEquals(sha256(content), upload.sha256());
+        verify(amazonS3, never()).abortMultipartUpload(any());
+    }
+
+    @Test
+    void shouldAbortMultipartUploadWhenPartFails() {
+        byte[] content = randomBytes(PART_SIZE + 1);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload");
+        when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenThrow(new IllegalStateException("part failed"));
+
+        assertThrows(IllegalStateException.class, () ->
+                pictureUploader.upload("key", new ByteArrayInputStream(content), content.length, "image/png"));
+
+        verify(amazonS3, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(amazonS3, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldComputeSameChecksumAsUploadWithoutCallingS3() throws Exception {
+        byte[] content = randomBytes(4096);
+
+        assertEquals(sha256(content), pictureUploader.checksum(new ByteArrayInputStream(content)));
+        verifyNoInteractions(amazonS3);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -1,11 +1,17 @@
 package com.andersen.marketplace.service;
 
+import com.andersen.marketplace.cache.CacheWarmUpGuard;
 import com.andersen.marketplace.cache.GenericCache;
+import com.andersen.marketplace.cache.ProductSearchIndex;
+import com.andersen.marketplace.cache.model.ProductView;
+import com.andersen.marketplace.dto.CursorPage;
 import com.andersen.marketplace.dto.ProductDto;
 import com.andersen.marketplace.dto.ProductSearchRequest;
+import com.andersen.marketplace.dto.SearchMode;
 import com.andersen.marketplace.entity.Category;
 import com.andersen.marketplace.entity.Product;
 import com.andersen.marketplace.exception.CategoryNotFoundException;
+import com.andersen.marketplace.exception.InvalidCursorException;
 import com.andersen.marketplace.exception.ProductNotFoundException;
 import com.andersen.marketplace.mapper.ProductMapperImpl;
 import com.andersen.marketplace.repository.CategoryRepository;
@@ -19,12 +25,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_ID;
 import static com.andersen.marketplace.utils.TestConstants.TEST_CATEGORY_NAME;
@@ -32,7 +42,11 @@ import static com.andersen.marketplace.utils.TestConstants.TEST_LOGO;
 import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_ID;
 import static com.andersen.marketplace.utils.TestConstants.TEST_PRODUCT_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,7 +63,13 @@ class ProductServiceTest {
     private PictureService pictureService;
 
     @Mock
-    private GenericCache<UUID, Product> cache;
+    private GenericCache<UUID, ProductView> cache;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Spy
+    private CacheWarmUpGuard warmUpGuard;
 
     @Mock
     private MultipartFile file;
@@ -65,16 +85,52 @@ class ProductServiceTest {
         Pageable pageable = PageRequest.of(0, 5);
         Product product = getProductById();
         ProductDto productDto = new ProductDto(product.getName(), product.getLogo(), product.getCategory().getName());
+        productDto.setThumbnail("thumbnail-url");
         List<ProductDto> expectedProducts = List.of(productDto);
 
         when(productRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(product)));
-        when(pictureService.getPictureUrl(product.getLogo())).thenReturn(TEST_LOGO);
+        when(pictureService.getPictureUrls(List.of(product.getLogo()))).thenReturn(Map.of(product.getLogo(), TEST_LOGO));
+        when(pictureService.getPictureUrls(List.of(product.getLogo()), PictureVariant.THUMBNAIL))
+                .thenReturn(Map.of(product.getLogo(), "thumbnail-url"));
 
         List<ProductDto> actualProducts = productService.getProducts(0, 5).getContent();
 
         assertEquals(expectedProducts, actualProducts);
     }
 
+    @Test
+    void shouldReturnProductsInKeyOrderWithNextCursorWhenMoreProductsFollow() {
+        Category category = new Category(TEST_CATEGORY_ID, TEST_CATEGORY_NAME, TEST_LOGO, List.of());
+        Product first = new Product(UUID.randomUUID(), "Alpha", TEST_LOGO, category);
+        Product second = new Product(UUID.randomUUID(), "Beta", TEST_LOGO, category);
+        PageCursor after = new PageCursor("Aardvark", UUID.randomUUID());
+
+        when(productRepository.findIdsOrderByNameAfter(after.name(), after.id(), 3))
+                .thenReturn(List.of(first.getId(), second.getId(), UUID.randomUUID()));
+        when(productRepository.findAllWithCategoryByIdIn(List.of(first.getId(), second.getId())))
+                .thenReturn(List.of(second, first));
+
+        CursorPage<ProductDto> page = productService.getProducts(after.encode(), 2);
+
+        assertEquals(List.of("Alpha", "Beta"), page.getContent().stream().map(ProductDto::getName).toList());
+        assertEquals(new PageCursor("Beta", second.getId()), PageCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void shouldReturnNoNextCursorWhenLastPageReached() {
+        Category category = new Category(TEST_CATEGORY_ID, TEST_CATEGORY_NAME, TEST_LOGO, List.of());
+        Product product = new Product(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, category);
+
+        when(productRepository.findFirstIdsOrderByName(6)).thenReturn(List.of(TEST_PRODUCT_ID));
+        when(productRepository.findAllWithCategoryByIdIn(List.of(TEST_PRODUCT_ID))).thenReturn(List.of(product));
+
+        CursorPage<ProductDto> page = productService.getProducts(null, 5);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextCursor());
+        assertThrows(InvalidCursorException.class, () -> productService.getProducts("not a cursor", 5));
+    }
+
     @Test
     void shouldReturnUniqueProductNamesWhenProductsExist() {
         Set<String> expectedUniqueProductNames = Set.of(TEST_PRODUCT_NAME);
@@ -94,13 +150,46 @@ class ProductServiceTest {
 
         when(productRepository.findAllWithFilter(TEST_CATEGORY_NAME, TEST_PRODUCT_NAME, pageable))
                 .thenReturn(new PageImpl<>(List.of(product)));
-        when(pictureService.getPictureUrl(product.getLogo())).thenReturn(TEST_LOGO);
+        when(pictureService.getPictureUrls(List.of(product.getLogo()))).thenReturn(Map.of(product.getLogo(), TEST_LOGO));
 
         List<ProductDto> actualProducts = productService.getFilteredProducts(search, 0, 5).getContent();
 
         assertEquals(expectedProducts, actualProducts);
     }
 
+    @Test
+    void shouldAnswerSearchFromIndexWhenIndexIsReady() {
+        ProductSearchRequest search = new ProductSearchRequest(TEST_CATEGORY_NAME, TEST_PRODUCT_NAME);
+        Pageable pageable = PageRequest.of(0, 5);
+        ProductView product =
+                new ProductView(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, TEST_CATEGORY_ID, TEST_CATEGORY_NAME);
+
+        when(searchIndex.search(TEST_CATEGORY_NAME, TEST_PRODUCT_NAME, pageable))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(product), pageable, 1)));
+
+        List<ProductDto> actualProducts = productService.getFilteredProducts(search, 0, 5).getContent();
+
+        assertEquals(1, actualProducts.size());
+        assertEquals(TEST_PRODUCT_NAME, actualProducts.get(0).getName());
+        assertEquals(TEST_CATEGORY_NAME, actualProducts.get(0).getCategory());
+        verify(productRepository, never()).findAllWithFilter(any(), any(), any());
+    }
+
+    @Test
+    void shouldSearchProductAndCategoryTermsTogetherWhenFullTextModeApplied() {
+        ProductSearchRequest search = new ProductSearchRequest(TEST_CATEGORY_NAME, TEST_PRODUCT_NAME, SearchMode.FULL_TEXT);
+        Pageable pageable = PageRequest.of(0, 5);
+        Product product = getProductById();
+
+        when(productRepository.findAllByFullText(TEST_PRODUCT_NAME + " " + TEST_CATEGORY_NAME, pageable))
+                .thenReturn(new PageImpl<>(List.of(product)));
+
+        List<ProductDto> actualProducts = productService.getFilteredProducts(search, 0, 5).getContent();
+
+        assertEquals(List.of(product.getName()), actualProducts.stream().map(ProductDto::getName).toList());
+        verify(productRepository, never()).findAllWithFilter(any(), any(), any());
+    }
+
     @Test
     void shouldEditProductWhenProductExists() {
         Product product = getProductById();
@@ -109,7 +198,7 @@ class ProductServiceTest {
         when(productRepository.findById(TEST_PRODUCT_ID)).thenReturn(Optional.of(product));
         when(productRepository.save(product)).thenReturn(product);
 
-        ProductDto actualProduct = productService.editProduct(TEST_PRODUCT_ID, updatedProduct, null);
+        ProductDto actualProduct = productService.editProduct(TEST_PRODUCT_ID, updatedProduct, null, null);
         updatedProduct.setLogo(product.getLogo());
 
         assertEquals(updatedProduct, actualProduct);
@@ -124,12 +213,29 @@ class ProductServiceTest {
         when(productRepository.save(product)).thenReturn(product);
         when(file.isEmpty()).thenReturn(false);
 
-        productService.editProduct(TEST_PRODUCT_ID, updatedProduct, file);
+        productService.editProduct(TEST_PRODUCT_ID, updatedProduct, file, null);
 
         verify(pictureService).uploadAndGetKey(file);
         verify(pictureService).deleteFileFromS3(TEST_LOGO);
     }
 
+    @Test
+    void shouldClaimDirectUploadWhenLogoKeyGiven() {
+        Product product = getProductById();
+        ProductDto updatedProduct = new ProductDto("updatedProductName", null, product.getCategory().getName());
+        String logoKey = UUID.randomUUID().toString();
+
+        when(productRepository.findById(TEST_PRODUCT_ID)).thenReturn(Optional.of(product));
+        when(productRepository.save(product)).thenReturn(product);
+        when(pictureService.claimUpload(logoKey)).thenReturn(logoKey);
+
+        productService.editProduct(TEST_PRODUCT_ID, updatedProduct, null, logoKey);
+
+        assertEquals(logoKey, product.getLogo());
+        verify(pictureService, never()).uploadAndGetKey(any());
+        verify(pictureService).deleteFileFromS3(TEST_LOGO);
+    }
+
     @Test
     void shouldVerifySavedProductCached() {
         Product product = getProductById();
@@ -142,9 +248,10 @@ class ProductServiceTest {
         when(pictureService.uploadAndGetKey(file)).thenReturn(TEST_LOGO);
         when(productRepository.save(product)).thenReturn(savedProduct);
 
-        productService.addProduct(newProduct, file);
+        productService.addProduct(newProduct, file, null);
 
-        verify(cache).put(TEST_PRODUCT_ID, savedProduct);
+        verify(cache).put(TEST_PRODUCT_ID,
+                new ProductView(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, TEST_CATEGORY_ID, TEST_CATEGORY_NAME));
     }
 
     @Test
@@ -154,7 +261,7 @@ class ProductServiceTest {
 
         when(categoryRepository.findByName(TEST_CATEGORY_NAME)).thenReturn(null);
 
-        assertThrows(CategoryNotFoundException.class, () -> productService.addProduct(newProduct, file));
+        assertThrows(CategoryNotFoundException.class, () -> productService.addProduct(newProduct, file, null));
     }
 
     @Test
@@ -162,17 +269,19 @@ class ProductServiceTest {
         Product product = getProductById();
         ProductDto expectedProduct = new ProductDto(TEST_PRODUCT_NAME, TEST_LOGO, TEST_CATEGORY_NAME);
 
+        loadThroughCache();
         when(productRepository.findById(TEST_PRODUCT_ID)).thenReturn(Optional.of(product));
         when(pictureService.getPictureUrl(product.getLogo())).thenReturn(TEST_LOGO);
 
         ProductDto actualProduct = productService.getProductDto(TEST_PRODUCT_ID);
 
         assertEquals(expectedProduct, actualProduct);
-        verify(cache).put(TEST_PRODUCT_ID, product);
+        verify(cache).get(eq(TEST_PRODUCT_ID), any());
     }
 
     @Test
     void shouldThrowWhenProductNotFoundById() {
+        loadThroughCache();
         when(productRepository.findById(TEST_PRODUCT_ID)).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class, () -> productService.getProductDto(TEST_PRODUCT_ID));
@@ -180,17 +289,44 @@ class ProductServiceTest {
 
     @Test
     void shouldVerifyProductDeletedById() {
-        Product product = getProductById();
+        ProductView product =
+                new ProductView(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, TEST_CATEGORY_ID, TEST_CATEGORY_NAME);
 
-        when(cache.get(TEST_PRODUCT_ID)).thenReturn(Optional.of(product));
+        when(cache.get(eq(TEST_PRODUCT_ID), any())).thenReturn(product);
 
         productService.deleteProduct(TEST_PRODUCT_ID);
 
-        verify(pictureService).deleteFileFromS3(product.getLogo());
-        verify(productRepository).delete(product);
+        verify(pictureService).deleteFileFromS3(product.logo());
+        verify(productRepository).deleteById(TEST_PRODUCT_ID);
         verify(cache).remove(TEST_PRODUCT_ID);
     }
 
+    @Test
+    void shouldUpdateCacheAndIndexOnlyAfterCommitWhenDeletedInTransaction() {
+        ProductView product =
+                new ProductView(TEST_PRODUCT_ID, TEST_PRODUCT_NAME, TEST_LOGO, TEST_CATEGORY_ID, TEST_CATEGORY_NAME);
+        when(cache.get(eq(TEST_PRODUCT_ID), any())).thenReturn(product);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productService.deleteProduct(TEST_PRODUCT_ID);
+
+            verify(cache, never()).remove(TEST_PRODUCT_ID);
+            verify(searchIndex, never()).remove(TEST_PRODUCT_ID);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(cache).remove(TEST_PRODUCT_ID);
+        verify(searchIndex).remove(TEST_PRODUCT_ID);
+    }
+
+    private void loadThroughCache() {
+        when(cache.get(eq(TEST_PRODUCT_ID), any())).thenAnswer(invocation ->
+                invocation.<Function<UUID, ProductView>>getArgument(1).apply(TEST_PRODUCT_ID));
+    }
+
     private Product getProductById() {
         Product product = new Product(TEST_PRODUCT_NAME, TEST_LOGO);
         Category category = new Category(TEST_CATEGORY_ID, TEST_CATEGORY_NAME, TEST_LOGO, List.of(product));